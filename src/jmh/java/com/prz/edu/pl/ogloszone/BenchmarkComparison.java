@@ -0,0 +1,81 @@
+package com.prz.edu.pl.ogloszone;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Prints a JMH result next to the checked-in baseline: time and allocated bytes per operation, with the change
+ * in percent. Allocation per operation is stable across machines, so it is the number to judge a change by;
+ * times are only comparable on the machine that recorded the baseline.
+ */
+public final class BenchmarkComparison {
+
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+
+    private BenchmarkComparison() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, Score> baseline = read(Path.of(args[0]));
+        Map<String, Score> current = read(Path.of(args[1]));
+
+        System.out.printf("%-55s %14s %14s %8s %12s %12s %8s%n",
+                "benchmark", "baseline", "current", "change", "base B/op", "B/op", "change");
+        current.forEach((name, score) -> {
+            Score base = baseline.get(name);
+            System.out.printf("%-55s %14s %14s %8s %12s %12.0f %8s%n", name,
+                    base == null ? "-" : String.format("%.3f %s", base.time(), base.unit()),
+                    String.format("%.3f %s", score.time(), score.unit()),
+                    base == null ? "new" : change(base.time(), score.time()),
+                    base == null ? "-" : String.format("%.0f", base.allocated()),
+                    score.allocated(),
+                    base == null ? "new" : change(base.allocated(), score.allocated()));
+        });
+    }
+
+    private static Map<String, Score> read(Path file) throws IOException {
+        Map<String, Score> scores = new LinkedHashMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(Files.readString(file))) {
+            StringBuilder name = new StringBuilder(run.get("benchmark").asText()
+                    .replace("com.prz.edu.pl.ogloszone.", ""));
+            JsonNode params = run.get("params");
+            if (params != null) {
+                for (Iterator<Map.Entry<String, JsonNode>> it = params.fields(); it.hasNext(); ) {
+                    Map.Entry<String, JsonNode> param = it.next();
+                    name.append(':').append(param.getKey()).append('=').append(param.getValue().asText());
+                }
+            }
+            JsonNode primary = run.get("primaryMetric");
+            scores.put(name.toString(), new Score(primary.get("score").asDouble(),
+                    primary.get("scoreUnit").asText(), allocated(run.get("secondaryMetrics"))));
+        }
+        return scores;
+    }
+
+    private static double allocated(JsonNode secondaryMetrics) {
+        if (secondaryMetrics == null) {
+            return Double.NaN;
+        }
+        for (Iterator<Map.Entry<String, JsonNode>> it = secondaryMetrics.fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> metric = it.next();
+            if (metric.getKey().replace("·", "").equals(ALLOCATION)) {
+                return metric.getValue().get("score").asDouble();
+            }
+        }
+        return Double.NaN;
+    }
+
+    private static String change(double before, double after) {
+        return before == 0 ? "-" : String.format("%+.1f%%", (after - before) * 100 / before);
+    }
+
+    private record Score(double time, String unit, double allocated) {
+    }
+}
@@ -0,0 +1,52 @@
+package com.prz.edu.pl.ogloszone.add;
+
+import com.prz.edu.pl.ogloszone.category.Category;
+import com.prz.edu.pl.ogloszone.exception.InvalidCategoryException;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request work in {@link AddService} that does not touch Mongo: mapping a stored announcement to its
+ * response and parsing the category parameter, including the rejection of an unknown one.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@State(Scope.Benchmark)
+public class AddBenchmark {
+
+    private Add add;
+
+    @Setup
+    public void setUp() {
+        String title = "Rower miejski w dobrym stanie";
+        String content = "Sprzedam rower miejski, rama 19 cali, przegląd zrobiony w zeszłym miesiącu.";
+        add = new Add(UUID.randomUUID().toString(), title, content, Category.SALE,
+                new Contact("+48123456789", "user@example.com"), LocalDateTime.now(),
+                UUID.randomUUID().toString(), SearchText.of(title, content), 3L);
+    }
+
+    @Benchmark
+    public AddResponse toResponse() {
+        return new AddResponse(add);
+    }
+
+    @Benchmark
+    public Category validateCategory() {
+        return AddService.validateCategory(" sale ");
+    }
+
+    @Benchmark
+    public String validateInvalidCategory() {
+        try {
+            return AddService.validateCategory("bikes").name();
+        } catch (InvalidCategoryException e) {
+            return e.getMessage();
+        }
+    }
+}
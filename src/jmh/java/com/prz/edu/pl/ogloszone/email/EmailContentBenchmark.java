@@ -0,0 +1,39 @@
+package com.prz.edu.pl.ogloszone.email;
+
+import com.prz.edu.pl.ogloszone.add.Add;
+import com.prz.edu.pl.ogloszone.add.Contact;
+import com.prz.edu.pl.ogloszone.category.Category;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering of the confirmation email body, done once per created or edited announcement.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@State(Scope.Benchmark)
+public class EmailContentBenchmark {
+
+    private final EmailService emailService = new EmailService(null);
+
+    private Add add;
+
+    @Setup
+    public void setUp() {
+        add = new Add(UUID.randomUUID().toString(), "Praca jako programista Java",
+                "Poszukujemy programisty Java do zespołu backendowego.", Category.JOB,
+                new Contact(null, "user@example.com"), LocalDateTime.now(), UUID.randomUUID().toString(),
+                null, 0L);
+    }
+
+    @Benchmark
+    public String generateContent() {
+        return emailService.generateContent(add);
+    }
+}
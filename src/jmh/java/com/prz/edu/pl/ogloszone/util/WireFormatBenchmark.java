@@ -0,0 +1,84 @@
+package com.prz.edu.pl.ogloszone.util;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.prz.edu.pl.ogloszone.add.AddResponse;
+import com.prz.edu.pl.ogloszone.add.Contact;
+import com.prz.edu.pl.ogloszone.category.Category;
+import com.prz.edu.pl.ogloszone.config.WireFormatConfig;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A page of 100 announcements written and read as JSON, Smile and CBOR with the mappers the application
+ * negotiates. The encoded size is reported as the {@code payloadBytes} secondary metric.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@State(Scope.Benchmark)
+public class WireFormatBenchmark {
+
+    private static final int SIZE = 100;
+    private static final TypeReference<PagedResponse<AddResponse>> PAGE = new TypeReference<>() {
+    };
+
+    @Param({"json", "smile", "cbor"})
+    private String format;
+
+    private ObjectMapper objectMapper;
+    private PagedResponse<AddResponse> page;
+    private byte[] payload;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Payload {
+
+        public long payloadBytes;
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = switch (format) {
+            case "smile" -> WireFormatConfig.binaryMapper(Jackson2ObjectMapperBuilder.json(), new SmileFactory());
+            case "cbor" -> WireFormatConfig.binaryMapper(Jackson2ObjectMapperBuilder.json(), new CBORFactory());
+            default -> Jackson2ObjectMapperBuilder.json()
+                    .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                    .build();
+        };
+        List<AddResponse> content = new ArrayList<>(SIZE);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < SIZE; i++) {
+            content.add(new AddResponse(UUID.randomUUID(), "Ogłoszenie numer " + i,
+                    "Treść ogłoszenia numer " + i + ", ".repeat(40),
+                    Category.values()[i % Category.values().length],
+                    new Contact("+48123456789", "user" + i + "@example.com"), now.minusMinutes(i), (long) i % 4));
+        }
+        page = new PagedResponse<>(content, 0, SIZE, 1000L, 1000 / SIZE, false, null);
+        payload = objectMapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] serialize(Payload size) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(page);
+        size.payloadBytes = bytes.length;
+        return bytes;
+    }
+
+    @Benchmark
+    public PagedResponse<AddResponse> deserialize() throws IOException {
+        return objectMapper.readValue(payload, PAGE);
+    }
+}
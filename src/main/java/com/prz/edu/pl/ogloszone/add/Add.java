@@ -5,18 +5,26 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import org.springframework.data.annotation.Id;
-import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 
-@Document(collection = "announcements")
+@Document(collection = "announcements", language = "none")
+@CompoundIndex(name = "dateTime_id", def = "{'dateTime': -1, '_id': -1}")
+@CompoundIndex(name = "category_dateTime_id", def = "{'category': 1, 'dateTime': -1, '_id': -1}")
 public record Add(
         @Id String id,
         @NotBlank(message = "Title is required") String title,
         @NotBlank(message = "Content is required") String content,
-        @Indexed @NotNull(message = "Category is required") Category category,
+        @NotNull(message = "Category is required") Category category,
         @NotNull(message = "Contact is required") Contact contact,
-        @Indexed(expireAfter = "30d") LocalDateTime dateTime,
-        @Schema(hidden = true) String editCode) {
+        LocalDateTime dateTime,
+        @Schema(hidden = true) String editCode,
+        @Schema(hidden = true) SearchText search,
+        @Version Long version) {
+
+    public static final Duration LIFETIME = Duration.ofDays(30);
 }
\ No newline at end of file
@@ -0,0 +1,18 @@
+package com.prz.edu.pl.ogloszone.add;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+import java.util.UUID;
+
+public record AddBatchGetRequest(
+        @Schema(description = "Ids of the announcements to fetch; duplicates are fetched once",
+                example = "[\"550e8400-e29b-41d4-a716-446655440000\"]")
+        @NotEmpty(message = "At least one id is required")
+        @Size(max = AddService.MAX_BATCH_GET_IDS,
+                message = "At most " + AddService.MAX_BATCH_GET_IDS + " ids can be fetched at once")
+        List<@NotNull(message = "Ids cannot be null") UUID> ids) {
+}
@@ -0,0 +1,14 @@
+package com.prz.edu.pl.ogloszone.add;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+import java.util.UUID;
+
+public record AddBatchGetResponse(
+        @Schema(description = "The announcements found, in request order")
+        List<AddResponse> found,
+
+        @Schema(description = "Requested ids with no announcement, e.g. deleted or expired ones")
+        List<UUID> missing) {
+}
@@ -0,0 +1,159 @@
+package com.prz.edu.pl.ogloszone.add;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a batch of {@link AddRequest}s, given as a JSON array or as NDJSON, one entry at a time, so the request
+ * body is never held in memory. Entries are handled in chunks of {@code chunk-size}: the valid ones are stored
+ * by {@link AddService#createAdds}, invalid ones are reported without stopping the import. At most
+ * {@code max-items} entries are read per request. Entries are counted in {@code ogloszone.add.batch.items} by
+ * status.
+ */
+@Component
+public class AddBatchImport {
+
+    private static final Logger logger = LoggerFactory.getLogger(AddBatchImport.class);
+
+    private final AddService service;
+    private final ObjectReader reader;
+    private final Validator validator;
+    private final MeterRegistry meterRegistry;
+    private final int chunkSize;
+    private final int maxItems;
+
+    public AddBatchImport(AddService service,
+                          ObjectMapper objectMapper,
+                          Validator validator,
+                          MeterRegistry meterRegistry,
+                          @Value("${ogloszone.batch.chunk-size:500}") int chunkSize,
+                          @Value("${ogloszone.batch.max-items:50000}") int maxItems) {
+        this.service = service;
+        this.reader = objectMapper.readerFor(AddRequest.class);
+        this.validator = validator;
+        this.meterRegistry = meterRegistry;
+        this.chunkSize = chunkSize;
+        this.maxItems = maxItems;
+    }
+
+    public AddBatchResponse importFrom(InputStream body) throws IOException {
+        List<AddBatchItem> items = new ArrayList<>();
+        Chunk chunk = new Chunk();
+        String error = null;
+        try (MappingIterator<AddRequest> entries = reader.readValues(body)) {
+            while (error == null && entries.hasNextValue()) {
+                if (items.size() + chunk.size() == maxItems) {
+                    error = "A batch can contain at most " + maxItems + " entries";
+                    break;
+                }
+                int index = items.size() + chunk.size();
+                try {
+                    AddRequest request = entries.nextValue();
+                    List<String> violations = violations(request);
+                    if (violations.isEmpty()) {
+                        chunk.add(index, request);
+                    } else {
+                        chunk.add(index, AddBatchItem.invalid(index, violations));
+                    }
+                } catch (JsonParseException e) {
+                    error = "Malformed JSON at entry " + index + ": " + e.getOriginalMessage();
+                } catch (JsonMappingException e) {
+                    chunk.add(index, AddBatchItem.invalid(index, List.of(e.getOriginalMessage())));
+                }
+                if (chunk.size() == chunkSize) {
+                    items.addAll(store(chunk));
+                    chunk = new Chunk();
+                }
+            }
+        } catch (JsonParseException e) {
+            error = "Malformed JSON at entry " + (items.size() + chunk.size()) + ": " + e.getOriginalMessage();
+        }
+        items.addAll(store(chunk));
+
+        int created = (int) items.stream().filter(item -> item.status() == AddBatchItem.Status.CREATED).count();
+        logger.info("Batch import read {} entries and created {} announcements{}", items.size(), created,
+                error != null ? ", stopped: " + error : "");
+        return new AddBatchResponse(items.size(), created, error, items);
+    }
+
+    private List<String> violations(AddRequest request) {
+        return violations(validator, request);
+    }
+
+    static List<String> violations(Validator validator, AddRequest request) {
+        if (request == null) {
+            return List.of("Entry must be an announcement object");
+        }
+        return validator.validate(request).stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .toList();
+    }
+
+    private List<AddBatchItem> store(Chunk chunk) {
+        List<AddBatchItem> stored = chunk.valid() == 0 ? List.of() : service.createAdds(chunk.requests);
+        List<AddBatchItem> items = new ArrayList<>(chunk.size());
+        int next = 0;
+        for (int i = 0; i < chunk.size(); i++) {
+            AddBatchItem item = chunk.results.get(i);
+            if (item == null) {
+                item = stored.get(next++).at(chunk.firstIndex + i);
+            }
+            meterRegistry.counter("ogloszone.add.batch.items", "status", item.status().name().toLowerCase())
+                    .increment();
+            items.add(item);
+        }
+        return items;
+    }
+
+    /**
+     * Consecutive entries: the requests to store, and the results already known for invalid entries
+     * ({@code null} where the entry is one of the requests).
+     */
+    private static final class Chunk {
+
+        private final List<AddRequest> requests = new ArrayList<>();
+        private final List<AddBatchItem> results = new ArrayList<>();
+        private int firstIndex = -1;
+
+        void add(int index, AddRequest request) {
+            start(index);
+            requests.add(request);
+            results.add(null);
+        }
+
+        void add(int index, AddBatchItem invalid) {
+            start(index);
+            results.add(invalid);
+        }
+
+        int size() {
+            return results.size();
+        }
+
+        int valid() {
+            return requests.size();
+        }
+
+        private void start(int index) {
+            if (firstIndex < 0) {
+                firstIndex = index;
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.prz.edu.pl.ogloszone.add;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+/**
+ * Outcome of one entry of a batch import. The edit code is not returned; like for a single announcement it is
+ * only sent in the confirmation email.
+ */
+public record AddBatchItem(
+        @Schema(description = "Position of the entry in the request, starting at 0", example = "0")
+        int index,
+
+        @Schema(description = "CREATED, INVALID (rejected by validation) or FAILED (could not be stored)",
+                example = "CREATED")
+        Status status,
+
+        @Schema(description = "Identifier of the created announcement",
+                example = "550e8400-e29b-41d4-a716-446655440000")
+        String id,
+
+        @Schema(description = "Why the entry was not created")
+        List<String> errors) {
+
+    public enum Status {
+        CREATED,
+        INVALID,
+        FAILED
+    }
+
+    static AddBatchItem created(int index, String id) {
+        return new AddBatchItem(index, Status.CREATED, id, List.of());
+    }
+
+    static AddBatchItem invalid(int index, List<String> errors) {
+        return new AddBatchItem(index, Status.INVALID, null, errors);
+    }
+
+    static AddBatchItem failed(int index, String error) {
+        return new AddBatchItem(index, Status.FAILED, null, List.of(error));
+    }
+
+    AddBatchItem at(int index) {
+        return new AddBatchItem(index, status, id, errors);
+    }
+}
@@ -0,0 +1,20 @@
+package com.prz.edu.pl.ogloszone.add;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+public record AddBatchResponse(
+        @Schema(description = "Number of entries read from the request", example = "500")
+        int received,
+
+        @Schema(description = "Number of announcements created", example = "498")
+        int created,
+
+        @Schema(description = "Set when reading stopped before the end of the request (malformed JSON or more "
+                + "entries than allowed); entries from 'received' on were not processed and can be sent again")
+        String error,
+
+        @Schema(description = "One result per entry read, in request order")
+        List<AddBatchItem> items) {
+}
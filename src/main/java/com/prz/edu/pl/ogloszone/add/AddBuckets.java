@@ -0,0 +1,226 @@
+package com.prz.edu.pl.ogloszone.add;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides which collection holds an announcement. With the default {@code single} layout every announcement
+ * lives in {@code announcements}. With {@code daily} or {@code weekly} it goes to the bucket of the day or ISO
+ * week of its {@code dateTime} ({@code announcements_d2025_10_18}, {@code announcements_w2025_10_13}); reads
+ * only touch the buckets overlapping the requested time range and {@link AddExpiry} drops whole buckets
+ * instead of deleting documents, so an announcement lives between {@link Add#LIFETIME} and one bucket longer.
+ * Bucket names are derived from the clock rather than listed, so every node sees buckets created by the
+ * others. On startup with a bucketed layout, announcements left in {@code announcements} are moved to their
+ * buckets.
+ */
+@Component
+public class AddBuckets implements ApplicationRunner {
+
+    public enum Layout {
+        SINGLE,
+        DAILY,
+        WEEKLY
+    }
+
+    static final String COLLECTION = "announcements";
+
+    private static final Logger logger = LoggerFactory.getLogger(AddBuckets.class);
+
+    private static final DateTimeFormatter BUCKET_DATE = DateTimeFormatter.ofPattern("yyyy_MM_dd");
+    // Nodes whose clocks run slightly ahead may already write to the next bucket.
+    private static final Duration CLOCK_SKEW = Duration.ofMinutes(1);
+    private static final int MIGRATION_BATCH_SIZE = 500;
+
+    private final MongoTemplate mongoTemplate;
+    private final Layout layout;
+    private final Clock clock;
+    private final Map<String, Boolean> indexed = new ConcurrentHashMap<>();
+
+    @Autowired
+    public AddBuckets(MongoTemplate mongoTemplate, @Value("${ogloszone.storage.layout:single}") Layout layout) {
+        this(mongoTemplate, layout, Clock.systemDefaultZone());
+    }
+
+    AddBuckets(MongoTemplate mongoTemplate, Layout layout, Clock clock) {
+        this.mongoTemplate = mongoTemplate;
+        this.layout = layout;
+        this.clock = clock;
+    }
+
+    public Layout layout() {
+        return layout;
+    }
+
+    public boolean isBucketed() {
+        return layout != Layout.SINGLE;
+    }
+
+    /**
+     * Collection for an announcement with this {@code dateTime}. The first time this node writes to a bucket
+     * it creates the indexes declared on {@link Add} there, before any document is inserted.
+     */
+    String forWrite(LocalDateTime dateTime) {
+        if (!isBucketed()) {
+            return COLLECTION;
+        }
+        String bucket = name(start(dateTime));
+        indexed.computeIfAbsent(bucket, name -> {
+            createIndexes(name);
+            return true;
+        });
+        return bucket;
+    }
+
+    /**
+     * Collections that can hold announcements with {@code dateTime} after {@code after} and not after
+     * {@code before}, newest first. {@code null} bounds mean the oldest unexpired bucket and now.
+     */
+    List<String> forRead(LocalDateTime after, LocalDateTime before) {
+        if (!isBucketed()) {
+            return List.of(COLLECTION);
+        }
+        LocalDateTime now = LocalDateTime.now(clock);
+        LocalDateTime oldest = now.minus(Add.LIFETIME);
+        if (after != null && after.isAfter(oldest)) {
+            oldest = after;
+        }
+        LocalDateTime newest = before != null ? before : now.plus(CLOCK_SKEW);
+        List<String> buckets = new ArrayList<>();
+        for (LocalDateTime start = start(newest); !start.isBefore(start(oldest)); start = start.minus(1, unit())) {
+            buckets.add(name(start));
+        }
+        return buckets;
+    }
+
+    /**
+     * Existing buckets, oldest first.
+     */
+    List<String> existing() {
+        return mongoTemplate.getCollectionNames().stream()
+                .filter(name -> start(name) != null)
+                .sorted(Comparator.comparing(this::start))
+                .toList();
+    }
+
+    /**
+     * First moment after the time range of {@code bucket}.
+     */
+    LocalDateTime end(String bucket) {
+        return start(bucket).plus(1, unit());
+    }
+
+    /**
+     * Drops {@code bucket} and returns how many announcements it held.
+     */
+    long drop(String bucket) {
+        long count = mongoTemplate.estimatedCount(bucket);
+        mongoTemplate.dropCollection(bucket);
+        indexed.remove(bucket);
+        return count;
+    }
+
+    void createIndexes(String collection) {
+        IndexOperations indexes = mongoTemplate.indexOps(collection);
+        for (IndexDefinition index : new MongoPersistentEntityIndexResolver(
+                mongoTemplate.getConverter().getMappingContext()).resolveIndexFor(Add.class)) {
+            indexes.ensureIndex(index);
+        }
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!isBucketed()) {
+            return;
+        }
+        LocalDateTime expiredBefore = LocalDateTime.now(clock).minus(Add.LIFETIME);
+        Query batch = new Query().limit(MIGRATION_BATCH_SIZE);
+        long moved = 0;
+        List<Add> adds;
+        while (!(adds = mongoTemplate.find(batch, Add.class, COLLECTION)).isEmpty()) {
+            for (Add add : adds) {
+                if (add.dateTime() != null && add.dateTime().isAfter(expiredBefore)) {
+                    move(add);
+                    moved++;
+                }
+            }
+            mongoTemplate.remove(Query.query(Criteria.where("_id").in(adds.stream().map(Add::id).toList())),
+                    COLLECTION);
+        }
+        if (moved > 0) {
+            logger.info("Moved {} announcements from {} to {} buckets", moved, COLLECTION, layout);
+        }
+    }
+
+    private void move(Add add) {
+        Add copy = add.search() != null ? add : new Add(add.id(), add.title(), add.content(), add.category(),
+                add.contact(), add.dateTime(), add.editCode(), SearchText.of(add.title(), add.content()),
+                add.version());
+        try {
+            mongoTemplate.insert(copy, forWrite(add.dateTime()));
+        } catch (DuplicateKeyException e) {
+            // Another node moved it first.
+        }
+    }
+
+    private LocalDateTime start(LocalDateTime dateTime) {
+        LocalDate date = dateTime.toLocalDate();
+        if (layout == Layout.WEEKLY) {
+            date = date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        }
+        return date.atStartOfDay();
+    }
+
+    /**
+     * Start of the bucket called {@code name} in this layout, or {@code null} for any other collection.
+     */
+    private LocalDateTime start(String name) {
+        String prefix = prefix();
+        if (!name.startsWith(prefix)) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(name.substring(prefix.length()), BUCKET_DATE).atStartOfDay();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private String name(LocalDateTime start) {
+        return prefix() + BUCKET_DATE.format(start);
+    }
+
+    private String prefix() {
+        return COLLECTION + (layout == Layout.WEEKLY ? "_w" : "_d");
+    }
+
+    private ChronoUnit unit() {
+        return layout == Layout.WEEKLY ? ChronoUnit.WEEKS : ChronoUnit.DAYS;
+    }
+}
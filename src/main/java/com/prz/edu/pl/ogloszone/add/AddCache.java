@@ -0,0 +1,105 @@
+package com.prz.edu.pl.ogloszone.add;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Bounded read-through cache of single announcements keyed by id. Concurrent misses for the same id wait for
+ * one load instead of each querying Mongo. Entries never outlive the announcement's own expiry and are dropped
+ * on every {@link AddChangeEvent}, whichever node made the change.
+ */
+@Component
+public class AddCache {
+
+    private final AsyncCache<String, AddResponse> cache;
+
+    public AddCache(MeterRegistry meterRegistry,
+                    @Value("${ogloszone.cache.add.max-size:5000}") long maxSize,
+                    @Value("${ogloszone.cache.add.ttl:PT10M}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new LifetimeExpiry(ttl))
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "add");
+    }
+
+    public AddResponse get(String id, Function<String, AddResponse> loader) {
+        return cache.synchronous().get(id, loader);
+    }
+
+    /**
+     * The cached announcements among {@code ids}, loading all the missing ones with a single call of
+     * {@code loader}. Ids the loader does not return are left out of the result and are not cached.
+     */
+    public Map<String, AddResponse> getAll(Collection<String> ids,
+                                           Function<Set<? extends String>, Map<String, AddResponse>> loader) {
+        return cache.synchronous().getAll(ids, loader);
+    }
+
+    /**
+     * Non-blocking variant of {@link #get} for the reactive stack. A load still in flight when the entry is
+     * invalidated is discarded rather than cached.
+     */
+    public CompletableFuture<AddResponse> getAsync(String id, Function<String, CompletableFuture<AddResponse>> loader) {
+        return cache.get(id, (key, executor) -> loader.apply(key));
+    }
+
+    /**
+     * Non-blocking variant of {@link #getAll} for the reactive stack.
+     */
+    public CompletableFuture<Map<String, AddResponse>> getAllAsync(
+            Collection<String> ids, Function<Set<? extends String>, CompletableFuture<Map<String, AddResponse>>> loader) {
+        return cache.getAll(ids, (keys, executor) -> loader.apply(keys));
+    }
+
+    public void invalidate(String id) {
+        cache.synchronous().invalidate(id);
+    }
+
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+    }
+
+    @EventListener
+    public void onChange(AddChangeEvent event) {
+        if (event.type() == AddChangeEvent.Type.RESYNC) {
+            invalidateAll();
+        } else {
+            invalidate(event.id());
+        }
+    }
+
+    private record LifetimeExpiry(Duration ttl) implements Expiry<String, AddResponse> {
+
+        @Override
+        public long expireAfterCreate(String id, AddResponse add, long currentTime) {
+            Duration untilExpired = Duration.between(LocalDateTime.now(), add.dateTime().plus(Add.LIFETIME));
+            return Math.max(0, Math.min(ttl.toNanos(), untilExpired.toNanos()));
+        }
+
+        @Override
+        public long expireAfterUpdate(String id, AddResponse add, long currentTime, long currentDuration) {
+            return expireAfterCreate(id, add, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String id, AddResponse add, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
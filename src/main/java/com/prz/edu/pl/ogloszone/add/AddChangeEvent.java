@@ -0,0 +1,35 @@
+package com.prz.edu.pl.ogloszone.add;
+
+/**
+ * Change to the announcements collection, published on the application event bus. {@code LOCAL} events come
+ * from {@link AddService} right after its own write; {@code FEED} events come from {@link AddChangeFeed} and
+ * cover writes of every node, including this one, so listeners must tolerate seeing a change twice.
+ *
+ * @param add the announcement after the change; for local deletions its last state; {@code null} for feed
+ *            deletions and resyncs
+ */
+public record AddChangeEvent(Type type, String id, Add add, Origin origin) {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED,
+        /**
+         * Changes may have been missed (bulk delete, lost change stream history); derived state must be dropped.
+         */
+        RESYNC
+    }
+
+    public enum Origin {
+        LOCAL,
+        FEED
+    }
+
+    public static AddChangeEvent local(Type type, Add add) {
+        return new AddChangeEvent(type, add.id(), add, Origin.LOCAL);
+    }
+
+    public static AddChangeEvent resync(Origin origin) {
+        return new AddChangeEvent(Type.RESYNC, null, null, origin);
+    }
+}
@@ -0,0 +1,366 @@
+package com.prz.edu.pl.ogloszone.add;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes an {@link AddChangeEvent} for every change to the announcements collection made by any node, so
+ * per-node caches stay consistent behind a load balancer. Uses a change stream whose resume token is stored in
+ * {@code change_feed_state} under {@code ogloszone.change-feed.node-id} (the host name by default), so a restarted
+ * node continues where its own feed stopped. A listener that fails on one change is logged and the feed moves on
+ * to the next. When change streams are not
+ * available (standalone server) it falls back to polling {@code dateTime}, which sees inserts and updates but
+ * not deletions; those are bounded by the cache TTLs. With bucketed storage ({@link AddBuckets}) the change stream
+ * watches the database for every bucket, and dropping an expired bucket is published as a resync.
+ */
+@Component
+public class AddChangeFeed implements SmartLifecycle {
+
+    public enum Mode {
+        AUTO,
+        CHANGE_STREAM,
+        POLLING,
+        OFF
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(AddChangeFeed.class);
+
+    private static final String COLLECTION = AddBuckets.COLLECTION;
+    private static final String STATE_COLLECTION = "change_feed_state";
+    private static final Set<Integer> CHANGE_STREAM_UNSUPPORTED = Set.of(40573, 40324);
+    private static final Set<Integer> RESUME_TOKEN_LOST = Set.of(260, 280, 286);
+    private static final Duration TOKEN_SAVE_INTERVAL = Duration.ofSeconds(1);
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(5);
+    private static final Duration STOP_TIMEOUT = Duration.ofSeconds(5);
+    private static final long SLEEP_SLICE_MILLIS = 100;
+    static final int POLL_BATCH_SIZE = 1000;
+
+    private final MongoTemplate mongoTemplate;
+    private final AddBuckets buckets;
+    private final ApplicationEventPublisher publisher;
+    private final Mode mode;
+    private final Duration pollInterval;
+    private final String nodeId;
+
+    private volatile boolean running;
+    private volatile Mode activeMode = Mode.OFF;
+    private Thread worker;
+
+    public AddChangeFeed(MongoTemplate mongoTemplate,
+                         AddBuckets buckets,
+                         ApplicationEventPublisher publisher,
+                         @Value("${ogloszone.change-feed.mode:auto}") Mode mode,
+                         @Value("${ogloszone.change-feed.poll-interval:PT5S}") Duration pollInterval,
+                         @Value("${ogloszone.change-feed.node-id:}") String nodeId) {
+        this.mongoTemplate = mongoTemplate;
+        this.buckets = buckets;
+        this.publisher = publisher;
+        this.mode = mode;
+        this.pollInterval = pollInterval;
+        this.nodeId = nodeId.isBlank() ? hostName() : nodeId;
+    }
+
+    /**
+     * Mode the feed is currently running in; {@code OFF} when disabled or stopped.
+     */
+    public Mode activeMode() {
+        return activeMode;
+    }
+
+    @Override
+    public void start() {
+        if (mode == Mode.OFF) {
+            logger.info("Announcement change feed disabled");
+            return;
+        }
+        running = true;
+        worker = Thread.ofPlatform().name("add-change-feed").daemon().start(this::run);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (worker != null) {
+            try {
+                // Let the worker finish its current wait and store the latest resume token.
+                worker.join(STOP_TIMEOUT.toMillis());
+                if (worker.isAlive()) {
+                    worker.interrupt();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        activeMode = Mode.OFF;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void run() {
+        boolean useChangeStream = mode != Mode.POLLING;
+        while (running) {
+            try {
+                if (useChangeStream) {
+                    watch();
+                } else {
+                    poll();
+                }
+            } catch (MongoCommandException e) {
+                if (useChangeStream && mode == Mode.AUTO && CHANGE_STREAM_UNSUPPORTED.contains(e.getErrorCode())) {
+                    logger.warn("Change streams are not supported by this deployment, falling back to polling every {}",
+                            pollInterval);
+                    useChangeStream = false;
+                } else if (RESUME_TOKEN_LOST.contains(e.getErrorCode())) {
+                    logger.warn("Change stream cannot resume from the stored token, starting from now: {}", e.getMessage());
+                    clearResumeToken();
+                    publisher.publishEvent(AddChangeEvent.resync(AddChangeEvent.Origin.FEED));
+                } else {
+                    logger.error("Announcement change feed failed, retrying in {}", RETRY_DELAY, e);
+                    sleep(RETRY_DELAY);
+                }
+            } catch (MongoException e) {
+                if (running) {
+                    logger.error("Announcement change feed failed, retrying in {}", RETRY_DELAY, e);
+                    sleep(RETRY_DELAY);
+                }
+            } catch (RuntimeException e) {
+                // Keeps the feed alive for errors outside a single change, e.g. a row polling cannot read.
+                if (running) {
+                    logger.error("Announcement change feed failed unexpectedly, restarting in {}", RETRY_DELAY, e);
+                    sleep(RETRY_DELAY);
+                }
+            }
+        }
+    }
+
+    private void watch() {
+        ChangeStreamIterable<Document> stream = buckets.isBucketed()
+                ? mongoTemplate.getDb().watch(List.of(Aggregates.match(
+                        Filters.regex("ns.coll", "^" + COLLECTION + "_"))))
+                : mongoTemplate.getCollection(COLLECTION).watch();
+        stream = stream
+                .fullDocument(FullDocument.UPDATE_LOOKUP)
+                .maxAwaitTime(1, TimeUnit.SECONDS);
+        BsonDocument resumeToken = loadResumeToken();
+        if (resumeToken != null) {
+            stream = stream.resumeAfter(resumeToken);
+        }
+
+        try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = stream.cursor()) {
+            activeMode = Mode.CHANGE_STREAM;
+            logger.info("Announcement change feed listening on change stream{}", resumeToken != null ? " (resumed)" : "");
+            Instant lastSaved = Instant.now();
+            while (running) {
+                ChangeStreamDocument<Document> change = cursor.tryNext();
+                if (change != null) {
+                    try {
+                        publish(change);
+                    } catch (RuntimeException e) {
+                        logger.error("Could not publish {} of announcement {}, skipping it", change.getOperationType(),
+                                change.getDocumentKey(), e);
+                    }
+                }
+                BsonDocument token = cursor.getResumeToken();
+                if (token != null && Duration.between(lastSaved, Instant.now()).compareTo(TOKEN_SAVE_INTERVAL) >= 0) {
+                    saveResumeToken(token);
+                    lastSaved = Instant.now();
+                }
+            }
+            BsonDocument token = cursor.getResumeToken();
+            if (token != null) {
+                saveResumeToken(token);
+            }
+        } finally {
+            activeMode = Mode.OFF;
+        }
+    }
+
+    private void publish(ChangeStreamDocument<Document> change) {
+        AddChangeEvent.Type type = switch (change.getOperationType()) {
+            case INSERT -> AddChangeEvent.Type.CREATED;
+            case UPDATE, REPLACE -> AddChangeEvent.Type.UPDATED;
+            case DELETE -> AddChangeEvent.Type.DELETED;
+            default -> AddChangeEvent.Type.RESYNC;
+        };
+        if (type == AddChangeEvent.Type.RESYNC) {
+            publisher.publishEvent(AddChangeEvent.resync(AddChangeEvent.Origin.FEED));
+            return;
+        }
+        BsonValue key = change.getDocumentKey() != null ? change.getDocumentKey().get("_id") : null;
+        String id = key == null ? null : key.isString() ? key.asString().getValue() : key.toString();
+        Add add = change.getFullDocument() != null
+                ? mongoTemplate.getConverter().read(Add.class, change.getFullDocument())
+                : null;
+        publisher.publishEvent(new AddChangeEvent(type, id, add, AddChangeEvent.Origin.FEED));
+    }
+
+    private void poll() {
+        activeMode = Mode.POLLING;
+        logger.info("Announcement change feed polling every {}", pollInterval);
+        Poller poller = new Poller(LocalDateTime.now());
+        try {
+            while (running) {
+                sleep(pollInterval);
+                if (!running) {
+                    break;
+                }
+                poller.poll();
+            }
+        } finally {
+            activeMode = Mode.OFF;
+        }
+    }
+
+    /**
+     * Pages through announcements written since the last poll in {@code (dateTime, _id)} order, batch after batch
+     * until one comes back short, so any number of writes within an interval is read once. Every poll starts one
+     * interval before the newest {@code dateTime} seen, so writes committed late by another node are not skipped;
+     * rows of that overlap already published in the same version are not published again.
+     */
+    private final class Poller {
+
+        private final Map<String, Seen> seen = new HashMap<>();
+        private LocalDateTime watermark;
+
+        Poller(LocalDateTime watermark) {
+            this.watermark = watermark;
+        }
+
+        void poll() {
+            LocalDateTime from = watermark.minus(pollInterval);
+            LocalDateTime newest = watermark;
+            for (String collection : buckets.forRead(from, null)) {
+                LocalDateTime afterTime = from;
+                String afterId = null;
+                while (running) {
+                    Criteria criteria = afterId == null
+                            ? Criteria.where("dateTime").gt(afterTime)
+                            : new Criteria().orOperator(Criteria.where("dateTime").gt(afterTime),
+                                    Criteria.where("dateTime").is(afterTime).and("_id").gt(afterId));
+                    List<Add> batch = mongoTemplate.find(Query.query(criteria)
+                            .with(Sort.by(Sort.Direction.ASC, "dateTime", "_id"))
+                            .limit(POLL_BATCH_SIZE), Add.class, collection);
+                    for (Add add : batch) {
+                        publishOnce(add);
+                        if (add.dateTime().isAfter(newest)) {
+                            newest = add.dateTime();
+                        }
+                    }
+                    if (batch.size() < POLL_BATCH_SIZE) {
+                        break;
+                    }
+                    Add last = batch.get(batch.size() - 1);
+                    afterTime = last.dateTime();
+                    afterId = last.id();
+                }
+            }
+            watermark = newest;
+            LocalDateTime overlap = watermark.minus(pollInterval);
+            seen.values().removeIf(row -> !row.dateTime().isAfter(overlap));
+        }
+
+        private void publishOnce(Add add) {
+            Seen row = new Seen(add.dateTime(), add.version());
+            if (row.equals(seen.put(add.id(), row))) {
+                return;
+            }
+            try {
+                publisher.publishEvent(new AddChangeEvent(AddChangeEvent.Type.UPDATED, add.id(), add,
+                        AddChangeEvent.Origin.FEED));
+            } catch (RuntimeException e) {
+                logger.error("Could not publish the change of announcement {}, skipping it", add.id(), e);
+            }
+        }
+    }
+
+    private record Seen(LocalDateTime dateTime, Long version) {
+    }
+
+    private BsonDocument loadResumeToken() {
+        Document state = stateCollection().find(Filters.eq("_id", stateId())).first();
+        if (state == null || state.get("resumeToken") == null) {
+            return null;
+        }
+        return state.get("resumeToken", Document.class).toBsonDocument();
+    }
+
+    private void saveResumeToken(BsonDocument token) {
+        Document state = new Document("_id", stateId())
+                .append("resumeToken", token)
+                .append("updatedAt", new Date());
+        stateCollection().replaceOne(Filters.eq("_id", stateId()), state, new ReplaceOptions().upsert(true));
+    }
+
+    private void clearResumeToken() {
+        stateCollection().deleteOne(Filters.eq("_id", stateId()));
+    }
+
+    /**
+     * Every node keeps its own position; collection and database streams have separate resume tokens.
+     */
+    private String stateId() {
+        String stream = buckets.isBucketed() ? COLLECTION + "_" + buckets.layout().name().toLowerCase() : COLLECTION;
+        return stream + "@" + nodeId;
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            logger.warn("Cannot resolve the host name, set ogloszone.change-feed.node-id to keep a resume token per node");
+            return "local";
+        }
+    }
+
+    private MongoCollection<Document> stateCollection() {
+        return mongoTemplate.getCollection(STATE_COLLECTION);
+    }
+
+    private void sleep(Duration duration) {
+        long deadline = System.nanoTime() + duration.toNanos();
+        try {
+            while (running && System.nanoTime() < deadline) {
+                Thread.sleep(SLEEP_SLICE_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
@@ -6,67 +6,215 @@ import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/add")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class AddController {
 
+    private static final int EXPORT_BUFFER_SIZE = 8192;
+
     private final AddService service;
+    private final AddBatchImport batchImport;
+    private final AddExport export;
+    private final AddEtags etags;
+    private final AddLiveFeed liveFeed;
 
     @Autowired
-    public AddController(AddService service) {
+    public AddController(AddService service, AddBatchImport batchImport, AddExport export, AddEtags etags,
+                         AddLiveFeed liveFeed) {
         this.service = service;
+        this.batchImport = batchImport;
+        this.export = export;
+        this.etags = etags;
+        this.liveFeed = liveFeed;
     }
 
     @PostMapping
     @Operation(summary = "Create a new announcement",
-            description = "Creates a new announcement and sends a confirmation email.")
+            description = "Creates a new announcement and queues a confirmation email.")
     @ApiResponses({
             @ApiResponse(responseCode = "201", description = "Announcement created successfully",
                     content = @Content(schema = @Schema(implementation = AddResponse.class))),
             @ApiResponse(responseCode = "400", description = "Bad request: invalid category or validation failure",
                     content = @Content(schema = @Schema(implementation = ResponseEntity.class))),
-            @ApiResponse(responseCode = "500", description = "Internal server error: email sending failed",
+            @ApiResponse(responseCode = "500", description = "Internal server error during creation",
                     content = @Content(schema = @Schema(implementation = ResponseEntity.class)))
     })
     public ResponseEntity<AddResponse> createAdd(@Valid @RequestBody AddRequest add) {
         return ResponseEntity.status(201).body(service.createAdd(add));
     }
 
+    @PostMapping(path = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @Operation(summary = "Create many announcements at once",
+            description = "Accepts a JSON array or NDJSON (one announcement per line) of the same objects as the "
+                    + "single create. Every entry is validated on its own; valid ones are stored in chunks and get "
+                    + "their confirmation emails queued. Returns one result per entry. Reading stops at malformed "
+                    + "JSON or after the maximum number of entries, which is reported in 'error'.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Batch processed; see the status of each entry",
+                    content = @Content(schema = @Schema(implementation = AddBatchResponse.class))),
+            @ApiResponse(responseCode = "500", description = "Internal server error during the import",
+                    content = @Content(schema = @Schema(implementation = ResponseEntity.class)))
+    })
+    public ResponseEntity<AddBatchResponse> createAdds(InputStream body) throws IOException {
+        return ResponseEntity.ok(batchImport.importFrom(body));
+    }
+
     @GetMapping
     @Operation(summary = "Get all announcements with pagination",
-            description = "Retrieves a paginated list of announcements with optional filters for category, date, and keyword.")
+            description = "Retrieves a paginated list of announcement summaries (content shortened to a preview) " +
+                    "with optional filters for category, date, and keyword. " +
+                    "Passing 'cursor' (empty for the first page, then the returned nextCursor) switches to cursor " +
+                    "pagination, which skips the total count and stays fast on deep pages; 'page' is then ignored. " +
+                    "With the MongoDB change stream active, responses carry an ETag; sending it back in If-None-Match " +
+                    "returns 304 while nothing changed.")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Announcements retrieved successfully",
                     content = @Content(schema = @Schema(implementation = PagedResponse.class))),
-            @ApiResponse(responseCode = "400", description = "Bad request, e.g., invalid page, size, date format, or category",
+            @ApiResponse(responseCode = "304", description = "No announcement changed since the given ETag"),
+            @ApiResponse(responseCode = "400", description = "Bad request, e.g., invalid page, size, cursor, date format, or category",
                     content = @Content(schema = @Schema(implementation = ResponseEntity.class))),
             @ApiResponse(responseCode = "500", description = "Internal server error during retrieval",
                     content = @Content(schema = @Schema(implementation = ResponseEntity.class)))
     })
-    public ResponseEntity<PagedResponse<AddResponse>> getAllAnnouncements(
+    public ResponseEntity<?> getAllAnnouncements(
             @RequestParam(required = false) String category,
             @RequestParam(required = false) String dateAfter,
             @RequestParam(required = false) String keyword,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
-        PagedResponse<AddResponse> response = service.getAllAnnouncements(category, dateAfter, keyword, page, size);
-        return ResponseEntity.ok(response);
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String cursor,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        if (HotPageCache.covers(dateAfter, keyword, page, size, cursor) && HotPageCache.servesFormat(accept)) {
+            HotPageCache.Page hot = service.getFirstPage(category);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .eTag(hot.etag())
+                    .varyBy(HttpHeaders.ACCEPT)
+                    .body(hot.json());
+        }
+        String etag = etags.listing();
+        if (AddEtags.matches(ifNoneMatch, etag)) {
+            AddService.validateListing(category, dateAfter, keyword, page, size, cursor);
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).varyBy(HttpHeaders.ACCEPT).build();
+        }
+        PagedResponse<AddSummary> response = cursor != null
+                ? service.getAnnouncementsAfter(category, dateAfter, keyword, cursor, size)
+                : service.getAllAnnouncements(category, dateAfter, keyword, page, size);
+        return ResponseEntity.ok().eTag(etag).varyBy(HttpHeaders.ACCEPT).body(response);
     }
 
+    @GetMapping(path = "/live", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Follow announcement changes live",
+            description = "Server-Sent Events stream of changes to announcements, optionally of one category: "
+                    + "'created' and 'updated' carry the announcement, 'deleted' its id, and 'resync' asks the client "
+                    + "to reload its listing because changes may have been missed. Deletions whose category is not "
+                    + "known are sent to every subscriber. The stream ends after a while, or when the client falls "
+                    + "too far behind; EventSource clients reconnect on their own.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Stream of changes opened"),
+            @ApiResponse(responseCode = "400", description = "Bad request: invalid category",
+                    content = @Content(schema = @Schema(implementation = ResponseEntity.class))),
+            @ApiResponse(responseCode = "503", description = "Too many streams open; retry later",
+                    content = @Content(schema = @Schema(implementation = ResponseEntity.class)))
+    })
+    public SseEmitter followAnnouncements(@RequestParam(required = false) String category) {
+        SseEmitter emitter = new SseEmitter(liveFeed.timeout().toMillis());
+        AddLiveFeed.Subscription subscription = liveFeed.subscribe(category, new AddLiveFeed.Subscriber() {
+            @Override
+            public void send(List<AddLiveFeed.Event> events) throws IOException {
+                // One write and flush for everything queued.
+                Set<ResponseBodyEmitter.DataWithMediaType> frames = new LinkedHashSet<>();
+                for (AddLiveFeed.Event event : events) {
+                    frames.addAll((event.isHeartbeat()
+                            ? SseEmitter.event().comment("")
+                            : SseEmitter.event().name(event.name()).data(event.data())).build());
+                }
+                emitter.send(frames);
+            }
+
+            @Override
+            public void close() {
+                emitter.complete();
+            }
+        });
+        emitter.onCompletion(subscription::cancel);
+        emitter.onTimeout(subscription::cancel);
+        emitter.onError(e -> subscription.cancel());
+        return emitter;
+    }
+
+    @GetMapping("/export")
+    @Operation(summary = "Export all matching announcements",
+            description = "Streams every announcement matching the optional category, date and keyword filters, "
+                    + "newest first, as NDJSON (one announcement per line) or CSV with a header row. The response "
+                    + "is sent in chunks while it is read from the database, gzip-compressed when the client "
+                    + "accepts it. A response cut off without its final chunk means the export failed midway.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Export streamed"),
+            @ApiResponse(responseCode = "400", description = "Bad request, e.g., invalid format, date format, or category",
+                    content = @Content(schema = @Schema(implementation = ResponseEntity.class)))
+    })
+    public void exportAnnouncements(
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String dateAfter,
+            @RequestParam(required = false) String keyword,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletResponse response) throws IOException {
+        AddExport.Format exportFormat = AddExport.Format.of(format);
+        AddFilter filter = export.filter(category, dateAfter, keyword);
+        boolean gzip = AddExport.acceptsGzip(acceptEncoding);
+
+        response.setContentType(exportFormat.mediaType().toString());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename(exportFormat.fileName()).build().toString());
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        OutputStream body = response.getOutputStream();
+        if (gzip) {
+            try (GZIPOutputStream compressed = new GZIPOutputStream(body, EXPORT_BUFFER_SIZE)) {
+                export.write(filter, exportFormat, compressed);
+            }
+        } else {
+            export.write(filter, exportFormat, body);
+        }
+    }
 
     @GetMapping("/{id}")
     @Operation(summary = "Get an announcement by ID",
-            description = "Retrieves a single announcement based on its unique identifier.")
+            description = "Retrieves a single announcement based on its unique identifier. The ETag and "
+                    + "Last-Modified headers follow its version; If-None-Match or If-Modified-Since returns 304 "
+                    + "while it is unchanged.")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Announcement retrieved successfully",
                     content = @Content(schema = @Schema(implementation = AddResponse.class))),
+            @ApiResponse(responseCode = "304", description = "Announcement unchanged since the given validator"),
             @ApiResponse(responseCode = "404", description = "Announcement not found for the given ID",
                     content = @Content(schema = @Schema(implementation = ResponseEntity.class))),
             @ApiResponse(responseCode = "500", description = "Internal server error during retrieval",
@@ -74,13 +222,35 @@ public class AddController {
     })
     public ResponseEntity<AddResponse> getAdd(@PathVariable UUID id) {
         AddResponse add = service.getAddById(id);
-        return ResponseEntity.ok(add);
+        return ResponseEntity.ok()
+                .eTag(AddEtags.of(add))
+                .lastModified(AddEtags.lastModified(add))
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(add);
+    }
+
+
+    @PostMapping("/batch-get")
+    @Operation(summary = "Get several announcements by ID",
+            description = "Retrieves up to " + AddService.MAX_BATCH_GET_IDS + " announcements in one request, "
+                    + "instead of one request per ID. IDs without an announcement are listed as missing.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Announcements retrieved successfully",
+                    content = @Content(schema = @Schema(implementation = AddBatchGetResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Bad request: no IDs, too many IDs, or an invalid ID",
+                    content = @Content(schema = @Schema(implementation = ResponseEntity.class))),
+            @ApiResponse(responseCode = "500", description = "Internal server error during retrieval",
+                    content = @Content(schema = @Schema(implementation = ResponseEntity.class)))
+    })
+    public ResponseEntity<AddBatchGetResponse> getAdds(@Valid @RequestBody AddBatchGetRequest request) {
+        return ResponseEntity.ok(service.getAddsByIds(request.ids()));
     }
 
 
     @PutMapping("/{id}")
     @Operation(summary = "Edit an existing announcement",
-            description = "Updates an announcement if the provided edit code matches. Returns the updated announcement.")
+            description = "Updates an announcement if the provided edit code matches and, when given, the version is "
+                    + "still current. Returns the updated announcement.")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Announcement updated successfully",
                     content = @Content(schema = @Schema(implementation = AddResponse.class))),
@@ -90,19 +260,23 @@ public class AddController {
                     content = @Content(schema = @Schema(implementation = ResponseEntity.class))),
             @ApiResponse(responseCode = "404", description = "Announcement not found for the given ID",
                     content = @Content(schema = @Schema(implementation = ResponseEntity.class))),
-            @ApiResponse(responseCode = "500", description = "Internal server error during update or sending email",
+            @ApiResponse(responseCode = "409", description = "Conflict: the announcement no longer has the given version",
+                    content = @Content(schema = @Schema(implementation = ResponseEntity.class))),
+            @ApiResponse(responseCode = "500", description = "Internal server error during update",
                     content = @Content(schema = @Schema(implementation = ResponseEntity.class)))
     })
     public ResponseEntity<AddResponse> updateAdd(@PathVariable UUID id, @RequestParam UUID editCode,
+                                                 @RequestParam(required = false) Long version,
                                                  @Valid @RequestBody AddRequest updatedAdd) {
-        AddResponse add = service.updateAdd(id, editCode, updatedAdd);
+        AddResponse add = service.updateAdd(id, editCode, version, updatedAdd);
         return ResponseEntity.ok(add);
     }
 
 
     @DeleteMapping("/{id}")
     @Operation(summary = "Delete an announcement",
-            description = "Deletes an announcement if the provided edit code matches.")
+            description = "Deletes an announcement if the provided edit code matches and, when given, the version is "
+                    + "still current.")
     @ApiResponses({
             @ApiResponse(responseCode = "204", description = "Announcement deleted successfully"),
             @ApiResponse(responseCode = "400", description = "Bad request: invalid parameters",
@@ -111,11 +285,14 @@ public class AddController {
                     content = @Content(schema = @Schema(implementation = ResponseEntity.class))),
             @ApiResponse(responseCode = "404", description = "Announcement not found for the given ID",
                     content = @Content(schema = @Schema(implementation = ResponseEntity.class))),
+            @ApiResponse(responseCode = "409", description = "Conflict: the announcement no longer has the given version",
+                    content = @Content(schema = @Schema(implementation = ResponseEntity.class))),
             @ApiResponse(responseCode = "500", description = "Internal server error during deletion",
                     content = @Content(schema = @Schema(implementation = ResponseEntity.class)))
     })
-    public ResponseEntity<String> deleteAdd(@PathVariable UUID id, @RequestParam UUID editCode) {
-        service.deleteAdd(id, editCode);
+    public ResponseEntity<String> deleteAdd(@PathVariable UUID id, @RequestParam UUID editCode,
+                                            @RequestParam(required = false) Long version) {
+        service.deleteAdd(id, editCode, version);
         return ResponseEntity.status(204).body(String.format("Announcement with id %s deleted successfully", id.toString()));
     }
 }
\ No newline at end of file
@@ -0,0 +1,188 @@
+package com.prz.edu.pl.ogloszone.add;
+
+import com.prz.edu.pl.ogloszone.category.Category;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Number of stored announcements per category and day of {@code dateTime}, kept in memory so the counts can be
+ * served without querying Mongo. Only one counter per category and day is kept, nothing per announcement, so only
+ * changes that say where they count move the counters: a creation on this node adds one under its category and
+ * day, a deletion or expiry on this node removes one from them. Events from {@link AddChangeFeed} are ignored,
+ * which is what makes a change seen twice (locally and from the feed) harmless: feed deletions carry no document,
+ * and no event says where an edited announcement was counted before. Edits and changes made on other nodes show up
+ * at the next rebuild.
+ * <p>
+ * The counters are rebuilt with one {@code $group} aggregation on startup, every {@code reconcile-interval} and
+ * after every resync. A change made while the aggregation runs may be missing from its result until the next
+ * rebuild. How far the counters had drifted is reported as {@code ogloszone.add.counters.drift}.
+ */
+@Component
+public class AddCounters {
+
+    private static final Logger logger = LoggerFactory.getLogger(AddCounters.class);
+
+    private final AddRepository repository;
+    private final Clock clock;
+    private final Executor rebuildExecutor;
+    private final Counter drift;
+    private final Timer rebuildTimer;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    // Replaced as a whole by a rebuild; the counters themselves are updated in place.
+    private volatile Map<Key, AtomicLong> counters = new ConcurrentHashMap<>();
+    private volatile LocalDateTime reconciledAt;
+
+    @Autowired
+    public AddCounters(AddRepository repository, MeterRegistry meterRegistry) {
+        this(repository, meterRegistry, Clock.systemDefaultZone(),
+                Executors.newSingleThreadExecutor(Thread.ofPlatform().name("counters-rebuild").daemon().factory()));
+    }
+
+    AddCounters(AddRepository repository, MeterRegistry meterRegistry, Clock clock, Executor rebuildExecutor) {
+        this.repository = repository;
+        this.clock = clock;
+        this.rebuildExecutor = rebuildExecutor;
+        this.drift = Counter.builder("ogloszone.add.counters.drift")
+                .description("Announcements counted under the wrong category or day, found by a rebuild")
+                .register(meterRegistry);
+        this.rebuildTimer = Timer.builder("ogloszone.add.counters.rebuild")
+                .description("Time to rebuild the announcement counters from the database")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Current counts. Reads only the counters, at most one per category and day.
+     */
+    public AddCounts counts() {
+        Map<Category, Long> categories = new EnumMap<>(Category.class);
+        for (Category category : Category.values()) {
+            categories.put(category, 0L);
+        }
+        Map<LocalDate, Long> days = new TreeMap<>(Comparator.reverseOrder());
+        long total = 0;
+        for (Map.Entry<Key, AtomicLong> counter : counters.entrySet()) {
+            long count = counter.getValue().get();
+            if (count == 0) {
+                continue;
+            }
+            Key key = counter.getKey();
+            if (key.category() != null) {
+                categories.merge(key.category(), count, Long::sum);
+            }
+            if (key.day() != null) {
+                days.merge(key.day(), count, Long::sum);
+            }
+            total += count;
+        }
+        return new AddCounts(total, categories, new LinkedHashMap<>(days), reconciledAt);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        scheduleRebuild();
+    }
+
+    @Scheduled(initialDelayString = "${ogloszone.counters.reconcile-interval:PT10M}",
+            fixedDelayString = "${ogloszone.counters.reconcile-interval:PT10M}")
+    public void reconcile() {
+        scheduleRebuild();
+    }
+
+    @EventListener
+    public void onChange(AddChangeEvent event) {
+        if (event.type() == AddChangeEvent.Type.RESYNC) {
+            scheduleRebuild();
+            return;
+        }
+        if (event.origin() != AddChangeEvent.Origin.LOCAL || event.add() == null) {
+            return;
+        }
+        if (event.type() == AddChangeEvent.Type.CREATED) {
+            counter(counters, Key.of(event.add())).incrementAndGet();
+        } else if (event.type() == AddChangeEvent.Type.DELETED) {
+            counter(counters, Key.of(event.add())).decrementAndGet();
+        }
+    }
+
+    void scheduleRebuild() {
+        if (rebuilding.compareAndSet(false, true)) {
+            rebuildExecutor.execute(this::rebuild);
+        }
+    }
+
+    private void rebuild() {
+        try {
+            Map<Key, AtomicLong> rebuilt = new ConcurrentHashMap<>();
+            rebuildTimer.record(() -> repository.countByCategoryAndDay().forEach(count ->
+                    counter(rebuilt, new Key(count.category(), count.day())).addAndGet(count.count())));
+            // Before the first rebuild the counters hold only the changes since startup.
+            long drifted = reconciledAt != null ? difference(counters, rebuilt) : 0;
+            if (drifted > 0) {
+                logger.info("Announcement counters were off by {} announcements", drifted);
+                drift.increment(drifted);
+            }
+            counters = rebuilt;
+            reconciledAt = LocalDateTime.now(clock);
+        } catch (RuntimeException e) {
+            // Keep counting from the current counters; the next reconciliation tries again.
+            logger.warn("Could not rebuild announcement counters", e);
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    /**
+     * Number of announcements by which {@code other} differs from {@code counters}.
+     */
+    private static long difference(Map<Key, AtomicLong> counters, Map<Key, AtomicLong> other) {
+        Set<Key> keys = new HashSet<>(counters.keySet());
+        keys.addAll(other.keySet());
+        long difference = 0;
+        for (Key key : keys) {
+            difference += Math.abs(value(counters, key) - value(other, key));
+        }
+        // A misplaced announcement is missing under one key and extra under another.
+        return (difference + 1) / 2;
+    }
+
+    private static long value(Map<Key, AtomicLong> counters, Key key) {
+        AtomicLong counter = counters.get(key);
+        return counter != null ? counter.get() : 0;
+    }
+
+    private static AtomicLong counter(Map<Key, AtomicLong> counters, Key key) {
+        return counters.computeIfAbsent(key, k -> new AtomicLong());
+    }
+
+    private record Key(Category category, LocalDate day) {
+
+        static Key of(Add add) {
+            return new Key(add.category(), add.dateTime() != null ? add.dateTime().toLocalDate() : null);
+        }
+    }
+}
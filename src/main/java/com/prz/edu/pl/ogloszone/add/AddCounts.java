@@ -0,0 +1,24 @@
+package com.prz.edu.pl.ogloszone.add;
+
+import com.prz.edu.pl.ogloszone.category.Category;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+public record AddCounts(
+        @Schema(description = "Number of stored announcements", example = "1250")
+        long total,
+
+        @Schema(description = "Number of announcements per category, every category included")
+        Map<Category, Long> categories,
+
+        @Schema(description = "Number of announcements per day of their dateTime, newest day first; days without "
+                + "announcements are left out")
+        Map<LocalDate, Long> days,
+
+        @Schema(description = "When the counts were last rebuilt from the database; null before the first rebuild, "
+                + "when counts cover only changes seen since startup", example = "2025-10-18T18:06:00")
+        LocalDateTime reconciledAt) {
+}
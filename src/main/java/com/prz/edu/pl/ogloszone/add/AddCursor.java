@@ -0,0 +1,37 @@
+package com.prz.edu.pl.ogloszone.add;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Continuation token for keyset pagination: position of the last returned announcement in the
+ * {@code dateTime desc, _id desc} order. Clients treat the encoded form as opaque.
+ */
+public record AddCursor(LocalDateTime dateTime, String id) {
+
+    private static final char SEPARATOR = '|';
+
+    public static AddCursor of(AddSummary add) {
+        return new AddCursor(add.dateTime(), add.id());
+    }
+
+    public String encode() {
+        String raw = dateTime.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static AddCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            if (separator <= 0 || separator == raw.length() - 1) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new AddCursor(LocalDateTime.parse(raw.substring(0, separator)), raw.substring(separator + 1));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.prz.edu.pl.ogloszone.add;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Validators for conditional GETs. A single announcement is identified by its version and {@code dateTime},
+ * which every edit changes. A listing is identified by how many {@link AddChangeEvent}s this node has seen, so
+ * it can be revalidated without reading anything; the counter is prefixed with a random id of this process
+ * because counts from different nodes, or from before a restart, do not describe the same state. Only the change
+ * stream reports every write of every node, deletions and expiry included, so listings get no ETag unless it is
+ * active.
+ */
+@Component
+public class AddEtags {
+
+    private final String node = Long.toString(new SecureRandom().nextLong() & Long.MAX_VALUE, 36);
+    private final AtomicLong changes = new AtomicLong();
+    private final AddChangeFeed changeFeed;
+
+    public AddEtags(AddChangeFeed changeFeed) {
+        this.changeFeed = changeFeed;
+    }
+
+    /**
+     * ETag of any listing served from Mongo from now on, or {@code null} without the change stream. Taken before
+     * the query, so a change that lands during the query makes the next request fetch again.
+     */
+    public String listing() {
+        if (changeFeed.activeMode() != AddChangeFeed.Mode.CHANGE_STREAM) {
+            return null;
+        }
+        return "\"" + node + "-" + changes.get() + "\"";
+    }
+
+    /**
+     * Whether an {@code If-None-Match} header lists {@code etag} or {@code *}; never for a {@code null} ETag.
+     * Comparison is weak, as for any GET; the ETags issued here contain no commas.
+     */
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            String candidate = tag.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static String of(AddResponse add) {
+        long modified = add.dateTime() != null ? add.dateTime().toInstant(ZoneOffset.UTC).toEpochMilli() : 0;
+        return "\"" + add.version() + "-" + modified + "\"";
+    }
+
+    public static Instant lastModified(AddResponse add) {
+        return add.dateTime() != null ? add.dateTime().atZone(ZoneId.systemDefault()).toInstant() : Instant.EPOCH;
+    }
+
+    @EventListener
+    public void onChange(AddChangeEvent event) {
+        changes.incrementAndGet();
+    }
+}
@@ -0,0 +1,220 @@
+package com.prz.edu.pl.ogloszone.add;
+
+import com.prz.edu.pl.ogloszone.util.JobLock;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Deletes announcements older than {@link Add#LIFETIME}. This is the only expiry mechanism: it replaces both the
+ * TTL index and the nightly bulk delete. Every {@code interval} one node, holding the {@link JobLock}, deletes
+ * the oldest expired announcements in batches of {@code batch-size} along the {@code dateTime_id} index, pausing
+ * between batches and stopping after {@code max-batches}, so expiry never becomes one large write burst. Each
+ * announcement actually deleted is published as a deletion, so caches drop it right away. With bucketed storage
+ * ({@link AddBuckets}) the job instead drops every bucket whose whole time range is past the lifetime and
+ * publishes a resync. How far expiry is behind is reported as {@code ogloszone.expiry.lag}.
+ */
+@Component
+public class AddExpiry implements ApplicationRunner {
+
+    static final String JOB = "announcement-expiry";
+
+    private static final Logger logger = LoggerFactory.getLogger(AddExpiry.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final AddBuckets buckets;
+    private final JobLock lock;
+    private final ApplicationEventPublisher publisher;
+    private final int batchSize;
+    private final int maxBatches;
+    private final Duration batchPause;
+    private final Duration lockLease;
+
+    private final AtomicLong lagSeconds = new AtomicLong();
+    private final Counter expired;
+    private final Timer batchTimer;
+
+    public AddExpiry(MongoTemplate mongoTemplate,
+                     AddBuckets buckets,
+                     JobLock lock,
+                     ApplicationEventPublisher publisher,
+                     MeterRegistry meterRegistry,
+                     @Value("${ogloszone.expiry.batch-size:500}") int batchSize,
+                     @Value("${ogloszone.expiry.max-batches:20}") int maxBatches,
+                     @Value("${ogloszone.expiry.batch-pause:PT0.2S}") Duration batchPause,
+                     @Value("${ogloszone.expiry.lock-lease:PT5M}") Duration lockLease) {
+        this.mongoTemplate = mongoTemplate;
+        this.buckets = buckets;
+        this.lock = lock;
+        this.publisher = publisher;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+        this.batchPause = batchPause;
+        this.lockLease = lockLease;
+
+        TimeGauge.builder("ogloszone.expiry.lag", lagSeconds, TimeUnit.SECONDS, AtomicLong::get)
+                .description("How long the oldest announcement has been past its lifetime")
+                .register(meterRegistry);
+        this.expired = Counter.builder("ogloszone.expiry.deleted")
+                .description("Announcements deleted after their lifetime")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("ogloszone.expiry.batch")
+                .description("Time to delete one batch or bucket of expired announcements")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Drops the TTL index that used to expire announcements, so it does not delete them behind this job's back.
+     */
+    @Override
+    public void run(ApplicationArguments args) {
+        IndexOperations indexes = mongoTemplate.indexOps(Add.class);
+        for (IndexInfo index : indexes.getIndexInfo()) {
+            if (index.getExpireAfter().isPresent()) {
+                logger.info("Dropping TTL index {}; announcements are expired by {}", index.getName(), JOB);
+                indexes.dropIndex(index.getName());
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${ogloszone.expiry.interval:PT1M}")
+    public void expireAnnouncements() {
+        try {
+            if (lock.tryAcquire(JOB, lockLease)) {
+                try {
+                    if (buckets.isBucketed()) {
+                        dropBuckets();
+                    } else {
+                        expireBatches();
+                    }
+                } finally {
+                    lock.release(JOB);
+                }
+            }
+        } finally {
+            updateLag();
+        }
+    }
+
+    int expireBatches() {
+        LocalDateTime threshold = LocalDateTime.now().minus(Add.LIFETIME);
+        int total = 0;
+        for (int batch = 0; batch < maxBatches; batch++) {
+            if (batch > 0 && !pause()) {
+                break;
+            }
+            int deleted = batchTimer.record(() -> expireBatch(threshold));
+            total += deleted;
+            if (deleted < batchSize) {
+                break;
+            }
+        }
+        if (total > 0) {
+            logger.info("Expired {} announcements created before {}", total, threshold);
+        }
+        return total;
+    }
+
+    int dropBuckets() {
+        LocalDateTime threshold = LocalDateTime.now().minus(Add.LIFETIME);
+        int dropped = 0;
+        for (String bucket : buckets.existing()) {
+            if (buckets.end(bucket).isAfter(threshold)) {
+                break;
+            }
+            long count = batchTimer.record(() -> buckets.drop(bucket));
+            expired.increment(count);
+            dropped++;
+            logger.info("Dropped bucket {} with {} expired announcements", bucket, count);
+        }
+        if (dropped > 0) {
+            publisher.publishEvent(AddChangeEvent.resync(AddChangeEvent.Origin.LOCAL));
+        }
+        return dropped;
+    }
+
+    private int expireBatch(LocalDateTime threshold) {
+        Query oldest = Query.query(Criteria.where("dateTime").lt(threshold))
+                .with(Sort.by(Sort.Direction.ASC, "dateTime", "_id"))
+                .limit(batchSize);
+        oldest.fields().include("category", "dateTime");
+        List<Add> candidates = mongoTemplate.find(oldest, Add.class);
+        if (candidates.isEmpty()) {
+            return 0;
+        }
+        List<String> ids = candidates.stream().map(Add::id).toList();
+        // Re-check dateTime: an edit between the read and the delete renews the announcement.
+        long deleted = mongoTemplate.remove(
+                Query.query(Criteria.where("_id").in(ids).and("dateTime").lt(threshold)), Add.class).getDeletedCount();
+        expired.increment(deleted);
+        Set<String> renewed = deleted < candidates.size() ? remaining(ids) : Set.of();
+        candidates.stream()
+                .filter(add -> !renewed.contains(add.id()))
+                .forEach(add -> publisher.publishEvent(
+                        new AddChangeEvent(AddChangeEvent.Type.DELETED, add.id(), add, AddChangeEvent.Origin.LOCAL)));
+        return (int) deleted;
+    }
+
+    /**
+     * Which of {@code ids} are still stored, after a delete that skipped some of them.
+     */
+    private Set<String> remaining(List<String> ids) {
+        Query stored = Query.query(Criteria.where("_id").in(ids));
+        stored.fields().include("_id");
+        return mongoTemplate.find(stored, Add.class).stream().map(Add::id).collect(Collectors.toSet());
+    }
+
+    /**
+     * Waits between batches and renews the lock; {@code false} if the run should stop.
+     */
+    private boolean pause() {
+        try {
+            Thread.sleep(batchPause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return lock.tryAcquire(JOB, lockLease);
+    }
+
+    private void updateLag() {
+        if (buckets.isBucketed()) {
+            List<String> existing = buckets.existing();
+            Duration lag = existing.isEmpty()
+                    ? Duration.ZERO
+                    : Duration.between(buckets.end(existing.get(0)).plus(Add.LIFETIME), LocalDateTime.now());
+            lagSeconds.set(Math.max(0, lag.toSeconds()));
+            return;
+        }
+        Query oldest = new Query().with(Sort.by(Sort.Direction.ASC, "dateTime")).limit(1);
+        oldest.fields().include("dateTime");
+        Add add = mongoTemplate.findOne(oldest, Add.class);
+        Duration lag = add == null
+                ? Duration.ZERO
+                : Duration.between(add.dateTime().plus(Add.LIFETIME), LocalDateTime.now());
+        lagSeconds.set(Math.max(0, lag.toSeconds()));
+    }
+}
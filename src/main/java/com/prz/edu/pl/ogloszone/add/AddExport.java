@@ -0,0 +1,211 @@
+package com.prz.edu.pl.ogloszone.add;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Writes every announcement matching the listing filters as NDJSON or CSV, one {@link AddResponse} per line,
+ * straight from the Mongo cursor of {@link AddRepositoryCustom#streamAll}. Only one cursor batch
+ * ({@code batch-size} documents) and the output buffer are held at a time, and the next batch is fetched only
+ * after the previous one has been written, so a slow client slows the cursor down instead of filling memory.
+ */
+@Component
+public class AddExport {
+
+    public enum Format {
+        NDJSON(MediaType.APPLICATION_NDJSON, "ndjson"),
+        CSV(new MediaType("text", "csv", StandardCharsets.UTF_8), "csv");
+
+        private final MediaType mediaType;
+        private final String extension;
+
+        Format(MediaType mediaType, String extension) {
+            this.mediaType = mediaType;
+            this.extension = extension;
+        }
+
+        public MediaType mediaType() {
+            return mediaType;
+        }
+
+        public String fileName() {
+            return "announcements." + extension;
+        }
+
+        public static Format of(String format) {
+            try {
+                return valueOf(format.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid export format: " + format + ". Use ndjson or csv");
+            }
+        }
+    }
+
+    static final String CSV_HEADER = "id,title,content,category,phone,email,dateTime,version";
+
+    private static final Logger logger = LoggerFactory.getLogger(AddExport.class);
+
+    private final AddRepository repository;
+    private final ObjectWriter writer;
+    private final ListingMetrics listingMetrics;
+    private final int batchSize;
+
+    /**
+     * Whether an {@code Accept-Encoding} header allows gzip: {@code gzip} (or {@code x-gzip}) is listed with a
+     * non-zero {@code q}, or it is not listed and {@code *} is. {@code q=0} means "not acceptable".
+     */
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Boolean wildcard = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim().toLowerCase(Locale.ROOT);
+            boolean acceptable = quality(parts) > 0;
+            if (name.equals("gzip") || name.equals("x-gzip")) {
+                return acceptable;
+            }
+            if (name.equals("*")) {
+                wildcard = acceptable;
+            }
+        }
+        return Boolean.TRUE.equals(wildcard);
+    }
+
+    private static double quality(String[] parameters) {
+        for (int i = 1; i < parameters.length; i++) {
+            String parameter = parameters[i].trim();
+            if (parameter.length() > 2 && parameter.substring(0, 2).equalsIgnoreCase("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    public AddExport(AddRepository repository,
+                     ObjectMapper objectMapper,
+                     ListingMetrics listingMetrics,
+                     @Value("${ogloszone.export.batch-size:500}") int batchSize) {
+        this.repository = repository;
+        // Flushing is left to the output buffer, so the response goes out in full chunks, not one per line.
+        this.writer = objectMapper.writerFor(AddResponse.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.listingMetrics = listingMetrics;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Parses the listing filters. Called before anything is written, so invalid parameters still get a
+     * regular error response.
+     */
+    public AddFilter filter(String category, String date, String keyword) {
+        return AddService.toFilter(category, AddService.parseDate(date), keyword);
+    }
+
+    /**
+     * Writes the matching announcements to {@code out} and returns how many there were. Does not close
+     * {@code out}.
+     */
+    public long write(AddFilter filter, Format format, OutputStream out) throws IOException {
+        logger.info("Exporting announcements as {} with filter {}", format, filter);
+        long exported;
+        try {
+            exported = listingMetrics.record(filter, "export", "mongo", () -> {
+                try (Stream<Add> adds = repository.streamAll(filter, batchSize)) {
+                    return format == Format.CSV ? writeCsv(adds, out) : writeNdjson(adds, out);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        logger.info("Exported {} announcements as {}", exported, format);
+        return exported;
+    }
+
+    private long writeNdjson(Stream<Add> adds, OutputStream out) throws IOException {
+        AtomicLong count = new AtomicLong();
+        try (JsonGenerator generator = writer.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            adds.forEach(add -> {
+                try {
+                    writer.writeValue(generator, new AddResponse(add));
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                count.incrementAndGet();
+            });
+        }
+        return count.get();
+    }
+
+    private long writeCsv(Stream<Add> adds, OutputStream out) throws IOException {
+        AtomicLong count = new AtomicLong();
+        Writer csv = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        csv.write(CSV_HEADER);
+        csv.write("\r\n");
+        adds.forEach(add -> {
+            try {
+                csv.write(csvLine(add));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            count.incrementAndGet();
+        });
+        csv.flush();
+        return count.get();
+    }
+
+    static String csvLine(Add add) {
+        String phone = add.contact() != null ? add.contact().phone() : null;
+        String email = add.contact() != null ? add.contact().email() : null;
+        String dateTime = add.dateTime() != null ? DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(add.dateTime()) : null;
+        return String.join(",",
+                csvField(add.id()),
+                csvField(add.title()),
+                csvField(add.content()),
+                csvField(add.category() != null ? add.category().name() : null),
+                csvField(phone),
+                csvField(email),
+                csvField(dateTime),
+                csvField(add.version() != null ? add.version().toString() : null)) + "\r\n";
+    }
+
+    /**
+     * RFC 4180 field: quoted when it contains a separator, a quote or a line break, with quotes doubled.
+     */
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
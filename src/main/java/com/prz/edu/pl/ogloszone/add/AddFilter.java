@@ -0,0 +1,27 @@
+package com.prz.edu.pl.ogloszone.add;
+
+import com.prz.edu.pl.ogloszone.category.Category;
+
+import java.time.LocalDateTime;
+
+/**
+ * Optional listing filters; a {@code null} component means the filter is not applied.
+ */
+public record AddFilter(Category category, LocalDateTime dateAfter, String keyword) {
+
+    public boolean hasCategory() {
+        return category != null;
+    }
+
+    public boolean hasDateAfter() {
+        return dateAfter != null;
+    }
+
+    public boolean hasKeyword() {
+        return keyword != null && !keyword.isEmpty();
+    }
+
+    public boolean isEmpty() {
+        return !hasCategory() && !hasDateAfter() && !hasKeyword();
+    }
+}
@@ -0,0 +1,235 @@
+package com.prz.edu.pl.ogloszone.add;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Stream;
+
+/**
+ * Bloom filter of the ids of stored announcements, so lookups of ids that never existed or are long gone
+ * (crawlers, stale links) are answered without querying Mongo. {@link #mightContain} never says no for a stored
+ * announcement: the filter is filled from all stored ids on startup and every {@link AddChangeEvent.Type#CREATED}
+ * adds its id, and until the first fill completes every id is reported as possibly present. Ids created on other
+ * nodes are added when the change stream of {@link AddChangeFeed} delivers them. Polling cannot be relied on for
+ * that, since it only sees recent {@code dateTime}s, so unless the change stream is active every id is reported as
+ * possibly present as well.
+ * <p>
+ * Removed ids stay in the filter and only cost a Mongo lookup. The filter is rebuilt in the background once the
+ * removals or the additions since the last fill exceed its headroom, and after every resync.
+ */
+@Component
+public class AddIdFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AddIdFilter.class);
+
+    // Capacity for this many times the stored announcements, so growth does not trigger a rebuild right away.
+    private static final int HEADROOM = 2;
+    private static final long MIN_CAPACITY = 10_000;
+    private static final int BATCH_SIZE = 5_000;
+
+    private final AddRepository repository;
+    private final AddChangeFeed changeFeed;
+    private final boolean enabled;
+    private final double falsePositiveRate;
+    private final Executor rebuildExecutor;
+    private final Counter rejected;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private final AtomicLong removed = new AtomicLong();
+
+    private volatile Bits current;
+    // Receives ids created while a rebuild is reading the collection.
+    private volatile Bits next;
+
+    @Autowired
+    public AddIdFilter(AddRepository repository, AddChangeFeed changeFeed, MeterRegistry meterRegistry,
+                       @Value("${ogloszone.id-filter.enabled:true}") boolean enabled,
+                       @Value("${ogloszone.id-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this(repository, changeFeed, meterRegistry, enabled, falsePositiveRate,
+                Executors.newSingleThreadExecutor(Thread.ofPlatform().name("id-filter-rebuild").daemon().factory()));
+    }
+
+    AddIdFilter(AddRepository repository, AddChangeFeed changeFeed, MeterRegistry meterRegistry, boolean enabled,
+                double falsePositiveRate, Executor rebuildExecutor) {
+        this.repository = repository;
+        this.changeFeed = changeFeed;
+        this.enabled = enabled;
+        this.falsePositiveRate = falsePositiveRate;
+        this.rebuildExecutor = rebuildExecutor;
+        this.rejected = Counter.builder("ogloszone.add.id-filter.rejected")
+                .description("Lookups of announcement ids answered as not found without a database query")
+                .register(meterRegistry);
+        Gauge.builder("ogloszone.add.id-filter.ids", this, filter -> {
+                    Bits bits = filter.current;
+                    return bits == null ? 0 : bits.added.get();
+                })
+                .description("Ids added to the announcement id filter since it was last built")
+                .register(meterRegistry);
+    }
+
+    /**
+     * {@code false} only if no announcement with this id is stored.
+     */
+    public boolean mightContain(UUID id) {
+        Bits bits = current;
+        if (bits == null || changeFeed.activeMode() != AddChangeFeed.Mode.CHANGE_STREAM || bits.mightContain(id)) {
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        scheduleRebuild();
+    }
+
+    @EventListener
+    public void onChange(AddChangeEvent event) {
+        if (event.type() == AddChangeEvent.Type.CREATED) {
+            add(event.id());
+        } else if (event.type() == AddChangeEvent.Type.DELETED) {
+            removed.incrementAndGet();
+        } else if (event.type() == AddChangeEvent.Type.RESYNC) {
+            scheduleRebuild();
+        }
+        Bits bits = current;
+        if (bits != null && (bits.added.get() > bits.capacity || removed.get() > bits.capacity / HEADROOM)) {
+            scheduleRebuild();
+        }
+    }
+
+    void scheduleRebuild() {
+        if (enabled && rebuilding.compareAndSet(false, true)) {
+            rebuildExecutor.execute(this::rebuild);
+        }
+    }
+
+    private void rebuild() {
+        try {
+            long start = System.nanoTime();
+            Bits bits = new Bits(Math.max(MIN_CAPACITY, repository.estimatedCount() * HEADROOM), falsePositiveRate);
+            // Set before reading, so an id created meanwhile is either read or added by onChange.
+            next = bits;
+            removed.set(0);
+            try (Stream<String> ids = repository.streamIds(BATCH_SIZE)) {
+                ids.map(AddIdFilter::parse).filter(Objects::nonNull).forEach(bits::put);
+            }
+            current = bits;
+            logger.info("Built announcement id filter with {} ids in {} ms", bits.added.get(),
+                    (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            // Keep answering from the previous filter, or "maybe" for every id if there is none.
+            logger.warn("Could not build announcement id filter", e);
+        } finally {
+            next = null;
+            rebuilding.set(false);
+        }
+    }
+
+    private void add(String id) {
+        UUID uuid = parse(id);
+        if (uuid == null) {
+            return;
+        }
+        // The reverse of the order rebuild() publishes in (current, then next cleared): an id that misses next
+        // because the rebuild has just finished finds the rebuilt filter in current.
+        Bits pending = next;
+        if (pending != null) {
+            pending.put(uuid);
+        }
+        Bits bits = current;
+        if (bits != null) {
+            bits.put(uuid);
+        }
+    }
+
+    private static UUID parse(String id) {
+        try {
+            return id != null ? UUID.fromString(id) : null;
+        } catch (IllegalArgumentException e) {
+            // Not reachable through the id endpoints.
+            return null;
+        }
+    }
+
+    /**
+     * The bit array, sized for {@code capacity} ids at the requested false positive rate. UUIDs are random
+     * already, so the two base hashes are taken from their halves and combined into the probe positions.
+     */
+    static final class Bits {
+
+        private final AtomicLongArray words;
+        private final long size;
+        private final int hashes;
+        private final long capacity;
+        private final AtomicLong added = new AtomicLong();
+
+        Bits(long capacity, double falsePositiveRate) {
+            long bits = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            this.words = new AtomicLongArray(Math.toIntExact((bits + 63) / 64));
+            this.size = words.length() * 64L;
+            this.hashes = Math.max(1, (int) Math.round((double) size / capacity * Math.log(2)));
+            this.capacity = capacity;
+        }
+
+        /**
+         * Adds the id; an id that is already present (local and feed events both announce a creation) is not
+         * counted again.
+         */
+        void put(UUID id) {
+            long h1 = mix(id.getMostSignificantBits());
+            long h2 = mix(id.getLeastSignificantBits());
+            boolean changed = false;
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(h1 + i * h2, size);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long value = words.get(word);
+                while ((value & mask) == 0) {
+                    if (words.compareAndSet(word, value, value | mask)) {
+                        changed = true;
+                        break;
+                    }
+                    value = words.get(word);
+                }
+            }
+            if (changed) {
+                added.incrementAndGet();
+            }
+        }
+
+        boolean mightContain(UUID id) {
+            long h1 = mix(id.getMostSignificantBits());
+            long h2 = mix(id.getLeastSignificantBits());
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(h1 + i * h2, size);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // Spreads the fixed version and variant bits of random UUIDs (SplitMix64 finalizer).
+        private static long mix(long z) {
+            z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+            z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+            return z ^ (z >>> 31);
+        }
+    }
+}
@@ -0,0 +1,461 @@
+package com.prz.edu.pl.ogloszone.add;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.prz.edu.pl.ogloszone.category.Category;
+import com.prz.edu.pl.ogloszone.exception.LiveFeedFullException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Pushes announcement changes to live subscribers, the Server-Sent Events streams of both controllers. Every change
+ * is serialized once, on a single dispatcher thread, and offered to the bounded queue of each subscriber of its
+ * category. A subscriber whose queue is full is disconnected instead of holding back the others; EventSource
+ * clients reconnect on their own. Queues are written out by a small pool of delivery threads, one subscriber at a
+ * time, so an idle subscriber costs its connection and an empty queue, but no thread. The pool uses platform
+ * threads: {@code SseEmitter} writes while holding its monitor, which would pin a virtual thread for as long as a
+ * slow client keeps the socket full. A write still blocked after {@code write-timeout} disconnects its subscriber
+ * and the pool gets a thread in place of the stuck one until the write returns, at most {@code max-stalled-threads}
+ * at a time, so stalled clients do not hold back the others and cannot grow the pool without limit either; a
+ * subscriber is closed right away unless a write to it is in progress, in which case it is closed as soon as that
+ * write returns. Nothing can end a write blocked in {@code SseEmitter} from another thread (completing the emitter
+ * waits for its monitor, and Tomcat does not wake a blocked write when the request or socket is closed), so it
+ * is Tomcat's socket write timeout, {@code server.tomcat.connection-timeout}, that makes the write fail and the
+ * connection close. Past {@code max-subscribers} new subscriptions are refused, so open streams cannot take every
+ * connection the server accepts.
+ * <p>
+ * With the change stream active, its events cover the writes of every node, so only those are forwarded.
+ * Otherwise only this node's own writes are: polling reports creations as updates, misses deletions and would
+ * repeat the local writes.
+ */
+@Component
+public class AddLiveFeed {
+
+    private static final Logger logger = LoggerFactory.getLogger(AddLiveFeed.class);
+
+    /**
+     * One server-sent event; {@code name} and {@code data} are {@code null} for a heartbeat, sent as a comment.
+     */
+    public record Event(String name, String data) {
+
+        static final Event HEARTBEAT = new Event(null, null);
+
+        public boolean isHeartbeat() {
+            return name == null;
+        }
+    }
+
+    /**
+     * Stack-specific end of a subscription; called from one delivery thread at a time.
+     */
+    public interface Subscriber {
+
+        /**
+         * Writes the events queued since the last call to the client, in one write if the stack allows, possibly
+         * blocking until the connection accepts them.
+         */
+        void send(List<Event> events) throws IOException;
+
+        /**
+         * Ends the stream because the client fell behind or the application is shutting down.
+         */
+        void close();
+    }
+
+    private final AddChangeFeed changeFeed;
+    private final ObjectMapper objectMapper;
+    private final int bufferSize;
+    private final int maxSubscribers;
+    private final Duration timeout;
+    private final Duration writeTimeout;
+    private final int maxStalledThreads;
+    private final Executor dispatcher;
+    private final Executor delivery;
+    private final Clock clock;
+    private final Set<Subscription> everyCategory = ConcurrentHashMap.newKeySet();
+    private final Map<Category, Set<Subscription>> byCategory = new EnumMap<>(Category.class);
+    private final AtomicInteger subscribed = new AtomicInteger();
+    private final Set<Subscription> writing = ConcurrentHashMap.newKeySet();
+    // Delivery threads added in place of ones stuck in stalled writes.
+    private final AtomicInteger stalledThreads = new AtomicInteger();
+    private final Counter events;
+    private final Counter disconnected;
+    private final Counter rejected;
+
+    @Autowired
+    public AddLiveFeed(AddChangeFeed changeFeed, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                       @Value("${ogloszone.live.buffer-size:64}") int bufferSize,
+                       @Value("${ogloszone.live.max-subscribers:2000}") int maxSubscribers,
+                       @Value("${ogloszone.live.timeout:PT30M}") Duration timeout,
+                       @Value("${ogloszone.live.write-timeout:PT10S}") Duration writeTimeout,
+                       @Value("${ogloszone.live.delivery-threads:8}") int deliveryThreads,
+                       @Value("${ogloszone.live.max-stalled-threads:8}") int maxStalledThreads) {
+        this(changeFeed, objectMapper, meterRegistry, bufferSize, maxSubscribers, timeout, writeTimeout,
+                maxStalledThreads,
+                Executors.newSingleThreadExecutor(Thread.ofPlatform().name("live-feed-dispatch").daemon().factory()),
+                Executors.newFixedThreadPool(deliveryThreads,
+                        Thread.ofPlatform().name("live-feed-delivery-", 0).daemon().factory()),
+                Clock.systemUTC());
+    }
+
+    AddLiveFeed(AddChangeFeed changeFeed, ObjectMapper objectMapper, MeterRegistry meterRegistry, int bufferSize,
+                int maxSubscribers, Duration timeout, Duration writeTimeout, int maxStalledThreads, Executor dispatcher,
+                Executor delivery, Clock clock) {
+        this.changeFeed = changeFeed;
+        this.objectMapper = objectMapper;
+        this.bufferSize = bufferSize;
+        this.maxSubscribers = maxSubscribers;
+        this.timeout = timeout;
+        this.writeTimeout = writeTimeout;
+        this.maxStalledThreads = maxStalledThreads;
+        this.dispatcher = dispatcher;
+        this.delivery = delivery;
+        this.clock = clock;
+        for (Category category : Category.values()) {
+            byCategory.put(category, ConcurrentHashMap.newKeySet());
+        }
+        this.events = Counter.builder("ogloszone.add.live.events")
+                .description("Announcement changes pushed to live subscribers")
+                .register(meterRegistry);
+        this.disconnected = Counter.builder("ogloszone.add.live.disconnected")
+                .description("Live subscribers disconnected for falling too far behind or a stalled write")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("ogloszone.add.live.rejected")
+                .description("Live subscriptions refused because max-subscribers were open")
+                .register(meterRegistry);
+        Gauge.builder("ogloszone.add.live.subscribers", this, AddLiveFeed::subscribers)
+                .description("Open live subscriptions")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Subscribes to changes of announcements in {@code category}, or of all of them when it is blank. Deletions
+     * reported by the change stream carry no category and go to every subscriber.
+     *
+     * @throws LiveFeedFullException if {@code max-subscribers} subscriptions are open
+     */
+    public Subscription subscribe(String category, Subscriber subscriber) {
+        Category parsed = AddService.categoryOrAll(category);
+        if (subscribed.incrementAndGet() > maxSubscribers) {
+            subscribed.decrementAndGet();
+            throw full();
+        }
+        Subscription subscription = new Subscription(parsed, subscriber);
+        subscribers(parsed).add(subscription);
+        return subscription;
+    }
+
+    /**
+     * Fails like {@link #subscribe} would if no subscription can be opened now, for stacks that subscribe only
+     * once the response has started.
+     *
+     * @throws LiveFeedFullException if {@code max-subscribers} subscriptions are open
+     */
+    public void checkCapacity() {
+        if (subscribed.get() >= maxSubscribers) {
+            throw full();
+        }
+    }
+
+    /**
+     * How long a stream stays open before it is completed and the client reconnects, so connections of clients
+     * that vanished without closing them do not pile up.
+     */
+    public Duration timeout() {
+        return timeout;
+    }
+
+    /**
+     * Events a subscriber may fall behind by before it is disconnected.
+     */
+    public int bufferSize() {
+        return bufferSize;
+    }
+
+    @EventListener
+    public void onChange(AddChangeEvent event) {
+        AddChangeEvent.Origin forwarded = changeFeed.activeMode() == AddChangeFeed.Mode.CHANGE_STREAM
+                ? AddChangeEvent.Origin.FEED
+                : AddChangeEvent.Origin.LOCAL;
+        if (event.origin() == forwarded && subscribers() > 0) {
+            dispatcher.execute(() -> publish(event));
+        }
+    }
+
+    /**
+     * Keeps idle streams from being closed by proxies and finds connections that are gone.
+     */
+    @Scheduled(initialDelayString = "${ogloszone.live.heartbeat:PT30S}",
+            fixedDelayString = "${ogloszone.live.heartbeat:PT30S}")
+    public void heartbeat() {
+        dispatcher.execute(() -> forEach(null, true, Subscription::heartbeat));
+    }
+
+    /**
+     * Disconnects subscribers whose write has been blocked for longer than {@code write-timeout}, typically
+     * clients that stopped reading, and replaces the delivery thread stuck in it while fewer than
+     * {@code max-stalled-threads} are replaced.
+     */
+    @Scheduled(fixedDelayString = "${ogloszone.live.stall-check:PT1S}")
+    public void disconnectStalled() {
+        long now = clock.millis();
+        writing.forEach(subscription -> subscription.checkStalled(now));
+    }
+
+    @PreDestroy
+    public void closeAll() {
+        forEach(null, true, Subscription::disconnect);
+    }
+
+    int subscribers() {
+        return subscribed.get();
+    }
+
+    /**
+     * Counts a subscriber disconnected by its own stack for falling behind.
+     */
+    void recordDisconnected() {
+        disconnected.increment();
+    }
+
+    private void publish(AddChangeEvent change) {
+        Event event;
+        try {
+            event = toEvent(change);
+        } catch (JsonProcessingException e) {
+            logger.warn("Could not serialize change of announcement {} for live subscribers", change.id(), e);
+            return;
+        }
+        Category category = change.add() != null ? change.add().category() : null;
+        forEach(category, change.type() == AddChangeEvent.Type.RESYNC || category == null,
+                subscription -> subscription.offer(event));
+        events.increment();
+    }
+
+    /**
+     * Adds a delivery thread in place of one stuck in a stalled write, unless {@code max-stalled-threads} are
+     * already; {@code false} if none was added.
+     */
+    private boolean addStalledThread() {
+        if (stalledThreads.incrementAndGet() > maxStalledThreads) {
+            stalledThreads.decrementAndGet();
+            return false;
+        }
+        resizeDelivery(1);
+        return true;
+    }
+
+    private void removeStalledThread() {
+        stalledThreads.decrementAndGet();
+        resizeDelivery(-1);
+    }
+
+    /**
+     * Adds delivery threads in place of ones stuck in stalled writes, or removes them once those writes return.
+     */
+    private void resizeDelivery(int delta) {
+        // Test executors run deliveries inline or on demand and have no threads to replace.
+        if (delivery instanceof ThreadPoolExecutor pool) {
+            synchronized (pool) {
+                if (delta > 0) {
+                    pool.setMaximumPoolSize(pool.getMaximumPoolSize() + delta);
+                    pool.setCorePoolSize(pool.getCorePoolSize() + delta);
+                } else {
+                    pool.setCorePoolSize(pool.getCorePoolSize() + delta);
+                    pool.setMaximumPoolSize(pool.getMaximumPoolSize() + delta);
+                }
+            }
+        }
+    }
+
+    private LiveFeedFullException full() {
+        rejected.increment();
+        logger.debug("Refusing a live subscriber, {} are open", maxSubscribers);
+        return new LiveFeedFullException("Too many live subscribers, try again later");
+    }
+
+    private Event toEvent(AddChangeEvent change) throws JsonProcessingException {
+        return switch (change.type()) {
+            case CREATED, UPDATED -> new Event(change.type().name().toLowerCase(),
+                    objectMapper.writeValueAsString(new AddResponse(change.add())));
+            case DELETED -> new Event("deleted", objectMapper.writeValueAsString(Map.of("id", change.id())));
+            // EventSource drops events without data.
+            case RESYNC -> new Event("resync", "{}");
+        };
+    }
+
+    private void forEach(Category category, boolean everyone, Consumer<Subscription> action) {
+        everyCategory.forEach(action);
+        if (everyone) {
+            byCategory.values().forEach(subscriptions -> subscriptions.forEach(action));
+        } else if (category != null) {
+            byCategory.get(category).forEach(action);
+        }
+    }
+
+    private Set<Subscription> subscribers(Category category) {
+        return category != null ? byCategory.get(category) : everyCategory;
+    }
+
+    public final class Subscription {
+
+        private final Category category;
+        private final Subscriber subscriber;
+        private final BlockingQueue<Event> queue;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closePending = new AtomicBoolean();
+        private volatile boolean open = true;
+        // Guarded by this: when the write in progress started, 0 if none, whether it was declared stalled, and
+        // whether a delivery thread was added in place of the one stuck in it.
+        private long writingSince;
+        private boolean stalled;
+        private boolean replaced;
+
+        private Subscription(Category category, Subscriber subscriber) {
+            this.category = category;
+            this.subscriber = subscriber;
+            this.queue = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        /**
+         * Stops delivering, after the client disconnected or the stream ended.
+         */
+        public void cancel() {
+            open = false;
+            if (subscribers(category).remove(this)) {
+                subscribed.decrementAndGet();
+            }
+            queue.clear();
+        }
+
+        private void offer(Event event) {
+            if (!open) {
+                return;
+            }
+            if (queue.offer(event)) {
+                schedule();
+            } else {
+                logger.debug("Disconnecting a live subscriber {} events behind", bufferSize);
+                disconnected.increment();
+                disconnect();
+            }
+        }
+
+        private void heartbeat() {
+            // Anything already queued shows the connection is alive just as well.
+            if (queue.isEmpty()) {
+                offer(Event.HEARTBEAT);
+            }
+        }
+
+        private void disconnect() {
+            cancel();
+            closePending.set(true);
+            // Close on this thread unless a drain is scheduled or writing; that one closes once it is done.
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    if (closePending.getAndSet(false)) {
+                        subscriber.close();
+                    }
+                } catch (RuntimeException e) {
+                    logger.debug("Live subscriber went away", e);
+                } finally {
+                    draining.set(false);
+                }
+            }
+        }
+
+        private void schedule() {
+            if (draining.compareAndSet(false, true)) {
+                delivery.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                List<Event> events = new ArrayList<>();
+                while (open && queue.drainTo(events) > 0) {
+                    write(events);
+                    events.clear();
+                }
+                if (closePending.getAndSet(false)) {
+                    subscriber.close();
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.debug("Live subscriber went away", e);
+                cancel();
+            } finally {
+                draining.set(false);
+            }
+            // An offer or disconnect may have found the drain still running and left the work to it.
+            if ((open && !queue.isEmpty()) || closePending.get()) {
+                schedule();
+            }
+        }
+
+        private void write(List<Event> events) throws IOException {
+            synchronized (this) {
+                writingSince = clock.millis();
+            }
+            writing.add(this);
+            try {
+                subscriber.send(events);
+            } finally {
+                writing.remove(this);
+                synchronized (this) {
+                    writingSince = 0;
+                    stalled = false;
+                    if (replaced) {
+                        replaced = false;
+                        removeStalledThread();
+                    }
+                }
+            }
+        }
+
+        private synchronized void checkStalled(long now) {
+            if (writingSince == 0 || stalled || now - writingSince < writeTimeout.toMillis()) {
+                return;
+            }
+            logger.debug("Disconnecting a live subscriber whose write is blocked for over {}", writeTimeout);
+            stalled = true;
+            if (open) {
+                disconnected.increment();
+            }
+            // The drain stuck in the write closes the subscriber once the write returns.
+            disconnect();
+            replaced = addStalledThread();
+            if (!replaced) {
+                logger.warn("{} delivery threads are stuck in stalled live writes, not adding more",
+                        maxStalledThreads);
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.prz.edu.pl.ogloszone.add;
+
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.BasicQuery;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds every announcement query from {@link AddFilter}, for both the blocking and the reactive repository.
+ * Each filter combination is served by an index declared on {@link Add}:
+ * <ul>
+ *     <li>no filter, dateAfter: {@code dateTime_id}</li>
+ *     <li>category, category + dateAfter: {@code category_dateTime_id}</li>
+ *     <li>any combination with a keyword: the text index</li>
+ * </ul>
+ */
+final class AddQueries {
+
+    static final Sort NEWEST_FIRST = Sort.by(Sort.Direction.DESC, "dateTime").and(Sort.by(Sort.Direction.DESC, "_id"));
+
+    private static final Document TEXT_SCORE = new Document("$meta", "textScore");
+
+    private AddQueries() {
+    }
+
+    static BasicQuery pageQuery(AddFilter filter) {
+        if (filter.hasKeyword()) {
+            BasicQuery query = summaryQuery(filter, new Document("score", TEXT_SCORE));
+            query.setSortObject(new Document("score", TEXT_SCORE).append("dateTime", -1).append("_id", -1));
+            return query;
+        }
+        BasicQuery query = summaryQuery(filter, new Document());
+        query.with(NEWEST_FIRST);
+        return query;
+    }
+
+    static BasicQuery sliceQuery(AddFilter filter, AddCursor cursor) {
+        BasicQuery query = summaryQuery(filter, new Document());
+        if (cursor != null) {
+            query.addCriteria(new Criteria().orOperator(
+                    Criteria.where("dateTime").lt(cursor.dateTime()),
+                    Criteria.where("dateTime").is(cursor.dateTime()).and("_id").lt(cursor.id())));
+        }
+        query.with(NEWEST_FIRST);
+        return query;
+    }
+
+    static BasicQuery countQuery(AddFilter filter) {
+        return new BasicQuery(summaryQuery(filter, new Document()).getQueryObject());
+    }
+
+    /**
+     * Whole announcements without the edit code and the search field, newest first also with a keyword, so an
+     * export can be read in one pass. The sort of a text match is not backed by an index and may spill to disk.
+     */
+    static BasicQuery exportQuery(AddFilter filter, int batchSize) {
+        BasicQuery query = filterQuery(filter, new Document("editCode", 0).append("search", 0));
+        query.with(NEWEST_FIRST);
+        query.cursorBatchSize(batchSize);
+        if (filter.hasKeyword()) {
+            query.allowDiskUse(true);
+        }
+        return query;
+    }
+
+    /**
+     * Matches the announcement only with the right edit code and, when given, the expected version.
+     */
+    static Query guard(String id, String editCode, Long expectedVersion) {
+        Criteria criteria = Criteria.where("_id").is(id).and("editCode").is(editCode);
+        if (expectedVersion != null) {
+            criteria.and("version").is(expectedVersion);
+        }
+        return Query.query(criteria);
+    }
+
+    /**
+     * Sets the editable fields of {@code changes} and bumps the version.
+     */
+    static Update edit(Add changes) {
+        return new Update()
+                .set("title", changes.title())
+                .set("content", changes.content())
+                .set("category", changes.category())
+                .set("contact", changes.contact())
+                .set("dateTime", changes.dateTime())
+                .set("search", changes.search())
+                .inc("version", 1);
+    }
+
+    private static BasicQuery summaryQuery(AddFilter filter, Document extraFields) {
+        Document fields = Document.parse(AddSummary.FIELDS);
+        fields.putAll(extraFields);
+        return filterQuery(filter, fields);
+    }
+
+    private static BasicQuery filterQuery(AddFilter filter, Document fields) {
+        BasicQuery query = new BasicQuery(new Document(), fields);
+        if (filter.hasKeyword()) {
+            query.addCriteria(TextCriteria.forLanguage("none").matching(filter.keyword()));
+        }
+        List<Criteria> criteria = new ArrayList<>();
+        if (filter.hasCategory()) {
+            criteria.add(Criteria.where("category").is(filter.category()));
+        }
+        if (filter.hasDateAfter()) {
+            criteria.add(Criteria.where("dateTime").gt(filter.dateAfter()));
+        }
+        if (!criteria.isEmpty()) {
+            query.addCriteria(new Criteria().andOperator(criteria));
+        }
+        return query;
+    }
+}
@@ -0,0 +1,106 @@
+package com.prz.edu.pl.ogloszone.add;
+
+import com.prz.edu.pl.ogloszone.category.Category;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Announcement storage behind {@link AddRepository}. Every method, including {@code save} and {@code findById}
+ * which replace the generated ones, works in the collection layout chosen by {@link AddBuckets}.
+ */
+public interface AddRepositoryCustom {
+
+    /**
+     * Inserts a new announcement, or replaces one with the same id, in the collection for its {@code dateTime}.
+     */
+    <S extends Add> S save(S add);
+
+    /**
+     * Result of {@link #insertUnordered}: the documents as written, with their initial version, at the positions of
+     * the input, and the error for each position that was not stored (empty when all were).
+     */
+    record BulkInsert(List<Add> adds, Map<Integer, String> failures) {
+    }
+
+    /**
+     * Inserts new announcements with one unordered {@code insertMany} per collection, so one failing document
+     * does not stop the others.
+     */
+    BulkInsert insertUnordered(List<Add> adds);
+
+    /**
+     * Looks the announcement up in every collection that can hold it, in one round trip.
+     */
+    Optional<Add> findById(String id);
+
+    /**
+     * Looks all the announcements up with one {@code $in} query over every collection that can hold them. Ids
+     * that are not found are left out; the order of the result is unspecified.
+     */
+    List<Add> findAllByIds(Collection<String> ids);
+
+    /**
+     * Ids of all stored announcements, read through server-side cursors {@code batchSize} at a time. The stream
+     * holds the open cursor and must be closed.
+     */
+    Stream<String> streamIds(int batchSize);
+
+    /**
+     * Number of stored announcements with one category and day of {@code dateTime} (in the default time zone, as
+     * {@code dateTime} is stored); {@code null} category or day for announcements without one.
+     */
+    record DayCount(Category category, LocalDate day, long count) {
+    }
+
+    /**
+     * Counts the stored announcements per category and day with one {@code $group} aggregation over every
+     * collection.
+     */
+    List<DayCount> countByCategoryAndDay();
+
+    /**
+     * Number of stored announcements from collection metadata, without scanning; may be slightly off.
+     */
+    long estimatedCount();
+
+    /**
+     * Offset page matching every filter present in {@code filter}. Without a keyword the order is
+     * {@code dateTime desc, _id desc}; with a keyword results are ranked by text relevance first.
+     * The sort of {@code pageable} is ignored.
+     */
+    Page<AddSummary> findPage(AddFilter filter, Pageable pageable);
+
+    /**
+     * Keyset page in {@code dateTime desc, _id desc} order, starting right after {@code cursor}
+     * (or from the newest announcement when it is {@code null}). No count query is issued.
+     */
+    Slice<AddSummary> findSlice(AddFilter filter, AddCursor cursor, int size);
+
+    /**
+     * Every announcement matching {@code filter}, newest first, without the edit code. Read through server-side
+     * cursors {@code batchSize} documents at a time, the next batch only when the stream gets to it. The stream
+     * holds the open cursor and must be closed.
+     */
+    Stream<Add> streamAll(AddFilter filter, int batchSize);
+
+    /**
+     * Applies the editable fields of {@code changes} in a single {@code findAndModify}, provided the stored
+     * announcement has the same id and edit code and, when {@code expectedVersion} is given, that version.
+     * Increments the version. Returns the updated announcement, or {@code null} if nothing matched.
+     */
+    Add updateIfMatches(Add changes, Long expectedVersion);
+
+    /**
+     * Removes the announcement in a single {@code findAndModify} under the same conditions as
+     * {@link #updateIfMatches}. Returns the removed announcement, or {@code null} if nothing matched.
+     */
+    Add deleteIfMatches(String id, String editCode, Long expectedVersion);
+}
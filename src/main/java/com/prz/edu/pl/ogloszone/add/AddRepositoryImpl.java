@@ -0,0 +1,355 @@
+package com.prz.edu.pl.ogloszone.add;
+
+import com.prz.edu.pl.ogloszone.category.Category;
+import org.bson.Document;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.BasicQuery;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Runs the queries built by {@link AddQueries} on the blocking {@link MongoTemplate}, in every collection
+ * {@link AddBuckets} says can hold the result. With a single collection each method is one query, as before
+ * bucketing existed.
+ */
+class AddRepositoryImpl implements AddRepositoryCustom {
+
+    private static final String BUCKET_FIELD = "_bucket";
+
+    private final MongoTemplate mongoTemplate;
+    private final AddBuckets buckets;
+
+    AddRepositoryImpl(MongoTemplate mongoTemplate, AddBuckets buckets) {
+        this.mongoTemplate = mongoTemplate;
+        this.buckets = buckets;
+    }
+
+    @Override
+    public <S extends Add> S save(S add) {
+        return mongoTemplate.save(add, buckets.forWrite(add.dateTime()));
+    }
+
+    @Override
+    public BulkInsert insertUnordered(List<Add> adds) {
+        // Bulk inserts skip the version initialization of save().
+        List<Add> versioned = adds.stream().map(AddRepositoryImpl::withInitialVersion).toList();
+        Map<String, List<Integer>> positionsByCollection = new LinkedHashMap<>();
+        for (int i = 0; i < versioned.size(); i++) {
+            positionsByCollection.computeIfAbsent(buckets.forWrite(versioned.get(i).dateTime()), c -> new ArrayList<>())
+                    .add(i);
+        }
+        Map<Integer, String> failures = new HashMap<>();
+        positionsByCollection.forEach((collection, positions) -> {
+            List<Add> batch = positions.stream().map(versioned::get).toList();
+            try {
+                mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Add.class, collection)
+                        .insert(batch)
+                        .execute();
+            } catch (BulkOperationException e) {
+                e.getErrors().forEach(error -> failures.put(positions.get(error.getIndex()), error.getMessage()));
+            }
+        });
+        return new BulkInsert(versioned, failures);
+    }
+
+    @Override
+    public Optional<Add> findById(String id) {
+        return Optional.ofNullable(locate(id)).map(Located::add);
+    }
+
+    @Override
+    public List<Add> findAllByIds(Collection<String> ids) {
+        List<String> collections = buckets.forRead(null, null);
+        Document match = new Document("_id", new Document("$in", ids));
+        if (collections.size() == 1) {
+            return mongoTemplate.find(new BasicQuery(match), Add.class, collections.get(0));
+        }
+        Map<String, Add> found = new HashMap<>();
+        for (Document document : mongoTemplate.getCollection(collections.get(0)).aggregate(union(match, collections))) {
+            document.remove(BUCKET_FIELD);
+            Add add = mongoTemplate.getConverter().read(Add.class, document);
+            found.merge(add.id(), add, AddRepositoryImpl::newerVersion);
+        }
+        return new ArrayList<>(found.values());
+    }
+
+    @Override
+    public Stream<String> streamIds(int batchSize) {
+        Query query = new Query().cursorBatchSize(batchSize);
+        query.fields().include("_id");
+        return buckets.forRead(null, null).stream()
+                .flatMap(collection -> mongoTemplate.stream(query, Document.class, collection))
+                .map(document -> String.valueOf(document.get("_id")));
+    }
+
+    @Override
+    public List<DayCount> countByCategoryAndDay() {
+        List<String> collections = buckets.forRead(null, null);
+        List<Document> pipeline = new ArrayList<>();
+        for (String collection : collections.subList(1, collections.size())) {
+            pipeline.add(new Document("$unionWith", collection));
+        }
+        Document day = new Document("$dateToString", new Document("format", "%Y-%m-%d")
+                .append("date", "$dateTime")
+                .append("timezone", ZoneId.systemDefault().getId()));
+        pipeline.add(new Document("$group", new Document("_id",
+                new Document("category", "$category").append("day", day))
+                .append("count", new Document("$sum", 1))));
+
+        List<DayCount> counts = new ArrayList<>();
+        for (Document group : mongoTemplate.getCollection(collections.get(0)).aggregate(pipeline)) {
+            Document key = group.get("_id", Document.class);
+            String category = key.getString("category");
+            String date = key.getString("day");
+            counts.add(new DayCount(category != null ? Category.valueOf(category) : null,
+                    date != null ? LocalDate.parse(date) : null, group.get("count", Number.class).longValue()));
+        }
+        return counts;
+    }
+
+    @Override
+    public long estimatedCount() {
+        return buckets.forRead(null, null).stream().mapToLong(mongoTemplate::estimatedCount).sum();
+    }
+
+    @Override
+    public Page<AddSummary> findPage(AddFilter filter, Pageable pageable) {
+        List<String> collections = buckets.forRead(filter.dateAfter(), null);
+        if (collections.size() > 1) {
+            return filter.hasKeyword()
+                    ? rankedPage(filter, pageable, collections)
+                    : newestPage(filter, pageable, collections);
+        }
+        String collection = collections.get(0);
+        BasicQuery query = AddQueries.pageQuery(filter);
+        query.skip(pageable.getOffset()).limit(pageable.getPageSize());
+
+        List<AddSummary> content = findSummaries(query, collection);
+        return PageableExecutionUtils.getPage(content, pageable, () -> count(filter, collection));
+    }
+
+    @Override
+    public Slice<AddSummary> findSlice(AddFilter filter, AddCursor cursor, int size) {
+        List<AddSummary> content = new ArrayList<>();
+        for (String collection : buckets.forRead(filter.dateAfter(), cursor != null ? cursor.dateTime() : null)) {
+            BasicQuery query = AddQueries.sliceQuery(filter, cursor);
+            query.limit(size + 1 - content.size());
+            content.addAll(findSummaries(query, collection));
+            if (content.size() > size) {
+                break;
+            }
+        }
+        boolean hasNext = content.size() > size;
+        if (hasNext) {
+            content = content.subList(0, size);
+        }
+        return new SliceImpl<>(content, PageRequest.of(0, size, AddQueries.NEWEST_FIRST), hasNext);
+    }
+
+    @Override
+    public Stream<Add> streamAll(AddFilter filter, int batchSize) {
+        // flatMap opens the cursor of the next collection only after the previous one is exhausted.
+        return buckets.forRead(filter.dateAfter(), null).stream()
+                .flatMap(collection -> mongoTemplate.stream(AddQueries.exportQuery(filter, batchSize), Add.class,
+                        collection));
+    }
+
+    @Override
+    public Add updateIfMatches(Add changes, Long expectedVersion) {
+        String target = buckets.forWrite(changes.dateTime());
+        Add updated = mongoTemplate.findAndModify(AddQueries.guard(changes.id(), changes.editCode(), expectedVersion),
+                AddQueries.edit(changes), FindAndModifyOptions.options().returnNew(true), Add.class, target);
+        if (updated != null || !buckets.isBucketed()) {
+            return updated;
+        }
+        Located current = locate(changes.id());
+        if (current == null || current.bucket().equals(target)
+                || !Objects.equals(current.add().editCode(), changes.editCode())
+                || expectedVersion != null && !expectedVersion.equals(current.add().version())) {
+            return null;
+        }
+        return move(current, changes, target);
+    }
+
+    @Override
+    public Add deleteIfMatches(String id, String editCode, Long expectedVersion) {
+        String collection = AddBuckets.COLLECTION;
+        if (buckets.isBucketed()) {
+            Located current = locate(id);
+            if (current == null) {
+                return null;
+            }
+            collection = current.bucket();
+        }
+        return mongoTemplate.findAndRemove(AddQueries.guard(id, editCode, expectedVersion), Add.class, collection);
+    }
+
+    /**
+     * Buckets hold disjoint time ranges, so in newest-first order a page is read bucket after bucket, skipping
+     * whole buckets by their counts.
+     */
+    private Page<AddSummary> newestPage(AddFilter filter, Pageable pageable, List<String> collections) {
+        List<AddSummary> content = new ArrayList<>();
+        long skip = pageable.getOffset();
+        long total = 0;
+        for (String collection : collections) {
+            long count = count(filter, collection);
+            total += count;
+            if (content.size() < pageable.getPageSize() && skip < count) {
+                BasicQuery query = AddQueries.pageQuery(filter);
+                query.skip(skip).limit(pageable.getPageSize() - content.size());
+                content.addAll(findSummaries(query, collection));
+            }
+            skip = Math.max(0, skip - count);
+        }
+        return new PageImpl<>(content, pageable, total);
+    }
+
+    /**
+     * Relevance ranks across buckets, so every bucket contributes its best {@code offset + size} matches and the
+     * page is cut from the merged ranking.
+     */
+    private Page<AddSummary> rankedPage(AddFilter filter, Pageable pageable, List<String> collections) {
+        List<Ranked> ranked = new ArrayList<>();
+        long total = 0;
+        for (String collection : collections) {
+            total += count(filter, collection);
+            BasicQuery query = AddQueries.pageQuery(filter);
+            query.limit((int) pageable.getOffset() + pageable.getPageSize());
+            for (Document document : mongoTemplate.find(query, Document.class, collection)) {
+                ranked.add(new Ranked(document.get("score", Number.class).doubleValue(),
+                        mongoTemplate.getConverter().read(AddSummary.class, document)));
+            }
+        }
+        List<AddSummary> content = ranked.stream()
+                .sorted(Comparator.comparingDouble(Ranked::score).reversed()
+                        .thenComparing(r -> r.summary().dateTime(), Comparator.reverseOrder())
+                        .thenComparing(r -> r.summary().id(), Comparator.reverseOrder()))
+                .skip(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .map(Ranked::summary)
+                .toList();
+        return new PageImpl<>(content, pageable, total);
+    }
+
+    /**
+     * Finds the announcement and its collection. With several buckets this is one aggregation looking the id up
+     * in each of them; should an interrupted {@link #move} have left two copies, the newer version wins.
+     */
+    private Located locate(String id) {
+        List<String> collections = buckets.forRead(null, null);
+        if (collections.size() == 1) {
+            Add add = mongoTemplate.findById(id, Add.class, collections.get(0));
+            return add != null ? new Located(collections.get(0), add) : null;
+        }
+        List<Document> pipeline = union(new Document("_id", id), collections);
+        pipeline.add(new Document("$sort", new Document("version", -1)));
+        pipeline.add(new Document("$limit", 1));
+        Document found = mongoTemplate.getCollection(collections.get(0)).aggregate(pipeline).first();
+        if (found == null) {
+            return null;
+        }
+        String bucket = (String) found.remove(BUCKET_FIELD);
+        return new Located(bucket, mongoTemplate.getConverter().read(Add.class, found));
+    }
+
+    /**
+     * Documents matching {@code match} in all {@code collections}, each tagged with its collection in
+     * {@link #BUCKET_FIELD}. Runs on the first collection.
+     */
+    private static List<Document> union(Document match, List<String> collections) {
+        List<Document> pipeline = new ArrayList<>(lookup(match, collections.get(0)));
+        for (String collection : collections.subList(1, collections.size())) {
+            pipeline.add(new Document("$unionWith",
+                    new Document("coll", collection).append("pipeline", lookup(match, collection))));
+        }
+        return pipeline;
+    }
+
+    private static List<Document> lookup(Document match, String collection) {
+        return List.of(
+                new Document("$match", match),
+                new Document("$set", new Document(BUCKET_FIELD, new Document("$literal", collection))));
+    }
+
+    private static Add newerVersion(Add a, Add b) {
+        return Objects.requireNonNullElse(a.version(), 0L) >= Objects.requireNonNullElse(b.version(), 0L) ? a : b;
+    }
+
+    /**
+     * An edit renews {@code dateTime}, which may belong to a newer bucket. The new version is inserted there
+     * first and the old one removed only if nobody changed it meanwhile, so an interrupted move leaves a stale
+     * copy in an older bucket, never a lost announcement.
+     */
+    private Add move(Located current, Add changes, String target) {
+        Long version = current.add().version();
+        Add moved = new Add(changes.id(), changes.title(), changes.content(), changes.category(), changes.contact(),
+                changes.dateTime(), current.add().editCode(), changes.search(), version != null ? version + 1 : 1);
+        try {
+            mongoTemplate.insert(moved, target);
+        } catch (DuplicateKeyException e) {
+            // A concurrent edit moved it first.
+            return null;
+        }
+        long removed = mongoTemplate.remove(versionOf(current.add()), current.bucket()).getDeletedCount();
+        if (removed == 0) {
+            mongoTemplate.remove(versionOf(moved), target);
+            return null;
+        }
+        return moved;
+    }
+
+    static Add withInitialVersion(Add add) {
+        return add.version() != null ? add : new Add(add.id(), add.title(), add.content(), add.category(),
+                add.contact(), add.dateTime(), add.editCode(), add.search(), 0L);
+    }
+
+    private static Query versionOf(Add add) {
+        return Query.query(Criteria.where("_id").is(add.id()).and("version").is(add.version()));
+    }
+
+    private long count(AddFilter filter, String collection) {
+        if (filter.isEmpty()) {
+            return mongoTemplate.estimatedCount(collection);
+        }
+        return mongoTemplate.count(AddQueries.countQuery(filter), Add.class, collection);
+    }
+
+    private List<AddSummary> findSummaries(Query query, String collection) {
+        return mongoTemplate.query(Add.class)
+                .inCollection(collection)
+                .as(AddSummary.class)
+                .matching(query)
+                .all();
+    }
+
+    private record Located(String bucket, Add add) {
+    }
+
+    private record Ranked(double score, AddSummary summary) {
+    }
+}
@@ -39,10 +39,15 @@ public record AddResponse(
         @Schema(description = "Creation date and time of the announcement, used for expiration after 30 days",
                 example = "2025-10-18T12:00:00")
         @NotNull(message = "Creation date is required")
-        @Indexed(expireAfter = "30d")
-        LocalDateTime dateTime) {
+        LocalDateTime dateTime,
+
+        @Schema(description = "Revision of the announcement, incremented on every edit. Pass it back as the "
+                + "version parameter of an edit or delete to reject the request if someone changed it meanwhile",
+                example = "3")
+        Long version) {
 
     public AddResponse(Add add) {
-        this(UUID.fromString(add.id()), add.title(), add.content(), add.category(), add.contact(), add.dateTime());
+        this(UUID.fromString(add.id()), add.title(), add.content(), add.category(), add.contact(), add.dateTime(),
+                add.version());
     }
 }
@@ -3,189 +3,354 @@ package com.prz.edu.pl.ogloszone.add;
 import com.prz.edu.pl.ogloszone.category.Category;
 import com.prz.edu.pl.ogloszone.email.EmailService;
 import com.prz.edu.pl.ogloszone.exception.AddNotFoundException;
+import com.prz.edu.pl.ogloszone.exception.AddVersionConflictException;
 import com.prz.edu.pl.ogloszone.exception.InvalidCategoryException;
 import com.prz.edu.pl.ogloszone.util.PagedResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 
 @Service
 public class AddService {
 
+    static final int MAX_BATCH_GET_IDS = 200;
+
     private static final Logger logger = LoggerFactory.getLogger(AddService.class);
 
     private final AddRepository repository;
     private final EmailService emailService;
+    private final AddCache cache;
+    private final HotPageCache hotPages;
+    private final ListingMetrics listingMetrics;
+    private final ApplicationEventPublisher eventPublisher;
+    private final AddIdFilter idFilter;
 
-    public AddService(AddRepository repository, EmailService emailService) {
+    public AddService(AddRepository repository, EmailService emailService, AddCache cache, HotPageCache hotPages,
+                      ListingMetrics listingMetrics, ApplicationEventPublisher eventPublisher, AddIdFilter idFilter) {
         this.repository = repository;
         this.emailService = emailService;
+        this.cache = cache;
+        this.hotPages = hotPages;
+        this.listingMetrics = listingMetrics;
+        this.eventPublisher = eventPublisher;
+        this.idFilter = idFilter;
     }
 
     @Transactional
     public AddResponse createAdd(AddRequest addRequest) {
         logger.info("Creating new announcement with title: {}", addRequest.title());
-        Category category = validateCategory(addRequest.category());
-
-        Add newAdd = new Add(
-                UUID.randomUUID().toString(),
-                addRequest.title(),
-                addRequest.content(),
-                category,
-                addRequest.contact(),
-                LocalDateTime.now(),
-                UUID.randomUUID().toString()
-        );
-        Add savedAdd = repository.save(newAdd);
+        Add savedAdd = repository.save(newAdd(addRequest));
+        eventPublisher.publishEvent(AddChangeEvent.local(AddChangeEvent.Type.CREATED, savedAdd));
         logger.info("Successfully created announcement with ID: {}", savedAdd.id());
-        emailService.sendConfirmationEmail(savedAdd);
+        emailService.queueConfirmationEmail(savedAdd);
         return new AddResponse(savedAdd);
     }
 
+    /**
+     * Stores one chunk of a batch import ({@link AddBatchImport}) with a single unordered insert, then queues the
+     * confirmation emails of the stored announcements with a single outbox insert. Returns one result per
+     * request, indexed by its position in {@code requests}.
+     */
+    public List<AddBatchItem> createAdds(List<AddRequest> requests) {
+        logger.info("Creating {} announcements in one batch", requests.size());
+        BatchChunk chunk = new BatchChunk(requests);
+        List<Add> created = chunk.stored(chunk.adds.isEmpty()
+                ? new AddRepositoryCustom.BulkInsert(List.of(), Map.of())
+                : repository.insertUnordered(chunk.adds));
+        created.forEach(add -> eventPublisher.publishEvent(AddChangeEvent.local(AddChangeEvent.Type.CREATED, add)));
+        emailService.queueConfirmationEmails(created);
+        logger.info("Created {} of {} announcements in the batch", created.size(), requests.size());
+        return chunk.results();
+    }
+
     public AddResponse getAddById(UUID id) {
         logger.info("Fetching announcement with ID: {}", id);
-        Add add = repository.findById(id.toString())
-                .orElseThrow(() -> {
-                    logger.warn("Announcement with ID {} not found", id);
-                    return new AddNotFoundException("Add with ID " + id + " not found");
-                });
-        logger.debug("Found announcement: {}", add);
-        return new AddResponse(add);
+        if (!idFilter.mightContain(id)) {
+            logger.debug("Announcement with ID {} rejected by the id filter", id);
+            throw notFound(id);
+        }
+        return cache.get(id.toString(), key -> {
+            Add add = repository.findById(key)
+                    .orElseThrow(() -> {
+                        logger.warn("Announcement with ID {} not found", id);
+                        return notFound(id);
+                    });
+            logger.debug("Found announcement: {}", add);
+            return new AddResponse(add);
+        });
+    }
+
+    /**
+     * Several announcements at once: the cached ones from {@link AddCache}, all the others with one query.
+     * Ids without an announcement are listed as missing instead of failing the request.
+     */
+    public AddBatchGetResponse getAddsByIds(List<UUID> ids) {
+        Set<String> keys = batchGetKeys(ids);
+        Map<String, AddResponse> found = cache.getAll(keys, missing -> {
+            Map<String, AddResponse> loaded = new HashMap<>();
+            repository.findAllByIds(List.copyOf(missing)).forEach(add -> loaded.put(add.id(), new AddResponse(add)));
+            return loaded;
+        });
+        return batchGetResponse(keys, found);
     }
 
+    static Set<String> batchGetKeys(List<UUID> ids) {
+        if (ids.size() > MAX_BATCH_GET_IDS) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_GET_IDS + " ids can be fetched at once");
+        }
+        Set<String> keys = new LinkedHashSet<>();
+        ids.forEach(id -> keys.add(id.toString()));
+        logger.info("Fetching {} announcements by ID", keys.size());
+        return keys;
+    }
+
+    static AddBatchGetResponse batchGetResponse(Set<String> keys, Map<String, AddResponse> found) {
+        List<AddResponse> adds = new ArrayList<>(found.size());
+        List<UUID> missing = new ArrayList<>();
+        for (String key : keys) {
+            AddResponse add = found.get(key);
+            if (add != null) {
+                adds.add(add);
+            } else {
+                missing.add(UUID.fromString(key));
+            }
+        }
+        logger.debug("Found {} of {} announcements", adds.size(), keys.size());
+        return new AddBatchGetResponse(adds, missing);
+    }
+
+    /**
+     * Updates the announcement in one round trip. With {@code expectedVersion} the update only applies if
+     * nobody changed the announcement since that version was read.
+     */
     @Transactional
-    public AddResponse updateAdd(UUID id, UUID editCode, AddRequest addUpdate) {
-        logger.info("Updating announcement with ID: {} and editCode: {}", id, editCode);
-        Add currentAdd = getExistingAdd(id, editCode);
+    public AddResponse updateAdd(UUID id, UUID editCode, Long expectedVersion, AddRequest addUpdate) {
+        logger.info("Updating announcement with ID: {}, editCode: {} and version: {}", id, editCode, expectedVersion);
+        Add updatedAdd = repository.updateIfMatches(changes(id, editCode, expectedVersion, addUpdate), expectedVersion);
+        if (updatedAdd == null) {
+            throw rejection(id, editCode, expectedVersion);
+        }
+        eventPublisher.publishEvent(AddChangeEvent.local(AddChangeEvent.Type.UPDATED, updatedAdd));
+        emailService.queueConfirmationEmail(updatedAdd);
+        logger.info("Successfully updated announcement with ID: {} to version {}", id, updatedAdd.version());
+        return new AddResponse(updatedAdd);
+    }
 
-        Category category = validateCategory(addUpdate.category());
+    @Transactional
+    public void deleteAdd(UUID id, UUID editCode, Long expectedVersion) {
+        logger.info("Deleting announcement with ID: {}, editCode: {} and version: {}", id, editCode, expectedVersion);
+        Add deletedAdd = repository.deleteIfMatches(id.toString(), editCode.toString(), expectedVersion);
+        if (deletedAdd == null) {
+            throw rejection(id, editCode, expectedVersion);
+        }
+        eventPublisher.publishEvent(AddChangeEvent.local(AddChangeEvent.Type.DELETED, deletedAdd));
+        logger.info("Successfully deleted announcement with ID: {}", id);
+    }
+
+    public PagedResponse<AddSummary> getAllAnnouncements(String category, String date, String keyword, int page, int size) {
+        logger.info("Fetching all announcements with filters - category: {}, date: {}, keyword: {}, page: {}, size: {}",
+                category, date, keyword, page, size);
+        Pageable pageable = pageRequest(page, size);
+        LocalDateTime dateTime = parseDate(date);
+        Page<AddSummary> pageResult = fetchAnnouncements(category, dateTime, keyword, pageable);
+        logger.debug("Fetched {} announcements for page {}", pageResult.getTotalElements(), page);
+        return PagedResponse.of(pageResult);
+    }
+
+    /**
+     * JSON of the default first page ({@link HotPageCache#covers}) and its ETag, served from memory.
+     */
+    public HotPageCache.Page getFirstPage(String category) {
+        logger.info("Fetching first page of announcements with category: {}", category);
+        Category filter = categoryOrAll(category);
+        return listingMetrics.record(new AddFilter(filter, null, null), "page", "hot-page",
+                () -> hotPages.getPage(filter));
+    }
+
+    public PagedResponse<AddSummary> getAnnouncementsAfter(String category, String date, String keyword,
+                                                            String cursor, int size) {
+        logger.info("Fetching announcements with filters - category: {}, date: {}, keyword: {}, cursor: {}, size: {}",
+                category, date, keyword, cursor, size);
+        validateSliceSize(size);
+
+        AddFilter filter = toFilter(category, parseDate(date), keyword);
+        AddCursor after = parseCursor(cursor);
+        Slice<AddSummary> slice = listingMetrics.record(filter, "cursor", "mongo",
+                () -> repository.findSlice(filter, after, size));
+        logger.debug("Fetched {} announcements after cursor {}", slice.getNumberOfElements(), cursor);
+        return sliceResponse(slice, size);
+    }
 
-        Add updatedAdd = new Add(
+    // Request parsing and response shaping shared with ReactiveAddService.
+
+    static Add newAdd(AddRequest addRequest) {
+        return new Add(
+                UUID.randomUUID().toString(),
+                addRequest.title(),
+                addRequest.content(),
+                validateCategory(addRequest.category()),
+                addRequest.contact(),
+                LocalDateTime.now(),
+                UUID.randomUUID().toString(),
+                SearchText.of(addRequest.title(), addRequest.content()),
+                null
+        );
+    }
+
+    static Add changes(UUID id, UUID editCode, Long expectedVersion, AddRequest addUpdate) {
+        return new Add(
                 id.toString(),
                 addUpdate.title(),
                 addUpdate.content(),
-                category,
+                validateCategory(addUpdate.category()),
                 addUpdate.contact(),
                 LocalDateTime.now(),
-                currentAdd.editCode()
+                editCode.toString(),
+                SearchText.of(addUpdate.title(), addUpdate.content()),
+                expectedVersion
         );
-        repository.save(updatedAdd);
-        emailService.sendConfirmationEmail(updatedAdd);
-        logger.info("Successfully updated announcement with ID: {}", id);
-        return new AddResponse(updatedAdd);
-    }
-
-    @Transactional
-    public void deleteAdd(UUID id, UUID editCode) {
-        logger.info("Deleting announcement with ID: {} and editCode: {}", id, editCode);
-        Add currentAdd = getExistingAdd(id, editCode);
-        repository.deleteById(currentAdd.id());
-        logger.info("Successfully deleted announcement with ID: {}", id);
     }
 
-    @Scheduled(cron = "0 0 0 * * ?")
-    public void cleanOldAnnouncements() {
-        logger.info("Starting cleanup of old announcements");
-        LocalDateTime threshold = LocalDateTime.now().minusDays(30);
-        repository.deleteByDateTimeBefore(threshold);
+    /**
+     * Rejects the parameters a listing query would reject, for requests answered without one, so that they fail
+     * with 400 rather than 304.
+     */
+    static void validateListing(String category, String date, String keyword, int page, int size, String cursor) {
+        toFilter(category, parseDate(date), keyword);
+        if (cursor != null) {
+            validateSliceSize(size);
+            parseCursor(cursor);
+        } else {
+            pageRequest(page, size);
+        }
     }
 
-    public PagedResponse<AddResponse> getAllAnnouncements(String category, String date, String keyword, int page, int size) {
-        logger.info("Fetching all announcements with filters - category: {}, date: {}, keyword: {}, page: {}, size: {}",
-                category, date, keyword, page, size);
+    static Pageable pageRequest(int page, int size) {
         if (page < 0 || size <= 0) {
             logger.warn("Invalid pagination parameters: page = {}, size = {}", page, size);
             throw new IllegalArgumentException("Page number and size must be positive, with page starting at 0");
         }
+        validateSize(size);
+        return PageRequest.of(page, size);
+    }
+
+    static void validateSliceSize(int size) {
+        if (size <= 0) {
+            logger.warn("Invalid pagination parameter: size = {}", size);
+            throw new IllegalArgumentException("Size must be positive");
+        }
+        validateSize(size);
+    }
+
+    static AddCursor parseCursor(String cursor) {
+        return cursor == null || cursor.isEmpty() ? null : AddCursor.decode(cursor);
+    }
+
+    static PagedResponse<AddSummary> sliceResponse(Slice<AddSummary> slice, int size) {
+        List<AddSummary> content = slice.getContent();
+        String nextCursor = slice.hasNext() ? AddCursor.of(content.get(content.size() - 1)).encode() : null;
+        return new PagedResponse<>(
+                content,
+                null,
+                size,
+                null,
+                null,
+                !slice.hasNext(),
+                nextCursor);
+    }
+
+    private static void validateSize(int size) {
         if (size > 100) {
             logger.warn("Size {} exceeds maximum allowed (100)", size);
             throw new IllegalArgumentException("Size cannot exceed 100");
         }
+    }
 
-        LocalDateTime dateTime = null;
-        if (date != null && !date.isEmpty()) {
-            try {
-                dateTime = LocalDateTime.parse(date);
-            } catch (DateTimeParseException e) {
-                logger.warn("Invalid date format: {}", date, e);
-                throw new IllegalArgumentException("Invalid date format. Use ISO format (e.g., 2025-10-18T14:33:00)");
-            }
+    static AddNotFoundException notFound(UUID id) {
+        return new AddNotFoundException("Add with ID " + id + " not found");
+    }
+
+    static LocalDateTime parseDate(String date) {
+        if (date == null || date.isEmpty()) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(date);
+        } catch (DateTimeParseException e) {
+            logger.warn("Invalid date format: {}", date, e);
+            throw new IllegalArgumentException("Invalid date format. Use ISO format (e.g., 2025-10-18T14:33:00)");
         }
-        Pageable pageable = PageRequest.of(page, size);
-        Page<AddResponse> pageResult = fetchAnnouncements(category, dateTime, keyword, pageable);
-        logger.debug("Fetched {} announcements for page {}", pageResult.getTotalElements(), page);
-        return new PagedResponse<>(
-                pageResult.getContent(),
-                pageResult.getNumber(),
-                pageResult.getSize(),
-                pageResult.getTotalElements(),
-                pageResult.getTotalPages(),
-                pageResult.isLast());
     }
 
-    private Page<AddResponse> fetchAnnouncements(String category, LocalDateTime dateTime, String keyword, Pageable pageable) {
+    private Page<AddSummary> fetchAnnouncements(String category, LocalDateTime dateTime, String keyword, Pageable pageable) {
         logger.debug("Fetching announcements with filters - category: {}, dateTime: {}, keyword: {}",
                 category, dateTime, keyword);
-        if (category != null && !category.isEmpty()) {
-            validateCategory(category);
-            if (dateTime != null) {
-                if (keyword != null && !keyword.isEmpty()) {
-                    return repository.findByCategoryAndDateTimeAfterAndTitleContainingIgnoreCase(
-                                    Category.valueOf(category.toUpperCase()), dateTime, keyword, pageable)
-                            .map(AddResponse::new);
-                }
-                return repository.findByCategoryAndDateTimeAfter(
-                                Category.valueOf(category.toUpperCase()), dateTime, pageable)
-                        .map(AddResponse::new);
-            } else if (keyword != null && !keyword.isEmpty()) {
-                return repository.findByCategoryAndTitleContainingIgnoreCase(
-                                Category.valueOf(category.toUpperCase()), keyword, pageable)
-                        .map(AddResponse::new);
-            }
-            return repository.findByCategory(Category.valueOf(category.toUpperCase()), pageable)
-                    .map(AddResponse::new);
-        } else if (dateTime != null) {
-            if (keyword != null && !keyword.isEmpty()) {
-                return repository.findByDateTimeAfterAndTitleContainingIgnoreCase(dateTime, keyword, pageable)
-                        .map(AddResponse::new);
-            }
-            return repository.findByDateTimeAfter(dateTime, pageable)
-                    .map(AddResponse::new);
-        } else if (keyword != null && !keyword.isEmpty()) {
-            return repository.findByTitleContainingIgnoreCase(keyword, pageable)
-                    .map(AddResponse::new);
-        }
-        return repository.findAll(pageable)
-                .map(AddResponse::new);
+        AddFilter filter = toFilter(category, dateTime, keyword);
+        return listingMetrics.record(filter, "page", "mongo", () -> repository.findPage(filter, pageable));
     }
 
-    Add getExistingAdd(UUID id, UUID editCode) {
-        logger.debug("Checking existence of announcement with ID: {} and editCode: {}", id, editCode);
-        Optional<Add> existing = repository.findById(id.toString());
-        if (existing.isEmpty()) {
-            throw new AddNotFoundException("Add with ID " + id + " not found");
+    static AddFilter toFilter(String category, LocalDateTime dateTime, String keyword) {
+        return new AddFilter(categoryOrAll(category), dateTime, normalizeKeyword(keyword));
+    }
+
+    /**
+     * The keyword as searched in the text index. A keyword made only of stop words, single letters or punctuation
+     * normalizes to nothing and is rejected, rather than silently returning the unfiltered listing.
+     */
+    static String normalizeKeyword(String keyword) {
+        String normalized = SearchText.normalize(keyword);
+        if (normalized.isEmpty() && keyword != null && !keyword.isBlank()) {
+            logger.warn("Keyword without searchable words: {}", keyword);
+            throw new IllegalArgumentException(String.format(
+                    "Keyword '%s' has no searchable words; stop words and single letters are ignored", keyword));
         }
+        return normalized;
+    }
 
-        Add currentAdd = existing.get();
-        if (!Objects.equals(editCode.toString(), currentAdd.editCode())) {
-            throw new SecurityException("Invalid edit code for ID " + id);
+    static Category categoryOrAll(String category) {
+        return category != null && !category.isEmpty() ? validateCategory(category) : null;
+    }
+
+    /**
+     * Explains why a guarded update or delete matched nothing. Only runs on that failure path.
+     */
+    private RuntimeException rejection(UUID id, UUID editCode, Long expectedVersion) {
+        return rejection(id, editCode, expectedVersion, repository.findById(id.toString()).orElse(null));
+    }
+
+    static RuntimeException rejection(UUID id, UUID editCode, Long expectedVersion, Add current) {
+        if (current == null) {
+            return notFound(id);
+        }
+        if (!Objects.equals(editCode.toString(), current.editCode())) {
+            return new SecurityException("Invalid edit code for ID " + id);
         }
-        return currentAdd;
+        logger.warn("Version conflict for announcement with ID: {} - expected {}, found {}",
+                id, expectedVersion, current.version());
+        return new AddVersionConflictException(String.format(
+                "Add with ID %s was modified concurrently (expected version %s, current version %s)",
+                id, expectedVersion, current.version()));
     }
 
-    Category validateCategory(String categoryName) {
+    static Category validateCategory(String categoryName) {
         logger.debug("Validating category: {}", categoryName);
         if (categoryName == null || categoryName.trim().isEmpty()) {
             logger.warn("Category is null or empty");
@@ -203,4 +368,54 @@ public class AddService {
             );
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * One chunk of a batch import on its way to storage: the announcements built from the valid requests, with
+     * their positions, and the result of every request.
+     */
+    static final class BatchChunk {
+
+        final List<Add> adds;
+        private final List<Integer> positions;
+        private final AddBatchItem[] results;
+
+        BatchChunk(List<AddRequest> requests) {
+            adds = new ArrayList<>(requests.size());
+            positions = new ArrayList<>(requests.size());
+            results = new AddBatchItem[requests.size()];
+            for (int i = 0; i < requests.size(); i++) {
+                try {
+                    adds.add(newAdd(requests.get(i)));
+                    positions.add(i);
+                } catch (IllegalArgumentException | InvalidCategoryException e) {
+                    results[i] = AddBatchItem.invalid(i, List.of(e.getMessage()));
+                }
+            }
+        }
+
+        /**
+         * Records the outcome of inserting {@link #adds} and returns the announcements as stored, so events and
+         * emails carry the stored version.
+         */
+        List<Add> stored(AddRepositoryCustom.BulkInsert inserted) {
+            List<Add> created = new ArrayList<>(adds.size());
+            for (int j = 0; j < adds.size(); j++) {
+                int position = positions.get(j);
+                String failure = inserted.failures().get(j);
+                if (failure != null) {
+                    logger.warn("Could not store announcement {} of the batch: {}", position, failure);
+                    results[position] = AddBatchItem.failed(position, failure);
+                } else {
+                    Add stored = inserted.adds().get(j);
+                    created.add(stored);
+                    results[position] = AddBatchItem.created(position, stored.id());
+                }
+            }
+            return created;
+        }
+
+        List<AddBatchItem> results() {
+            return List.of(results);
+        }
+    }
+}
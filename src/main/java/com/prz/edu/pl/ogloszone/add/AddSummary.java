@@ -0,0 +1,42 @@
+package com.prz.edu.pl.ogloszone.add;
+
+import com.prz.edu.pl.ogloszone.category.Category;
+import io.swagger.v3.oas.annotations.media.Schema;
+import org.springframework.data.annotation.Id;
+
+import java.time.LocalDateTime;
+
+/**
+ * Listing view of an announcement. Read with a Mongo field projection, so list queries never load the full
+ * content, the contact or the edit code; the complete announcement is served by {@code GET /api/add/{id}}.
+ */
+public record AddSummary(
+        @Id
+        @Schema(description = "Unique identifier of the announcement",
+                example = "550e8400-e29b-41d4-a716-446655440000")
+        String id,
+
+        @Schema(description = "Title of the announcement",
+                example = "Praca jako programista")
+        String title,
+
+        @Schema(description = "Category of the announcement",
+                example = "JOB")
+        Category category,
+
+        @Schema(description = "Creation date and time of the announcement",
+                example = "2025-10-18T12:00:00")
+        LocalDateTime dateTime,
+
+        @Schema(description = "First " + AddSummary.PREVIEW_LENGTH + " characters of the content",
+                example = "Poszukujemy programisty Java...")
+        String contentPreview) {
+
+    public static final int PREVIEW_LENGTH = 200;
+
+    /**
+     * Find projection producing the fields of this record, computing {@code contentPreview} on the server.
+     */
+    public static final String FIELDS = "{ 'title': 1, 'category': 1, 'dateTime': 1, "
+            + "'contentPreview': { '$substrCP': [ '$content', 0, " + PREVIEW_LENGTH + " ] } }";
+}
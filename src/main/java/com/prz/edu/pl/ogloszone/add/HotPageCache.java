@@ -0,0 +1,208 @@
+package com.prz.edu.pl.ogloszone.add;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.prz.edu.pl.ogloszone.category.Category;
+import com.prz.edu.pl.ogloszone.util.PagedResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Ready-to-write JSON of the default listing view ({@code page=0&size=10}, no date or keyword) for every
+ * category and for all announcements. Requests for those views never touch Mongo: a change only refreshes the
+ * pages it can affect, in the background, while the previous bytes keep being served. Every page counts the
+ * changes that affect it; a render that sees a newer change when it finishes starts over, so a change that lands
+ * mid-render is never lost behind the stale result.
+ */
+@Component
+public class HotPageCache {
+
+    public static final int PAGE_SIZE = 10;
+
+    private static final Logger logger = LoggerFactory.getLogger(HotPageCache.class);
+    private static final String ALL = "ALL";
+
+    private final AddRepository repository;
+    private final ObjectMapper objectMapper;
+    private final Executor refreshExecutor;
+    private final LoadingCache<String, HotPage> pages;
+    private final ConcurrentMap<String, Generation> generations = new ConcurrentHashMap<>();
+
+    @Autowired
+    public HotPageCache(AddRepository repository, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                        @Value("${ogloszone.cache.hot-pages.refresh:PT1M}") Duration refreshInterval) {
+        this(repository, objectMapper, meterRegistry, refreshInterval,
+                Executors.newSingleThreadExecutor(Thread.ofPlatform().name("hot-page-refresh").daemon().factory()));
+    }
+
+    HotPageCache(AddRepository repository, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                 Duration refreshInterval, Executor refreshExecutor) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.refreshExecutor = refreshExecutor;
+        this.pages = Caffeine.newBuilder()
+                .maximumSize(Category.values().length + 1)
+                .refreshAfterWrite(refreshInterval)
+                .executor(refreshExecutor)
+                .recordStats()
+                .build(this::render);
+        CaffeineCacheMetrics.monitor(meterRegistry, pages, "hotPages");
+    }
+
+    /**
+     * Whether a listing request asks for the view kept in this cache.
+     */
+    public static boolean covers(String dateAfter, String keyword, int page, int size, String cursor) {
+        return cursor == null && page == 0 && size == PAGE_SIZE
+                && (dateAfter == null || dateAfter.isEmpty())
+                && (keyword == null || keyword.isBlank());
+    }
+
+    /**
+     * Whether the JSON kept in this cache suits a request with this {@code Accept} header. Clients that name
+     * Smile or CBOR get their page rendered from Mongo in that format instead.
+     */
+    public static boolean servesFormat(String accept) {
+        if (accept == null) {
+            return true;
+        }
+        String types = accept.toLowerCase(Locale.ROOT);
+        return !types.contains("smile") && !types.contains("cbor");
+    }
+
+    /**
+     * Serialized {@code PagedResponse<AddSummary>} of the first page, for one category or all when {@code null}.
+     */
+    public byte[] get(Category category) {
+        return getPage(category).json();
+    }
+
+    /**
+     * Like {@link #get}, together with an ETag of exactly these bytes.
+     */
+    public Page getPage(Category category) {
+        return pages.get(key(category)).page();
+    }
+
+    /**
+     * Like {@link #getPage}, but never loads: {@code null} until the page has been rendered in the background.
+     */
+    public Page getPageIfPresent(Category category) {
+        HotPage page = pages.getIfPresent(key(category));
+        return page == null ? null : page.page();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        refresh(ALL);
+        for (Category category : Category.values()) {
+            refresh(key(category));
+        }
+    }
+
+    @EventListener
+    public void onChange(AddChangeEvent event) {
+        if (event.type() == AddChangeEvent.Type.RESYNC || event.add() == null) {
+            // Feed deletions carry only the id, so any category page may have lost an entry.
+            pages.asMap().keySet().forEach(this::refresh);
+            return;
+        }
+        refresh(ALL);
+        refresh(key(event.add().category()));
+        // An update may have moved the announcement out of another category's page.
+        pages.asMap().forEach((key, page) -> {
+            if (page.ids().contains(event.id())) {
+                refresh(key);
+            }
+        });
+    }
+
+    /**
+     * Records a change of the page and renders it in the background unless a render is already queued or running;
+     * that one then sees the change and renders again.
+     */
+    private void refresh(String key) {
+        Generation generation = generations.computeIfAbsent(key, k -> new Generation());
+        generation.changes.incrementAndGet();
+        if (generation.scheduled.compareAndSet(false, true)) {
+            refreshExecutor.execute(() -> renderLatest(key, generation));
+        }
+    }
+
+    private void renderLatest(String key, Generation generation) {
+        while (true) {
+            long started = generation.changes.get();
+            HotPage page;
+            try {
+                page = render(key);
+            } catch (RuntimeException e) {
+                // The previous page stays until the next change or the periodic refresh.
+                logger.warn("Could not render first listing page for {}", key, e);
+                generation.scheduled.set(false);
+                return;
+            }
+            if (generation.changes.get() != started) {
+                continue;
+            }
+            pages.put(key, page);
+            generation.scheduled.set(false);
+            // A change between the put and clearing the flag found the render still scheduled.
+            if (generation.changes.get() == started || !generation.scheduled.compareAndSet(false, true)) {
+                return;
+            }
+        }
+    }
+
+    private HotPage render(String key) {
+        Category category = ALL.equals(key) ? null : Category.valueOf(key);
+        logger.debug("Rendering first listing page for {}", key);
+        PagedResponse<AddSummary> page = PagedResponse.of(
+                repository.findPage(new AddFilter(category, null, null), PageRequest.of(0, PAGE_SIZE)));
+        try {
+            Set<String> ids = page.content().stream().map(AddSummary::id).collect(Collectors.toUnmodifiableSet());
+            byte[] json = objectMapper.writeValueAsBytes(page);
+            return new HotPage(new Page(json, "\"" + DigestUtils.md5DigestAsHex(json) + "\""), ids);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String key(Category category) {
+        return category == null ? ALL : category.name();
+    }
+
+    public record Page(byte[] json, String etag) {
+    }
+
+    private record HotPage(Page page, Set<String> ids) {
+    }
+
+    private static final class Generation {
+
+        final AtomicLong changes = new AtomicLong();
+        final AtomicBoolean scheduled = new AtomicBoolean();
+    }
+}
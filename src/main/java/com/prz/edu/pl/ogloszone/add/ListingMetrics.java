@@ -0,0 +1,72 @@
+package com.prz.edu.pl.ogloszone.add;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.StringJoiner;
+import java.util.function.Supplier;
+
+/**
+ * Latency of announcement listings, tagged with the filter combination, the pagination mode and whether the
+ * page came from Mongo or from {@link HotPageCache}. The tags take a bounded set of values, so every
+ * combination is its own histogram.
+ */
+@Component
+public class ListingMetrics {
+
+    static final String NAME = "ogloszone.add.listing";
+
+    private final MeterRegistry meterRegistry;
+
+    public ListingMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    <T> T record(AddFilter filter, String pagination, String source, Supplier<T> listing) {
+        return timer(filter, pagination, source).record(listing);
+    }
+
+    <T> Mono<T> time(Mono<T> listing, AddFilter filter, String pagination, String source) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return listing.doFinally(signal -> sample.stop(timer(filter, pagination, source)));
+        });
+    }
+
+    <T> Flux<T> time(Flux<T> listing, AddFilter filter, String pagination, String source) {
+        return Flux.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return listing.doFinally(signal -> sample.stop(timer(filter, pagination, source)));
+        });
+    }
+
+    private Timer timer(AddFilter filter, String pagination, String source) {
+        return Timer.builder(NAME)
+                .description("Time to fetch one page of announcements")
+                .tag("filter", shape(filter))
+                .tag("pagination", pagination)
+                .tag("source", source)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * The filters that are applied, e.g. {@code category+keyword}, or {@code none}.
+     */
+    static String shape(AddFilter filter) {
+        StringJoiner shape = new StringJoiner("+").setEmptyValue("none");
+        if (filter.hasCategory()) {
+            shape.add("category");
+        }
+        if (filter.hasDateAfter()) {
+            shape.add("date");
+        }
+        if (filter.hasKeyword()) {
+            shape.add("keyword");
+        }
+        return shape.toString();
+    }
+}
@@ -0,0 +1,133 @@
+package com.prz.edu.pl.ogloszone.add;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * {@link AddBatchImport} for the reactive deployment ({@code reactive} profile). WebFlux decodes the JSON array or
+ * NDJSON body one entry at a time; entries are handled in chunks of {@code chunk-size}, each stored by
+ * {@link ReactiveAddService#createAdds} before the next chunk is requested, so the body is never held in memory.
+ * Results, limits and metrics are the same as on the servlet stack, except that the decoder rejects a network read
+ * holding malformed JSON as a whole, so entries read together with it are not reported either; as on the servlet
+ * stack, entries from {@code received} on were not processed and can be sent again.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveAddBatchImport {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveAddBatchImport.class);
+
+    private final ReactiveAddService service;
+    private final ObjectReader reader;
+    private final Validator validator;
+    private final MeterRegistry meterRegistry;
+    private final int chunkSize;
+    private final int maxItems;
+
+    public ReactiveAddBatchImport(ReactiveAddService service,
+                                  ObjectMapper objectMapper,
+                                  Validator validator,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${ogloszone.batch.chunk-size:500}") int chunkSize,
+                                  @Value("${ogloszone.batch.max-items:50000}") int maxItems) {
+        this.service = service;
+        this.reader = objectMapper.readerFor(AddRequest.class);
+        this.validator = validator;
+        this.meterRegistry = meterRegistry;
+        this.chunkSize = chunkSize;
+        this.maxItems = maxItems;
+    }
+
+    public Mono<AddBatchResponse> importFrom(Flux<JsonNode> body) {
+        return Mono.defer(() -> {
+            AtomicInteger read = new AtomicInteger();
+            AtomicReference<String> error = new AtomicReference<>();
+            return body
+                    .<Entry>handle((node, sink) -> {
+                        int index = read.get();
+                        if (index == maxItems) {
+                            error.set("A batch can contain at most " + maxItems + " entries");
+                            sink.complete();
+                            return;
+                        }
+                        read.incrementAndGet();
+                        sink.next(entry(index, node));
+                    })
+                    .onErrorResume(DecodingException.class, e -> {
+                        error.set("Malformed JSON at entry " + read.get() + ": " + originalMessage(e));
+                        return Flux.empty();
+                    })
+                    .buffer(chunkSize)
+                    .concatMap(this::store)
+                    .collectList()
+                    .map(chunks -> {
+                        List<AddBatchItem> items = new ArrayList<>(read.get());
+                        chunks.forEach(items::addAll);
+                        int created = (int) items.stream()
+                                .filter(item -> item.status() == AddBatchItem.Status.CREATED)
+                                .count();
+                        logger.info("Batch import read {} entries and created {} announcements{}", items.size(),
+                                created, error.get() != null ? ", stopped: " + error.get() : "");
+                        return new AddBatchResponse(items.size(), created, error.get(), items);
+                    });
+        });
+    }
+
+    private Entry entry(int index, JsonNode node) {
+        try {
+            AddRequest request = node.isNull() ? null : reader.readValue(node);
+            List<String> violations = AddBatchImport.violations(validator, request);
+            return violations.isEmpty()
+                    ? new Entry(index, request, null)
+                    : new Entry(index, null, AddBatchItem.invalid(index, violations));
+        } catch (IOException e) {
+            String message = e instanceof JsonProcessingException json ? json.getOriginalMessage() : e.getMessage();
+            return new Entry(index, null, AddBatchItem.invalid(index, List.of(message)));
+        }
+    }
+
+    private Mono<List<AddBatchItem>> store(List<Entry> chunk) {
+        List<AddRequest> requests = chunk.stream().map(Entry::request).filter(Objects::nonNull).toList();
+        Mono<List<AddBatchItem>> stored = requests.isEmpty() ? Mono.just(List.of()) : service.createAdds(requests);
+        return stored.map(results -> {
+            List<AddBatchItem> items = new ArrayList<>(chunk.size());
+            int next = 0;
+            for (Entry entry : chunk) {
+                AddBatchItem item = entry.request() != null ? results.get(next++).at(entry.index()) : entry.invalid();
+                meterRegistry.counter("ogloszone.add.batch.items", "status", item.status().name().toLowerCase())
+                        .increment();
+                items.add(item);
+            }
+            return items;
+        });
+    }
+
+    private static String originalMessage(DecodingException e) {
+        return e.getCause() instanceof JsonProcessingException json ? json.getOriginalMessage() : e.getMessage();
+    }
+
+    /**
+     * One entry read from the body: a request to store, or the result of an invalid entry.
+     */
+    private record Entry(int index, AddRequest request, AddBatchItem invalid) {
+    }
+}
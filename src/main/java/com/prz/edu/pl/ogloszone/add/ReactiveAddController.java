@@ -0,0 +1,156 @@
+package com.prz.edu.pl.ogloszone.add;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.prz.edu.pl.ogloszone.config.WireFormatConfig;
+import jakarta.validation.Valid;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.Exceptions;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The {@link AddController} contract on WebFlux ({@code reactive} profile). Listings can additionally be
+ * streamed as {@code application/x-ndjson}, one summary per line, with backpressure down to the Mongo cursor.
+ * Conditional GETs are answered like on the servlet stack, see {@link AddEtags}. The live stream writes without
+ * blocking: events wait in a buffer of the same size as {@link AddLiveFeed}'s queues until Netty can send them,
+ * and a subscriber that overflows it is disconnected.
+ */
+@RestController
+@RequestMapping("/api/add")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveAddController {
+
+    private final ReactiveAddService service;
+    private final ReactiveAddBatchImport batchImport;
+    private final AddEtags etags;
+    private final AddLiveFeed liveFeed;
+
+    public ReactiveAddController(ReactiveAddService service, ReactiveAddBatchImport batchImport, AddEtags etags,
+                                 AddLiveFeed liveFeed) {
+        this.service = service;
+        this.batchImport = batchImport;
+        this.etags = etags;
+        this.liveFeed = liveFeed;
+    }
+
+    @PostMapping
+    public Mono<ResponseEntity<AddResponse>> createAdd(@Valid @RequestBody AddRequest add) {
+        return service.createAdd(add).map(created -> ResponseEntity.status(201).body(created));
+    }
+
+    @PostMapping(path = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Mono<ResponseEntity<AddBatchResponse>> createAdds(@RequestBody Flux<JsonNode> body) {
+        return batchImport.importFrom(body).map(ResponseEntity::ok);
+    }
+
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, WireFormatConfig.SMILE, MediaType.APPLICATION_CBOR_VALUE})
+    public Mono<ResponseEntity<?>> getAllAnnouncements(
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String dateAfter,
+            @RequestParam(required = false) String keyword,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String cursor,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        Mono<ResponseEntity<?>> query = Mono.defer(() -> {
+            String etag = etags.listing();
+            if (AddEtags.matches(ifNoneMatch, etag)) {
+                AddService.validateListing(category, dateAfter, keyword, page, size, cursor);
+                return Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).varyBy(HttpHeaders.ACCEPT)
+                        .build());
+            }
+            return (cursor != null
+                    ? service.getAnnouncementsAfter(category, dateAfter, keyword, cursor, size)
+                    : service.getAllAnnouncements(category, dateAfter, keyword, page, size))
+                    .map(response -> ResponseEntity.ok().eTag(etag).varyBy(HttpHeaders.ACCEPT).body(response));
+        });
+        if (!HotPageCache.covers(dateAfter, keyword, page, size, cursor) || !HotPageCache.servesFormat(accept)) {
+            return query;
+        }
+        return service.getFirstPage(category)
+                .<ResponseEntity<?>>map(hot -> ResponseEntity.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .eTag(hot.etag())
+                        .varyBy(HttpHeaders.ACCEPT)
+                        .body(hot.json()))
+                .switchIfEmpty(query);
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<AddSummary> streamAnnouncements(
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String dateAfter,
+            @RequestParam(required = false) String keyword,
+            @RequestParam(required = false) String cursor) {
+        return service.streamAnnouncements(category, dateAfter, keyword, cursor);
+    }
+
+    @GetMapping(path = "/live", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> followAnnouncements(@RequestParam(required = false) String category) {
+        // Rejects an invalid category with 400, or a subscriber too many with 503, before the stream starts.
+        AddService.categoryOrAll(category);
+        liveFeed.checkCapacity();
+        return Flux.<ServerSentEvent<String>>create(sink -> {
+                    AddLiveFeed.Subscription subscription = liveFeed.subscribe(category, new AddLiveFeed.Subscriber() {
+                        @Override
+                        public void send(List<AddLiveFeed.Event> events) {
+                            for (AddLiveFeed.Event event : events) {
+                                sink.next(event.isHeartbeat()
+                                        ? ServerSentEvent.<String>builder().comment("").build()
+                                        : ServerSentEvent.builder(event.data()).event(event.name()).build());
+                            }
+                        }
+
+                        @Override
+                        public void close() {
+                            sink.complete();
+                        }
+                    });
+                    sink.onDispose(subscription::cancel);
+                })
+                .onBackpressureBuffer(liveFeed.bufferSize(), dropped -> liveFeed.recordDisconnected(),
+                        BufferOverflowStrategy.ERROR)
+                .onErrorResume(Exceptions::isOverflow, overflow -> Flux.empty())
+                .take(liveFeed.timeout());
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<AddResponse>> getAdd(@PathVariable UUID id) {
+        return service.getAddById(id).map(add -> ResponseEntity.ok()
+                .eTag(AddEtags.of(add))
+                .lastModified(AddEtags.lastModified(add))
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(add));
+    }
+
+    @PostMapping("/batch-get")
+    public Mono<ResponseEntity<AddBatchGetResponse>> getAdds(@Valid @RequestBody AddBatchGetRequest request) {
+        return service.getAddsByIds(request.ids()).map(ResponseEntity::ok);
+    }
+
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<AddResponse>> updateAdd(@PathVariable UUID id, @RequestParam UUID editCode,
+                                                       @RequestParam(required = false) Long version,
+                                                       @Valid @RequestBody AddRequest updatedAdd) {
+        return service.updateAdd(id, editCode, version, updatedAdd).map(ResponseEntity::ok);
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<String>> deleteAdd(@PathVariable UUID id, @RequestParam UUID editCode,
+                                                  @RequestParam(required = false) Long version) {
+        return service.deleteAdd(id, editCode, version)
+                .then(Mono.fromSupplier(() -> ResponseEntity.status(204)
+                        .body(String.format("Announcement with id %s deleted successfully", id))));
+    }
+}
@@ -0,0 +1,8 @@
+package com.prz.edu.pl.ogloszone.add;
+
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ReactiveAddRepository extends ReactiveMongoRepository<Add, String>, ReactiveAddRepositoryCustom {
+}
@@ -0,0 +1,46 @@
+package com.prz.edu.pl.ogloszone.add;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Non-blocking counterpart of {@link AddRepositoryCustom}, running the same {@link AddQueries}.
+ */
+public interface ReactiveAddRepositoryCustom {
+
+    /**
+     * See {@link AddRepositoryCustom#insertUnordered}.
+     */
+    Mono<AddRepositoryCustom.BulkInsert> insertUnordered(List<Add> adds);
+
+    /**
+     * See {@link AddRepositoryCustom#findPage}.
+     */
+    Mono<Page<AddSummary>> findPage(AddFilter filter, Pageable pageable);
+
+    /**
+     * See {@link AddRepositoryCustom#findSlice}.
+     */
+    Mono<Slice<AddSummary>> findSlice(AddFilter filter, AddCursor cursor, int size);
+
+    /**
+     * Every announcement matching {@code filter} in {@code dateTime desc, _id desc} order, starting right after
+     * {@code cursor}. Documents are fetched from the server only as fast as the subscriber requests them.
+     */
+    Flux<AddSummary> streamAll(AddFilter filter, AddCursor cursor);
+
+    /**
+     * See {@link AddRepositoryCustom#updateIfMatches}; empty if nothing matched.
+     */
+    Mono<Add> updateIfMatches(Add changes, Long expectedVersion);
+
+    /**
+     * See {@link AddRepositoryCustom#deleteIfMatches}; empty if nothing matched.
+     */
+    Mono<Add> deleteIfMatches(String id, String editCode, Long expectedVersion);
+}
@@ -0,0 +1,125 @@
+package com.prz.edu.pl.ogloszone.add;
+
+import com.mongodb.MongoBulkWriteException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.BasicQuery;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs the queries built by {@link AddQueries} on the {@link ReactiveMongoTemplate}. Only the single collection
+ * layout is supported here; bucketed storage ({@link AddBuckets}) is implemented by the blocking repository.
+ */
+class ReactiveAddRepositoryImpl implements ReactiveAddRepositoryCustom {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    ReactiveAddRepositoryImpl(ReactiveMongoTemplate mongoTemplate, AddBuckets buckets) {
+        if (buckets.isBucketed()) {
+            throw new IllegalStateException("ogloszone.storage.layout=" + buckets.layout().name().toLowerCase()
+                    + " is not supported by the reactive profile");
+        }
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public Mono<AddRepositoryCustom.BulkInsert> insertUnordered(List<Add> adds) {
+        List<Add> versioned = adds.stream().map(AddRepositoryImpl::withInitialVersion).toList();
+        return mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Add.class)
+                .insert(versioned)
+                .execute()
+                .map(result -> Map.<Integer, String>of())
+                .onErrorResume(error -> bulkWriteFailure(error) != null, error -> {
+                    Map<Integer, String> failures = new HashMap<>();
+                    bulkWriteFailure(error).getWriteErrors()
+                            .forEach(writeError -> failures.put(writeError.getIndex(), writeError.getMessage()));
+                    return Mono.just(failures);
+                })
+                .map(failures -> new AddRepositoryCustom.BulkInsert(versioned, failures));
+    }
+
+    @Override
+    public Mono<Page<AddSummary>> findPage(AddFilter filter, Pageable pageable) {
+        BasicQuery query = AddQueries.pageQuery(filter);
+        query.skip(pageable.getOffset()).limit(pageable.getPageSize());
+
+        return findSummaries(query).collectList().flatMap(content -> {
+            // Same shortcut as PageableExecutionUtils: a short page already tells the total.
+            if (content.size() < pageable.getPageSize() && (pageable.getOffset() == 0 || !content.isEmpty())) {
+                return Mono.just(page(content, pageable, pageable.getOffset() + content.size()));
+            }
+            return count(filter).map(total -> page(content, pageable, total));
+        });
+    }
+
+    @Override
+    public Mono<Slice<AddSummary>> findSlice(AddFilter filter, AddCursor cursor, int size) {
+        BasicQuery query = AddQueries.sliceQuery(filter, cursor);
+        query.limit(size + 1);
+
+        return findSummaries(query).collectList().map(content -> {
+            boolean hasNext = content.size() > size;
+            List<AddSummary> page = hasNext ? content.subList(0, size) : content;
+            return new SliceImpl<>(page, PageRequest.of(0, size, AddQueries.NEWEST_FIRST), hasNext);
+        });
+    }
+
+    @Override
+    public Flux<AddSummary> streamAll(AddFilter filter, AddCursor cursor) {
+        return findSummaries(AddQueries.sliceQuery(filter, cursor));
+    }
+
+    @Override
+    public Mono<Add> updateIfMatches(Add changes, Long expectedVersion) {
+        return mongoTemplate.findAndModify(AddQueries.guard(changes.id(), changes.editCode(), expectedVersion),
+                AddQueries.edit(changes), FindAndModifyOptions.options().returnNew(true), Add.class);
+    }
+
+    @Override
+    public Mono<Add> deleteIfMatches(String id, String editCode, Long expectedVersion) {
+        return mongoTemplate.findAndRemove(AddQueries.guard(id, editCode, expectedVersion), Add.class);
+    }
+
+    /**
+     * The driver's bulk write error, however the template translated it; {@code null} for any other failure.
+     */
+    private static MongoBulkWriteException bulkWriteFailure(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoBulkWriteException bulk) {
+                return bulk;
+            }
+        }
+        return null;
+    }
+
+    private Mono<Long> count(AddFilter filter) {
+        if (filter.isEmpty()) {
+            return mongoTemplate.estimatedCount(Add.class);
+        }
+        return mongoTemplate.count(AddQueries.countQuery(filter), Add.class);
+    }
+
+    private Flux<AddSummary> findSummaries(Query query) {
+        return mongoTemplate.query(Add.class)
+                .as(AddSummary.class)
+                .matching(query)
+                .all();
+    }
+
+    private static Page<AddSummary> page(List<AddSummary> content, Pageable pageable, long total) {
+        return new PageImpl<>(content, pageable, total);
+    }
+}
@@ -0,0 +1,215 @@
+package com.prz.edu.pl.ogloszone.add;
+
+import com.prz.edu.pl.ogloszone.email.EmailService;
+import com.prz.edu.pl.ogloszone.email.ReactivePendingEmailRepository;
+import com.prz.edu.pl.ogloszone.util.PagedResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * {@link AddService} for the reactive deployment ({@code reactive} profile): same rules and responses, but
+ * every Mongo call, including the email hand-off to the outbox, is non-blocking.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveAddService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveAddService.class);
+
+    private final ReactiveAddRepository repository;
+    private final ReactivePendingEmailRepository outbox;
+    private final EmailService emailService;
+    private final AddCache cache;
+    private final HotPageCache hotPages;
+    private final ListingMetrics listingMetrics;
+    private final ApplicationEventPublisher eventPublisher;
+    private final AddIdFilter idFilter;
+
+    public ReactiveAddService(ReactiveAddRepository repository, ReactivePendingEmailRepository outbox,
+                              EmailService emailService, AddCache cache, HotPageCache hotPages,
+                              ListingMetrics listingMetrics, ApplicationEventPublisher eventPublisher,
+                              AddIdFilter idFilter) {
+        this.repository = repository;
+        this.outbox = outbox;
+        this.emailService = emailService;
+        this.cache = cache;
+        this.hotPages = hotPages;
+        this.listingMetrics = listingMetrics;
+        this.eventPublisher = eventPublisher;
+        this.idFilter = idFilter;
+    }
+
+    public Mono<AddResponse> createAdd(AddRequest addRequest) {
+        return Mono.defer(() -> {
+                    logger.info("Creating new announcement with title: {}", addRequest.title());
+                    return repository.save(AddService.newAdd(addRequest));
+                })
+                .flatMap(savedAdd -> queueConfirmationEmail(savedAdd).thenReturn(savedAdd))
+                .doOnNext(savedAdd -> {
+                    eventPublisher.publishEvent(AddChangeEvent.local(AddChangeEvent.Type.CREATED, savedAdd));
+                    logger.info("Successfully created announcement with ID: {}", savedAdd.id());
+                })
+                .map(AddResponse::new);
+    }
+
+    /**
+     * See {@link AddService#createAdds}; the insert and the outbox write do not block.
+     */
+    public Mono<List<AddBatchItem>> createAdds(List<AddRequest> requests) {
+        return Mono.defer(() -> {
+            logger.info("Creating {} announcements in one batch", requests.size());
+            AddService.BatchChunk chunk = new AddService.BatchChunk(requests);
+            Mono<AddRepositoryCustom.BulkInsert> inserted = chunk.adds.isEmpty()
+                    ? Mono.just(new AddRepositoryCustom.BulkInsert(List.of(), Map.of()))
+                    : repository.insertUnordered(chunk.adds);
+            return inserted.map(chunk::stored)
+                    .flatMap(created -> queueConfirmationEmails(created).thenReturn(created))
+                    .map(created -> {
+                        created.forEach(add ->
+                                eventPublisher.publishEvent(AddChangeEvent.local(AddChangeEvent.Type.CREATED, add)));
+                        logger.info("Created {} of {} announcements in the batch", created.size(), requests.size());
+                        return chunk.results();
+                    });
+        });
+    }
+
+    public Mono<AddResponse> getAddById(UUID id) {
+        if (!idFilter.mightContain(id)) {
+            logger.debug("Announcement with ID {} rejected by the id filter", id);
+            return Mono.error(AddService.notFound(id));
+        }
+        return Mono.fromFuture(() -> cache.getAsync(id.toString(), key -> repository.findById(key)
+                .map(AddResponse::new)
+                .switchIfEmpty(Mono.error(() -> {
+                    logger.warn("Announcement with ID {} not found", id);
+                    return AddService.notFound(id);
+                }))
+                .toFuture()));
+    }
+
+    /**
+     * See {@link AddService#getAddsByIds}.
+     */
+    public Mono<AddBatchGetResponse> getAddsByIds(List<UUID> ids) {
+        return Mono.defer(() -> {
+            Set<String> keys = AddService.batchGetKeys(ids);
+            return Mono.fromFuture(() -> cache.getAllAsync(keys, missing -> repository.findAllById(List.copyOf(missing))
+                            .collectMap(Add::id, AddResponse::new)
+                            .toFuture()))
+                    .map(found -> AddService.batchGetResponse(keys, found));
+        });
+    }
+
+    public Mono<AddResponse> updateAdd(UUID id, UUID editCode, Long expectedVersion, AddRequest addUpdate) {
+        return Mono.defer(() -> {
+                    logger.info("Updating announcement with ID: {}, editCode: {} and version: {}",
+                            id, editCode, expectedVersion);
+                    return repository.updateIfMatches(AddService.changes(id, editCode, expectedVersion, addUpdate),
+                            expectedVersion);
+                })
+                .switchIfEmpty(rejection(id, editCode, expectedVersion))
+                .flatMap(updatedAdd -> queueConfirmationEmail(updatedAdd).thenReturn(updatedAdd))
+                .doOnNext(updatedAdd -> {
+                    eventPublisher.publishEvent(AddChangeEvent.local(AddChangeEvent.Type.UPDATED, updatedAdd));
+                    logger.info("Successfully updated announcement with ID: {} to version {}", id, updatedAdd.version());
+                })
+                .map(AddResponse::new);
+    }
+
+    public Mono<Void> deleteAdd(UUID id, UUID editCode, Long expectedVersion) {
+        return Mono.defer(() -> {
+                    logger.info("Deleting announcement with ID: {}, editCode: {} and version: {}",
+                            id, editCode, expectedVersion);
+                    return repository.deleteIfMatches(id.toString(), editCode.toString(), expectedVersion);
+                })
+                .switchIfEmpty(rejection(id, editCode, expectedVersion))
+                .doOnNext(deletedAdd -> {
+                    eventPublisher.publishEvent(AddChangeEvent.local(AddChangeEvent.Type.DELETED, deletedAdd));
+                    logger.info("Successfully deleted announcement with ID: {}", id);
+                })
+                .then();
+    }
+
+    public Mono<PagedResponse<AddSummary>> getAllAnnouncements(String category, String date, String keyword,
+                                                               int page, int size) {
+        return Mono.defer(() -> {
+            logger.info("Fetching all announcements with filters - category: {}, date: {}, keyword: {}, page: {}, size: {}",
+                    category, date, keyword, page, size);
+            AddFilter filter = AddService.toFilter(category, AddService.parseDate(date), keyword);
+            return listingMetrics.time(repository.findPage(filter, AddService.pageRequest(page, size)),
+                    filter, "page", "mongo");
+        }).map(PagedResponse::of);
+    }
+
+    public Mono<PagedResponse<AddSummary>> getAnnouncementsAfter(String category, String date, String keyword,
+                                                                 String cursor, int size) {
+        return Mono.defer(() -> {
+            logger.info("Fetching announcements with filters - category: {}, date: {}, keyword: {}, cursor: {}, size: {}",
+                    category, date, keyword, cursor, size);
+            AddService.validateSliceSize(size);
+            AddFilter filter = AddService.toFilter(category, AddService.parseDate(date), keyword);
+            return listingMetrics.time(repository.findSlice(filter, AddService.parseCursor(cursor), size),
+                    filter, "cursor", "mongo");
+        }).map(slice -> AddService.sliceResponse(slice, size));
+    }
+
+    /**
+     * JSON of the default first page and its ETag if {@link HotPageCache} has it rendered; empty otherwise, so
+     * the caller falls back to a query instead of blocking on the render.
+     */
+    public Mono<HotPageCache.Page> getFirstPage(String category) {
+        return Mono.defer(() -> {
+            AddFilter filter = new AddFilter(AddService.categoryOrAll(category), null, null);
+            return listingMetrics.time(Mono.justOrEmpty(hotPages.getPageIfPresent(filter.category())),
+                    filter, "page", "hot-page");
+        });
+    }
+
+    /**
+     * All matching summaries, newest first, starting after {@code cursor}. Demand from the client connection
+     * is propagated to the Mongo cursor, so a slow reader never makes the server buffer the listing.
+     */
+    public Flux<AddSummary> streamAnnouncements(String category, String date, String keyword, String cursor) {
+        return Flux.defer(() -> {
+            logger.info("Streaming announcements with filters - category: {}, date: {}, keyword: {}, cursor: {}",
+                    category, date, keyword, cursor);
+            AddFilter filter = AddService.toFilter(category, AddService.parseDate(date), keyword);
+            return listingMetrics.time(repository.streamAll(filter, AddService.parseCursor(cursor)),
+                    filter, "stream", "mongo");
+        });
+    }
+
+    private Mono<Void> queueConfirmationEmail(Add add) {
+        return outbox.save(emailService.confirmationEmail(add))
+                .doOnNext(email -> logger.info("Queued confirmation email for add ID: {}, to: {}",
+                        add.id(), add.contact().email()))
+                .then();
+    }
+
+    private Mono<Void> queueConfirmationEmails(List<Add> adds) {
+        if (adds.isEmpty()) {
+            return Mono.empty();
+        }
+        return outbox.insert(adds.stream().map(emailService::confirmationEmail).toList())
+                .then()
+                .doOnSuccess(done -> logger.info("Queued {} confirmation emails", adds.size()));
+    }
+
+    private Mono<Add> rejection(UUID id, UUID editCode, Long expectedVersion) {
+        return Mono.defer(() -> repository.findById(id.toString())
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(current -> Mono.error(AddService.rejection(id, editCode, expectedVersion, current.orElse(null)))));
+    }
+}
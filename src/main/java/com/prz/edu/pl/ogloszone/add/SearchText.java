@@ -0,0 +1,49 @@
+package com.prz.edu.pl.ogloszone.add;
+
+import org.springframework.data.mongodb.core.index.TextIndexed;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Search-only copy of the title and content, folded to lowercase ASCII words (so "Łódź" and "lodz" match)
+ * and without Polish stop words. The collection's text index is built on these fields with language "none",
+ * and keywords are normalized the same way before searching.
+ */
+public record SearchText(
+        @TextIndexed(weight = 3) String title,
+        @TextIndexed String content) {
+
+    private static final Locale POLISH = Locale.forLanguageTag("pl-PL");
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Set<String> STOP_WORDS = Set.of(
+            "ale", "bez", "by", "co", "czy", "dla", "do", "go", "ich", "jak", "jest", "juz", "ma", "na", "nad",
+            "od", "oraz", "po", "pod", "przez", "przy", "sa", "sie", "ta", "tak", "te", "to", "ten", "tez",
+            "we", "za", "ze");
+
+    public static SearchText of(String title, String content) {
+        return new SearchText(normalize(title), normalize(content));
+    }
+
+    public static String normalize(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        String folded = COMBINING_MARKS.matcher(Normalizer.normalize(text.toLowerCase(POLISH), Normalizer.Form.NFD))
+                .replaceAll("")
+                .replace('ł', 'l');
+        StringBuilder normalized = new StringBuilder(folded.length());
+        for (String word : NON_WORD.split(folded)) {
+            if (word.length() > 1 && !STOP_WORDS.contains(word)) {
+                if (!normalized.isEmpty()) {
+                    normalized.append(' ');
+                }
+                normalized.append(word);
+            }
+        }
+        return normalized.toString();
+    }
+}
@@ -0,0 +1,60 @@
+package com.prz.edu.pl.ogloszone.add;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.stream.Stream;
+
+/**
+ * Fills in {@link SearchText} for announcements stored before the text index existed, so keyword search
+ * finds them too. Runs once per start and is a no-op when every document already has it.
+ */
+@Component
+public class SearchTextBackfill implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(SearchTextBackfill.class);
+    private static final int BATCH_SIZE = 500;
+
+    private final MongoTemplate mongoTemplate;
+
+    public SearchTextBackfill(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Query missing = Query.query(Criteria.where("search").exists(false));
+        missing.fields().include("title", "content");
+        missing.cursorBatchSize(BATCH_SIZE);
+
+        int updated = 0;
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Add.class);
+        int pending = 0;
+        try (Stream<Document> documents = mongoTemplate.stream(missing, Document.class, "announcements")) {
+            for (Document document : (Iterable<Document>) documents::iterator) {
+                SearchText search = SearchText.of(document.getString("title"), document.getString("content"));
+                bulk.updateOne(Query.query(Criteria.where("_id").is(document.get("_id"))), Update.update("search", search));
+                if (++pending == BATCH_SIZE) {
+                    updated += bulk.execute().getModifiedCount();
+                    bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Add.class);
+                    pending = 0;
+                }
+            }
+        }
+        if (pending > 0) {
+            updated += bulk.execute().getModifiedCount();
+        }
+        if (updated > 0) {
+            logger.info("Backfilled search text for {} announcements", updated);
+        }
+    }
+}
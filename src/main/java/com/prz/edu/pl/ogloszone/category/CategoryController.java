@@ -1,5 +1,7 @@
 package com.prz.edu.pl.ogloszone.category;
 
+import com.prz.edu.pl.ogloszone.add.AddCounters;
+import com.prz.edu.pl.ogloszone.add.AddCounts;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -18,6 +20,12 @@ import java.util.stream.Collectors;
 @RequestMapping("/api/categories")
 public class CategoryController {
 
+    private final AddCounters counters;
+
+    public CategoryController(AddCounters counters) {
+        this.counters = counters;
+    }
+
     @GetMapping
     @Operation(summary = "Get all categories",
             description = "Retrieves a sorted list of all available category display names.")
@@ -34,4 +42,17 @@ public class CategoryController {
                 .collect(Collectors.toList());
         return ResponseEntity.ok(sortedCategories);
     }
-}
\ No newline at end of file
+
+    @GetMapping("/counts")
+    @Operation(summary = "Get announcement counts",
+            description = "Returns the number of announcements in total, per category and per day from counters "
+                    + "kept in memory, without querying the database. Counts follow every change right away and "
+                    + "are rebuilt from the database periodically.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Counts retrieved successfully",
+                    content = @Content(schema = @Schema(implementation = AddCounts.class)))
+    })
+    public ResponseEntity<AddCounts> getCounts() {
+        return ResponseEntity.ok(counters.counts());
+    }
+}
@@ -0,0 +1,38 @@
+package com.prz.edu.pl.ogloszone.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connection pool of the Mongo client. With virtual threads Tomcat no longer caps concurrent requests at its
+ * thread pool, so the pool becomes the limit: requests queue for a connection instead of a thread, and a short
+ * wait timeout turns overload into fast errors rather than requests piling up for the driver's default two
+ * minutes. Only active with {@code spring.threads.virtual.enabled=true}; on platform threads Tomcat's pool
+ * already bounds concurrency, and up to its 200 threads may wait on the driver's default pool of 100 connections.
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class MongoPoolConfig {
+
+    @Bean
+    public MongoClientSettingsBuilderCustomizer mongoPoolCustomizer(
+            @Value("${ogloszone.mongo.pool.max-size:50}") int maxSize,
+            @Value("${ogloszone.mongo.pool.min-size:5}") int minSize,
+            @Value("${ogloszone.mongo.pool.max-connecting:4}") int maxConnecting,
+            @Value("${ogloszone.mongo.pool.max-wait:PT2S}") Duration maxWait,
+            @Value("${ogloszone.mongo.pool.max-idle:PT5M}") Duration maxIdle) {
+        return builder -> builder.applyToConnectionPoolSettings(pool -> pool
+                .maxSize(maxSize)
+                .minSize(minSize)
+                .maxConnecting(maxConnecting)
+                .maxWaitTime(maxWait.toMillis(), TimeUnit.MILLISECONDS)
+                .maxConnectionIdleTime(maxIdle.toMillis(), TimeUnit.MILLISECONDS));
+    }
+}
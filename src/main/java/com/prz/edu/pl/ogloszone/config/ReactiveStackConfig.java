@@ -0,0 +1,37 @@
+package com.prz.edu.pl.ogloszone.config;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.reactivestreams.client.MongoClient;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.autoconfigure.mongo.ReactiveMongoClientFactory;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Infrastructure of the {@code reactive} profile.
+ * <ul>
+ *     <li>Netty as the server: Boot would otherwise pick Tomcat, which is on the classpath for the servlet
+ *     build.</li>
+ *     <li>The reactive Mongo client, replacing Boot's {@code MongoReactiveAutoConfiguration}, whose Netty
+ *     settings customizer calls a method removed in the 5.x driver and would break both clients. It gets the
+ *     same settings customizers as the blocking client, including {@link MongoPoolConfig}.</li>
+ * </ul>
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveStackConfig {
+
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    @Bean(destroyMethod = "close")
+    public MongoClient reactiveStreamsMongoClient(MongoClientSettings settings,
+                                                  ObjectProvider<MongoClientSettingsBuilderCustomizer> customizers) {
+        return new ReactiveMongoClientFactory(customizers.orderedStream().toList()).createMongoClient(settings);
+    }
+}
@@ -0,0 +1,29 @@
+package com.prz.edu.pl.ogloszone.config;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * {@code GET /actuator/slowqueries} lists the slowest Mongo query shapes with their explain plans. Read-only: the
+ * actuator shares the public port, and the list starts over with every restart.
+ */
+@Component
+@Endpoint(id = "slowqueries")
+@ConditionalOnProperty(name = "ogloszone.mongo.slow-query.enabled", havingValue = "true", matchIfMissing = true)
+public class SlowQueryEndpoint {
+
+    private final SlowQueryProfiler profiler;
+
+    public SlowQueryEndpoint(SlowQueryProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    @ReadOperation
+    public List<SlowQueryProfiler.SlowQuery> slowQueries() {
+        return profiler.worstOffenders();
+    }
+}
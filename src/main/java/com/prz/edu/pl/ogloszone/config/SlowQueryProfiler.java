@@ -0,0 +1,347 @@
+package com.prz.edu.pl.ogloszone.config;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import jakarta.annotation.PreDestroy;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+/**
+ * Keeps the slowest Mongo query shapes seen since startup, for every client the application creates. Commands
+ * over {@code ogloszone.mongo.slow-query.threshold} are grouped by shape (the command with its values replaced
+ * by {@code ?}); the {@code capacity} slowest shapes are kept and the rest are dropped. A shape is explained
+ * with {@code executionStats} at most once per {@code explain-interval}, on a single background thread that
+ * drops work while busy, so a burst of slow queries never turns into a burst of explains. Read through the
+ * {@code slowqueries} actuator endpoint.
+ */
+@Component
+@ConditionalOnProperty(name = "ogloszone.mongo.slow-query.enabled", havingValue = "true", matchIfMissing = true)
+public class SlowQueryProfiler implements CommandListener, MongoClientSettingsBuilderCustomizer {
+
+    private static final Logger logger = LoggerFactory.getLogger(SlowQueryProfiler.class);
+
+    private static final Set<String> PROFILED = Set.of(
+            "find", "aggregate", "count", "distinct", "findAndModify", "update", "delete");
+    private static final Set<String> ORDER_FIELDS = Set.of("sort", "projection");
+    private static final Set<String> SESSION_FIELDS = Set.of(
+            "$db", "lsid", "$clusterTime", "$readPreference", "txnNumber", "autocommit", "startTransaction",
+            "readConcern", "writeConcern", "apiVersion", "apiStrict", "apiDeprecationErrors");
+
+    private final Duration threshold;
+    private final int capacity;
+    private final Duration explainInterval;
+    private final BiFunction<String, BsonDocument, Document> explainer;
+    private final Executor explainExecutor;
+    private final Clock clock;
+
+    private final Map<Integer, BsonDocument> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Entry> worst = new HashMap<>();
+
+    @Autowired
+    public SlowQueryProfiler(ObjectProvider<MongoTemplate> mongoTemplate,
+                             @Value("${ogloszone.mongo.slow-query.threshold:PT0.1S}") Duration threshold,
+                             @Value("${ogloszone.mongo.slow-query.capacity:50}") int capacity,
+                             @Value("${ogloszone.mongo.slow-query.explain-interval:PT10M}") Duration explainInterval) {
+        this(threshold, capacity, explainInterval,
+                (database, command) -> mongoTemplate.getObject().getMongoDatabaseFactory()
+                        .getMongoDatabase(database).runCommand(command),
+                new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(16),
+                        Thread.ofPlatform().daemon().name("slow-query-explain").factory(),
+                        new ThreadPoolExecutor.DiscardPolicy()),
+                Clock.systemUTC());
+    }
+
+    SlowQueryProfiler(Duration threshold, int capacity, Duration explainInterval,
+                      BiFunction<String, BsonDocument, Document> explainer, Executor explainExecutor, Clock clock) {
+        this.threshold = threshold;
+        this.capacity = capacity;
+        this.explainInterval = explainInterval;
+        this.explainer = explainer;
+        this.explainExecutor = explainExecutor;
+        this.clock = clock;
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (explainExecutor instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Override
+    public void customize(MongoClientSettings.Builder builder) {
+        builder.addCommandListener(this);
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        if (PROFILED.contains(event.getCommandName())) {
+            // The driver may release the command's buffer once the callback returns.
+            inFlight.put(event.getRequestId(), event.getCommand().clone());
+        }
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        BsonDocument command = inFlight.remove(event.getRequestId());
+        if (command != null) {
+            record(event.getDatabaseName(), event.getCommandName(), command,
+                    Duration.ofNanos(event.getElapsedTime(TimeUnit.NANOSECONDS)));
+        }
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        inFlight.remove(event.getRequestId());
+    }
+
+    /**
+     * The slowest shapes, slowest first.
+     */
+    public synchronized List<SlowQuery> worstOffenders() {
+        return worst.values().stream()
+                .sorted(Comparator.comparing((Entry entry) -> entry.max).reversed())
+                .map(Entry::snapshot)
+                .toList();
+    }
+
+    void record(String database, String commandName, BsonDocument command, Duration elapsed) {
+        if (elapsed.compareTo(threshold) < 0) {
+            return;
+        }
+        String shape = shape(commandName, command);
+        Instant now = clock.instant();
+        boolean explain;
+        synchronized (this) {
+            Entry entry = worst.get(shape);
+            if (entry == null) {
+                if (!makeRoomFor(elapsed)) {
+                    return;
+                }
+                entry = new Entry(shape, commandName, collection(commandName, command));
+                worst.put(shape, entry);
+                logger.warn("Slow Mongo {} took {} ms: {}", commandName, elapsed.toMillis(), shape);
+            }
+            entry.observe(elapsed, now);
+            explain = entry.explainedAt == null || entry.explainedAt.plus(explainInterval).isBefore(now);
+            if (explain) {
+                entry.explainedAt = now;
+            }
+        }
+        if (explain) {
+            explainExecutor.execute(() -> explain(database, shape, command));
+        }
+    }
+
+    private boolean makeRoomFor(Duration elapsed) {
+        if (worst.size() < capacity) {
+            return true;
+        }
+        Entry fastest = worst.values().stream().min(Comparator.comparing(entry -> entry.max)).orElseThrow();
+        if (fastest.max.compareTo(elapsed) >= 0) {
+            return false;
+        }
+        worst.remove(fastest.shape);
+        return true;
+    }
+
+    private void explain(String database, String shape, BsonDocument command) {
+        SESSION_FIELDS.forEach(command::remove);
+        try {
+            Document result = explainer.apply(database, new BsonDocument("explain", command)
+                    .append("verbosity", new BsonString("executionStats")));
+            Plan plan = plan(result, clock.instant());
+            synchronized (this) {
+                Entry entry = worst.get(shape);
+                if (entry != null) {
+                    entry.plan = plan;
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Could not explain slow Mongo query {}: {}", shape, e.getMessage());
+        }
+    }
+
+    /**
+     * The command without its values, e.g. {@code find announcements {"filter": {"category": "?"}, ...}}, so
+     * that the same query with different arguments groups together. Sort and projection keep their values,
+     * since those are part of the shape.
+     */
+    static String shape(String commandName, BsonDocument command) {
+        BsonDocument shape = new BsonDocument();
+        switch (commandName) {
+            case "update" -> shape.append("q", normalize(first(command, "updates").get("q")));
+            case "delete" -> shape.append("q", normalize(first(command, "deletes").get("q")));
+            default -> command.forEach((field, value) -> {
+                if (!field.equals(commandName) && !SESSION_FIELDS.contains(field)
+                        && !field.equals("cursor") && !field.equals("limit") && !field.equals("batchSize")) {
+                    shape.append(field, ORDER_FIELDS.contains(field) ? value : normalize(value));
+                }
+            });
+        }
+        return commandName + " " + collection(commandName, command) + " " + shape.toJson();
+    }
+
+    private static BsonValue normalize(BsonValue value) {
+        if (value == null) {
+            return new BsonString("?");
+        }
+        if (value.isDocument()) {
+            BsonDocument normalized = new BsonDocument();
+            value.asDocument().forEach((field, nested) -> normalized.append(field, normalize(nested)));
+            return normalized;
+        }
+        if (value.isArray() && !value.asArray().isEmpty() && value.asArray().get(0).isDocument()) {
+            BsonArray normalized = new BsonArray();
+            value.asArray().forEach(element -> normalized.add(normalize(element)));
+            return normalized;
+        }
+        return new BsonString("?");
+    }
+
+    private static BsonDocument first(BsonDocument command, String field) {
+        BsonArray statements = command.getArray(field, new BsonArray());
+        return statements.isEmpty() ? new BsonDocument() : statements.get(0).asDocument();
+    }
+
+    private static String collection(String commandName, BsonDocument command) {
+        BsonValue collection = command.get(commandName);
+        return collection != null && collection.isString() ? collection.asString().getValue() : "?";
+    }
+
+    /**
+     * Winning plan and execution counters of an {@code explain} result, for plain and aggregation commands.
+     */
+    static Plan plan(Document explain, Instant explainedAt) {
+        Document winningPlan = find(explain, "winningPlan");
+        Document stats = find(explain, "executionStats");
+        List<String> stages = new ArrayList<>();
+        List<String> indexes = new ArrayList<>();
+        if (winningPlan != null) {
+            collectStages(winningPlan, stages, indexes);
+        }
+        return new Plan(
+                String.join(" > ", stages),
+                indexes.isEmpty() ? null : indexes.get(0),
+                stats == null ? null : number(stats, "totalKeysExamined"),
+                stats == null ? null : number(stats, "totalDocsExamined"),
+                stats == null ? null : number(stats, "nReturned"),
+                explainedAt);
+    }
+
+    private static Document find(Object node, String key) {
+        if (node instanceof Document document) {
+            if (document.get(key) instanceof Document found) {
+                return found;
+            }
+            for (Object value : document.values()) {
+                Document found = find(value, key);
+                if (found != null) {
+                    return found;
+                }
+            }
+        } else if (node instanceof List<?> list) {
+            for (Object value : list) {
+                Document found = find(value, key);
+                if (found != null) {
+                    return found;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static void collectStages(Object node, List<String> stages, List<String> indexes) {
+        if (node instanceof Document document) {
+            if (document.get("stage") instanceof String stage) {
+                stages.add(stage);
+            }
+            if (document.get("indexName") instanceof String index) {
+                indexes.add(index);
+            }
+            document.values().forEach(value -> collectStages(value, stages, indexes));
+        } else if (node instanceof List<?> list) {
+            list.forEach(value -> collectStages(value, stages, indexes));
+        }
+    }
+
+    private static Long number(Document document, String key) {
+        return document.get(key) instanceof Number number ? number.longValue() : null;
+    }
+
+    public record SlowQuery(String shape, String command, String collection, long count, long maxMs,
+                            long lastMs, Instant lastSeen, Plan plan) {
+    }
+
+    /**
+     * {@code stages} lists the winning plan from the root down, e.g. {@code LIMIT > FETCH > IXSCAN}; a
+     * {@code COLLSCAN} means no index was used.
+     */
+    public record Plan(String stages, String index, Long keysExamined, Long docsExamined, Long returned,
+                       Instant explainedAt) {
+    }
+
+    private static final class Entry {
+
+        private final String shape;
+        private final String command;
+        private final String collection;
+        private long count;
+        private Duration max = Duration.ZERO;
+        private Duration last;
+        private Instant lastSeen;
+        private Instant explainedAt;
+        private Plan plan;
+
+        Entry(String shape, String command, String collection) {
+            this.shape = shape;
+            this.command = command;
+            this.collection = collection;
+        }
+
+        void observe(Duration elapsed, Instant now) {
+            count++;
+            last = elapsed;
+            lastSeen = now;
+            if (elapsed.compareTo(max) > 0) {
+                max = elapsed;
+            }
+        }
+
+        SlowQuery snapshot() {
+            return new SlowQuery(shape, command, collection, count, max.toMillis(), last.toMillis(), lastSeen, plan);
+        }
+    }
+}
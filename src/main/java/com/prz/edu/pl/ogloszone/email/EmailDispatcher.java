@@ -0,0 +1,195 @@
+package com.prz.edu.pl.ogloszone.email;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains the email outbox. Each run claims a batch of due emails and sends them over a single SMTP
+ * connection; failed emails are retried with exponential backoff and dead-lettered after the last attempt.
+ * Dead letters are kept for {@code ogloszone.email.outbox.dead-retention} and then expire.
+ */
+@Component
+public class EmailDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailDispatcher.class);
+
+    private final PendingEmailRepository outbox;
+    private final JavaMailSender mailSender;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration lease;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration deadRetention;
+
+    private final AtomicLong pendingCount = new AtomicLong();
+    private final AtomicLong deadCount = new AtomicLong();
+    private final Timer sendTimer;
+    private final Timer deliveryDelay;
+    private final Counter sentCount;
+    private final Counter retriedCount;
+    private final Counter deadLetteredCount;
+
+    public EmailDispatcher(PendingEmailRepository outbox,
+                           JavaMailSender mailSender,
+                           MeterRegistry meterRegistry,
+                           @Value("${ogloszone.email.outbox.batch-size:50}") int batchSize,
+                           @Value("${ogloszone.email.outbox.max-attempts:5}") int maxAttempts,
+                           @Value("${ogloszone.email.outbox.lease:PT2M}") Duration lease,
+                           @Value("${ogloszone.email.outbox.initial-backoff:PT30S}") Duration initialBackoff,
+                           @Value("${ogloszone.email.outbox.max-backoff:PT1H}") Duration maxBackoff,
+                           @Value("${ogloszone.email.outbox.dead-retention:P7D}") Duration deadRetention) {
+        this.outbox = outbox;
+        this.mailSender = mailSender;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.lease = lease;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.deadRetention = deadRetention;
+
+        Gauge.builder("ogloszone.email.outbox.size", pendingCount, AtomicLong::get)
+                .description("Emails waiting in the outbox")
+                .tag("status", "pending")
+                .register(meterRegistry);
+        Gauge.builder("ogloszone.email.outbox.size", deadCount, AtomicLong::get)
+                .description("Emails waiting in the outbox")
+                .tag("status", "dead")
+                .register(meterRegistry);
+        this.sendTimer = Timer.builder("ogloszone.email.send")
+                .description("SMTP round trip for one dispatched batch")
+                .register(meterRegistry);
+        this.deliveryDelay = Timer.builder("ogloszone.email.delivery.delay")
+                .description("Time from queueing an email to handing it to the SMTP server")
+                .register(meterRegistry);
+        this.sentCount = sendCounter(meterRegistry, "sent");
+        this.retriedCount = sendCounter(meterRegistry, "retried");
+        this.deadLetteredCount = sendCounter(meterRegistry, "dead");
+    }
+
+    @Scheduled(fixedDelayString = "${ogloszone.email.outbox.poll-interval-ms:5000}")
+    public void dispatchPendingEmails() {
+        List<PendingEmail> batch = claimBatch();
+        if (!batch.isEmpty()) {
+            logger.debug("Dispatching {} queued emails", batch.size());
+            send(batch);
+        }
+        pendingCount.set(outbox.countByStatus(EmailStatus.PENDING));
+        deadCount.set(outbox.countByStatus(EmailStatus.DEAD));
+    }
+
+    private List<PendingEmail> claimBatch() {
+        List<PendingEmail> batch = new ArrayList<>(batchSize);
+        while (batch.size() < batchSize) {
+            PendingEmail email = outbox.claimNext(lease).orElse(null);
+            if (email == null) {
+                break;
+            }
+            batch.add(email);
+        }
+        return batch;
+    }
+
+    private void send(List<PendingEmail> batch) {
+        Map<MimeMessage, PendingEmail> messages = new LinkedHashMap<>();
+        for (PendingEmail email : batch) {
+            try {
+                messages.put(formEmail(email), email);
+            } catch (MessagingException e) {
+                deadLetter(email, e.getMessage());
+            }
+        }
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        Map<Object, Exception> failures = Map.of();
+        Timer.Sample sample = Timer.start();
+        try {
+            mailSender.send(messages.keySet().toArray(MimeMessage[]::new));
+        } catch (MailSendException e) {
+            failures = e.getFailedMessages().isEmpty() ? failAll(messages, e) : e.getFailedMessages();
+        } catch (MailException e) {
+            failures = failAll(messages, e);
+        } finally {
+            sample.stop(sendTimer);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<String> sent = new ArrayList<>();
+        for (Map.Entry<MimeMessage, PendingEmail> entry : messages.entrySet()) {
+            PendingEmail email = entry.getValue();
+            Exception failure = failures.get(entry.getKey());
+            if (failure == null) {
+                sent.add(email.id());
+                sentCount.increment();
+                deliveryDelay.record(Duration.between(email.createdAt(), now));
+                logger.info("Sent confirmation email for add ID: {}, to: {}", email.addId(), email.recipient());
+            } else if (email.attempts() >= maxAttempts) {
+                deadLetter(email, failure.getMessage());
+            } else {
+                logger.warn("Failed to send confirmation email to {} (attempt {}): {}",
+                        email.recipient(), email.attempts(), failure.getMessage());
+                retriedCount.increment();
+                outbox.save(email.retryAt(now.plus(backoff(email.attempts())), failure.getMessage()));
+            }
+        }
+        outbox.deleteAllById(sent);
+    }
+
+    private MimeMessage formEmail(PendingEmail email) throws MessagingException {
+        MimeMessage mimeMessage = mailSender.createMimeMessage();
+
+        MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, true, "UTF-8");
+        helper.setTo(email.recipient());
+        helper.setSubject(email.subject());
+        helper.setText(email.content(), true);
+        return mimeMessage;
+    }
+
+    private void deadLetter(PendingEmail email, String error) {
+        logger.error("Giving up on confirmation email for add ID: {}, to: {} after {} attempts: {}",
+                email.addId(), email.recipient(), email.attempts(), error);
+        deadLetteredCount.increment();
+        outbox.save(email.deadLetter(error, LocalDateTime.now().plus(deadRetention)));
+    }
+
+    private static Counter sendCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("ogloszone.email.sends")
+                .description("Confirmation email delivery attempts by result")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    Duration backoff(int attempts) {
+        Duration delay = initialBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+
+    private static Map<Object, Exception> failAll(Map<MimeMessage, PendingEmail> messages, Exception e) {
+        Map<Object, Exception> failures = new LinkedHashMap<>();
+        messages.keySet().forEach(message -> failures.put(message, e));
+        return failures;
+    }
+}
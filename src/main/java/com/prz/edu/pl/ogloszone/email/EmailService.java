@@ -1,52 +1,58 @@
 package com.prz.edu.pl.ogloszone.email;
 
 import com.prz.edu.pl.ogloszone.add.Add;
-import com.prz.edu.pl.ogloszone.exception.EmailSendException;
-import jakarta.mail.MessagingException;
-import jakarta.mail.internet.MimeMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+
 @Service
 public class EmailService {
 
     private static final Logger logger = LoggerFactory.getLogger(EmailService.class);
 
-    private final JavaMailSender mailSender;
+    private final PendingEmailRepository outbox;
 
     @Autowired
-    public EmailService(JavaMailSender mailSender) {
-        this.mailSender = mailSender;
+    public EmailService(PendingEmailRepository outbox) {
+        this.outbox = outbox;
     }
 
-    public void sendConfirmationEmail(Add add) {
-        try {
-            MimeMessage mimeMessage = formEmail(add);
-            mailSender.send(mimeMessage);
-            logger.info("Sent confirmation email for add ID: {}, to: {}", add.id(), add.contact().email());
-        } catch (MessagingException e) {
-            logger.error("Failed to send confirmation email to {}: {}", add.contact().email(), e.getMessage());
-            throw new EmailSendException(e);
-        }
+    /**
+     * Stores the confirmation email in the outbox; {@link EmailDispatcher} delivers it in the background,
+     * so the request does not wait for the SMTP server. This is a separate write after the announcement's:
+     * without a Mongo transaction manager a crash between the two keeps the announcement and loses the email.
+     */
+    public void queueConfirmationEmail(Add add) {
+        outbox.save(confirmationEmail(add));
+        logger.info("Queued confirmation email for add ID: {}, to: {}", add.id(), add.contact().email());
     }
 
-    private MimeMessage formEmail(Add add) throws MessagingException {
-        MimeMessage mimeMessage = mailSender.createMimeMessage();
-
-        MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, true, "UTF-8");
-        helper.setTo(add.contact().email());
-        helper.setSubject("Potwierdzenie publikacji ogłoszenia: " + add.title());
+    /**
+     * Stores the confirmation emails of a batch import in the outbox with one insert.
+     */
+    public void queueConfirmationEmails(List<Add> adds) {
+        if (adds.isEmpty()) {
+            return;
+        }
+        outbox.insert(adds.stream().map(this::confirmationEmail).toList());
+        logger.info("Queued {} confirmation emails", adds.size());
+    }
 
-        String htmlContent = generateContent(add);
-        helper.setText(htmlContent, true);
-        return mimeMessage;
+    /**
+     * Outbox entry for the confirmation email, for callers that store it themselves.
+     */
+    public PendingEmail confirmationEmail(Add add) {
+        return PendingEmail.of(
+                add.id(),
+                add.contact().email(),
+                "Potwierdzenie publikacji ogłoszenia: " + add.title(),
+                generateContent(add));
     }
 
-    private String generateContent(Add add) {
+    String generateContent(Add add) {
         return "<h1>Cześć!</h1>" +
                 "<p>Twoje ogłoszenie: <strong>" + add.title() + "</strong></p>" +
                 "<p>Szczegóły:</p>" +
@@ -60,4 +66,4 @@ public class EmailService {
                 "<p>Ogłoszenie wygasa za 30 dni.</p>" +
                 "<p>Pozdrawiamy<br>Zespół OgłosZone</p>";
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,6 @@
+package com.prz.edu.pl.ogloszone.email;
+
+public enum EmailStatus {
+    PENDING,
+    DEAD
+}
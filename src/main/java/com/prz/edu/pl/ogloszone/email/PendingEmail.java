@@ -0,0 +1,45 @@
+package com.prz.edu.pl.ogloszone.email;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A queued confirmation email. Sent emails are deleted right away; dead-lettered ones keep the content,
+ * edit code included, only until {@code expiresAt}, when Mongo's TTL monitor removes them.
+ */
+@Document(collection = "email_outbox")
+@CompoundIndex(name = "status_nextAttemptAt", def = "{'status': 1, 'nextAttemptAt': 1}")
+public record PendingEmail(
+        @Id String id,
+        String addId,
+        String recipient,
+        String subject,
+        String content,
+        EmailStatus status,
+        int attempts,
+        LocalDateTime nextAttemptAt,
+        LocalDateTime createdAt,
+        String lastError,
+        @Indexed(expireAfterSeconds = 0) LocalDateTime expiresAt) {
+
+    public static PendingEmail of(String addId, String recipient, String subject, String content) {
+        LocalDateTime now = LocalDateTime.now();
+        return new PendingEmail(UUID.randomUUID().toString(), addId, recipient, subject, content,
+                EmailStatus.PENDING, 0, now, now, null, null);
+    }
+
+    public PendingEmail retryAt(LocalDateTime nextAttempt, String error) {
+        return new PendingEmail(id, addId, recipient, subject, content,
+                EmailStatus.PENDING, attempts, nextAttempt, createdAt, error, null);
+    }
+
+    public PendingEmail deadLetter(String error, LocalDateTime expiry) {
+        return new PendingEmail(id, addId, recipient, subject, content,
+                EmailStatus.DEAD, attempts, nextAttemptAt, createdAt, error, expiry);
+    }
+}
@@ -0,0 +1,9 @@
+package com.prz.edu.pl.ogloszone.email;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface PendingEmailRepository extends MongoRepository<PendingEmail, String>, PendingEmailRepositoryCustom {
+    long countByStatus(EmailStatus status);
+}
@@ -0,0 +1,14 @@
+package com.prz.edu.pl.ogloszone.email;
+
+import java.time.Duration;
+import java.util.Optional;
+
+public interface PendingEmailRepositoryCustom {
+
+    /**
+     * Atomically takes the oldest due email and hides it from other dispatchers for the lease duration.
+     * The attempt counter is increased on claim, so an email lost by a crashed node is still retried and
+     * eventually dead-lettered.
+     */
+    Optional<PendingEmail> claimNext(Duration lease);
+}
@@ -0,0 +1,34 @@
+package com.prz.edu.pl.ogloszone.email;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+class PendingEmailRepositoryImpl implements PendingEmailRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    PendingEmailRepositoryImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public Optional<PendingEmail> claimNext(Duration lease) {
+        LocalDateTime now = LocalDateTime.now();
+        Query query = new Query(Criteria.where("status").is(EmailStatus.PENDING)
+                .and("nextAttemptAt").lte(now))
+                .with(Sort.by(Sort.Direction.ASC, "nextAttemptAt"));
+        Update update = new Update()
+                .set("nextAttemptAt", now.plus(lease))
+                .inc("attempts", 1);
+        return Optional.ofNullable(mongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(true), PendingEmail.class));
+    }
+}
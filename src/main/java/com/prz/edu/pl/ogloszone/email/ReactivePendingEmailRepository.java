@@ -0,0 +1,11 @@
+package com.prz.edu.pl.ogloszone.email;
+
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Outbox writes from the reactive stack; {@link EmailDispatcher} drains the same collection.
+ */
+@Repository
+public interface ReactivePendingEmailRepository extends ReactiveMongoRepository<PendingEmail, String> {
+}
@@ -1,7 +1,11 @@
 package com.prz.edu.pl.ogloszone.exception;
 
+/**
+ * Always answered with a 404, so no stack trace is captured: misses are frequent (crawlers, stale links) and
+ * the trace would never be read.
+ */
 public class AddNotFoundException extends RuntimeException {
     public AddNotFoundException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 }
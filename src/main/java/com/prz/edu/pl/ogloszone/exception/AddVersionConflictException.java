@@ -0,0 +1,7 @@
+package com.prz.edu.pl.ogloszone.exception;
+
+public class AddVersionConflictException extends RuntimeException {
+    public AddVersionConflictException(String message) {
+        super(message);
+    }
+}
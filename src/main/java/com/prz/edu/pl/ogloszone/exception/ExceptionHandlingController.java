@@ -1,10 +1,12 @@
 package com.prz.edu.pl.ogloszone.exception;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.support.WebExchangeBindException;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -27,16 +29,21 @@ public class ExceptionHandlingController {
         return ResponseEntity.badRequest().body(ex.getMessage());
     }
 
-    @ExceptionHandler(EmailSendException.class)
-    public ResponseEntity<String> handleEmailSendException(EmailSendException ex) {
-        return ResponseEntity.internalServerError().body(ex.getMessage());
-    }
-
     @ExceptionHandler(AddNotFoundException.class)
     public ResponseEntity<String> handleAddNotFoundException(AddNotFoundException ex) {
         return ResponseEntity.status(404).body(ex.getMessage());
     }
 
+    @ExceptionHandler(AddVersionConflictException.class)
+    public ResponseEntity<String> handleAddVersionConflictException(AddVersionConflictException ex) {
+        return ResponseEntity.status(409).body(ex.getMessage());
+    }
+
+    @ExceptionHandler(LiveFeedFullException.class)
+    public ResponseEntity<String> handleLiveFeedFullException(LiveFeedFullException ex) {
+        return ResponseEntity.status(503).header(HttpHeaders.RETRY_AFTER, "30").body(ex.getMessage());
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<Map<String, String>> handleMethodArgumentNotValidException(MethodArgumentNotValidException ex) {
         Map<String, String> errors = new HashMap<>();
@@ -45,4 +52,13 @@ public class ExceptionHandlingController {
         }
         return ResponseEntity.badRequest().body(errors);
     }
+
+    @ExceptionHandler(WebExchangeBindException.class)
+    public ResponseEntity<Map<String, String>> handleWebExchangeBindException(WebExchangeBindException ex) {
+        Map<String, String> errors = new HashMap<>();
+        for (FieldError error : ex.getBindingResult().getFieldErrors()) {
+            errors.put(error.getField(), error.getDefaultMessage());
+        }
+        return ResponseEntity.badRequest().body(errors);
+    }
 }
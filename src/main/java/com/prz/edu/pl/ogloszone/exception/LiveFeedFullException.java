@@ -0,0 +1,7 @@
+package com.prz.edu.pl.ogloszone.exception;
+
+public class LiveFeedFullException extends RuntimeException {
+    public LiveFeedFullException(String message) {
+        super(message);
+    }
+}
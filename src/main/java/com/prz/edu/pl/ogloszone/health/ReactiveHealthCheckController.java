@@ -0,0 +1,44 @@
+package com.prz.edu.pl.ogloszone.health;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+/**
+ * {@link HealthCheckController} for the {@code reactive} profile, pinging Mongo without blocking.
+ */
+@RestController
+@RequestMapping("/api/health")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveHealthCheckController {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    public ReactiveHealthCheckController(ReactiveMongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @GetMapping
+    public Mono<ResponseEntity<Health>> checkHealth() {
+        return mongoTemplate.executeCommand("{ ping: 1 }")
+                .map(result -> ResponseEntity.ok(
+                        Health.up()
+                                .withDetail("database", "MongoDB is running")
+                                .withDetail("checkedAt", LocalDateTime.now().toString())
+                                .build()))
+                .onErrorResume(e -> Mono.just(ResponseEntity.status(503)
+                        .body(
+                                Health.down()
+                                        .withDetail("error", "MongoDB connection failed: " + e.getMessage())
+                                        .withDetail("checkedAt", LocalDateTime.now().toString())
+                                        .build()
+                        )));
+    }
+}
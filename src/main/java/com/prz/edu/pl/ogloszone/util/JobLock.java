@@ -0,0 +1,51 @@
+package com.prz.edu.pl.ogloszone.util;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Lease-based lock in the {@code job_locks} collection, so a scheduled job runs on one node at a time. A lease
+ * that is not renewed runs out, so a node that dies while holding the lock only delays the job.
+ */
+@Component
+public class JobLock {
+
+    private static final String COLLECTION = "job_locks";
+
+    private final MongoTemplate mongoTemplate;
+    private final String owner = UUID.randomUUID().toString();
+
+    public JobLock(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * Takes or renews the lock for {@code lease}; {@code false} if another node holds it.
+     */
+    public boolean tryAcquire(String job, Duration lease) {
+        Instant now = Instant.now();
+        Query free = Query.query(Criteria.where("_id").is(job).orOperator(
+                Criteria.where("lockedUntil").lt(now),
+                Criteria.where("owner").is(owner)));
+        try {
+            mongoTemplate.upsert(free, new Update().set("owner", owner).set("lockedUntil", now.plus(lease)), COLLECTION);
+            return true;
+        } catch (DuplicateKeyException e) {
+            // The lock document exists and is held by someone else, so the upsert tried to insert a second one.
+            return false;
+        }
+    }
+
+    public void release(String job) {
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(job).and("owner").is(owner)),
+                Update.update("lockedUntil", Instant.now()), COLLECTION);
+    }
+}
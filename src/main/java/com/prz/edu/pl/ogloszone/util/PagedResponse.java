@@ -1,30 +1,46 @@
 package com.prz.edu.pl.ogloszone.util;
 
 import io.swagger.v3.oas.annotations.media.Schema;
+import org.springframework.data.domain.Page;
 
 import java.util.List;
 
-public record PagedResponse<AddResponse>(
+public record PagedResponse<T>(
         @Schema(description = "List of items on the current page")
-        List<com.prz.edu.pl.ogloszone.add.AddResponse> content,
+        List<T> content,
 
-        @Schema(description = "Current page number (zero-based), where page=0 is the first page",
+        @Schema(description = "Current page number (zero-based), where page=0 is the first page; null in cursor mode",
                 example = "0")
-        int pageNumber,
+        Integer pageNumber,
 
         @Schema(description = "Number of items per page",
                 example = "10")
         int pageSize,
 
-        @Schema(description = "Total number of elements across all pages",
+        @Schema(description = "Total number of elements across all pages; null in cursor mode",
                 example = "50")
-        long totalElements,
+        Long totalElements,
 
-        @Schema(description = "Total number of pages",
+        @Schema(description = "Total number of pages; null in cursor mode",
                 example = "5")
-        int totalPages,
+        Integer totalPages,
 
         @Schema(description = "Indicates if the current page is the last one (true if there are no more pages; false if there are additional pages)",
                 example = "false")
-        boolean last) {
-}
\ No newline at end of file
+        boolean last,
+
+        @Schema(description = "Opaque token to pass as 'cursor' to fetch the next page; null in page mode or on the last page",
+                example = "MjAyNS0xMC0xOFQxMjowMHw1NTBlODQwMC1lMjliLTQxZDQtYTcxNi00NDY2NTU0NDAwMDA")
+        String nextCursor) {
+
+    public static <T> PagedResponse<T> of(Page<T> page) {
+        return new PagedResponse<>(
+                page.getContent(),
+                page.getNumber(),
+                page.getSize(),
+                page.getTotalElements(),
+                page.getTotalPages(),
+                page.isLast(),
+                null);
+    }
+}
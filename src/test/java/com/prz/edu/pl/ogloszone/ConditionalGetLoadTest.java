@@ -0,0 +1,270 @@
+package com.prz.edu.pl.ogloszone;
+
+import com.prz.edu.pl.ogloszone.add.Add;
+import com.prz.edu.pl.ogloszone.add.Contact;
+import com.prz.edu.pl.ogloszone.add.SearchText;
+import com.prz.edu.pl.ogloszone.category.Category;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.MongoDBContainer;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Polling clients re-read a set of announcements and listing pages while a writer edits a few announcements
+ * per second, first with plain GETs and then sending back the last ETag in {@code If-None-Match}. Reports
+ * throughput, the share of 304 responses, response body bytes, p50/p99 and the CPU time of Tomcat's request
+ * threads per request for both runs.
+ * <p>
+ * Mongo is a Testcontainers container unless {@code -Dload.mongo-uri} points to a running instance (the
+ * {@code load_etag} database is dropped first); listing pages only carry an ETag when that instance is a replica
+ * set, whose change stream is active. Tuning: {@code -Dload.clients}, {@code -Dload.duration},
+ * {@code -Dload.poll-interval} and {@code -Dload.writes-per-second}. Run with {@code -Pload-test}; the report is
+ * written to {@code target/load-test/conditional-get.txt}.
+ */
+@Tag("load")
+class ConditionalGetLoadTest {
+
+    private static final int CLIENTS = Integer.getInteger("load.clients", 200);
+    private static final Duration DURATION = Duration.parse(System.getProperty("load.duration", "PT30S"));
+    private static final Duration POLL_INTERVAL = Duration.parse(System.getProperty("load.poll-interval", "PT0.1S"));
+    private static final int WRITES_PER_SECOND = Integer.getInteger("load.writes-per-second", 5);
+    private static final Duration WARM_UP = Duration.ofSeconds(5);
+    private static final int SEEDED = 2000;
+    // Every client polls the same few announcements, as a feed of watched items would.
+    private static final int WATCHED = 200;
+    private static final int PAGES = 5;
+
+    private record Seeded(String id, String editCode) {
+    }
+
+    @Test
+    void plainVersusConditionalPolling() throws Exception {
+        String mongoUri = System.getProperty("load.mongo-uri");
+        MongoDBContainer mongo = null;
+        if (mongoUri == null) {
+            assumeTrue(DockerClientFactory.instance().isDockerAvailable(), "Needs Docker or -Dload.mongo-uri");
+            mongo = new MongoDBContainer("mongo:7.0");
+            mongo.start();
+            mongoUri = mongo.getReplicaSetUrl("load_etag");
+        }
+        try (ConfigurableApplicationContext app = new SpringApplicationBuilder(OgloszoneApplication.class)
+                .run(
+                        "--server.port=0",
+                        "--spring.data.mongodb.uri=" + mongoUri,
+                        "--spring.data.mongodb.database=load_etag",
+                        "--MAIL=load-test@example.com",
+                        "--MAIL_PASSWORD=unused",
+                        "--ogloszone.email.outbox.poll-interval-ms=3600000",
+                        // Seeded straight into Mongo after startup, so the id filter has never seen these ids.
+                        "--ogloszone.id-filter.enabled=false",
+                        "--logging.level.com.prz.edu.pl.ogloszone=WARN")) {
+            MongoTemplate mongoTemplate = app.getBean(MongoTemplate.class);
+            mongoTemplate.dropCollection(Add.class);
+            List<Seeded> seeded = seed(mongoTemplate);
+            int port = app.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            String baseUrl = "http://localhost:" + port;
+
+            Result plain = drive("plain", baseUrl, seeded, false);
+            Result conditional = drive("etag", baseUrl, seeded, true);
+
+            String report = String.format("clients=%d duration=%s poll-interval=%s writes/s=%d%n%s%n%s%n%s%n",
+                    CLIENTS, DURATION, POLL_INTERVAL, WRITES_PER_SECOND, Result.HEADER, plain, conditional);
+            System.out.println(report);
+            Path output = Path.of("target", "load-test", "conditional-get.txt");
+            Files.createDirectories(output.getParent());
+            Files.writeString(output, report);
+
+            assertTrue(plain.requests() > 0 && conditional.notModified() > 0);
+        } finally {
+            if (mongo != null) {
+                mongo.stop();
+            }
+        }
+    }
+
+    private static List<Seeded> seed(MongoTemplate mongoTemplate) {
+        List<Add> adds = new ArrayList<>(SEEDED);
+        for (int i = 0; i < SEEDED; i++) {
+            Category category = Category.values()[i % Category.values().length];
+            String title = "Oferta " + i;
+            String content = "Ogłoszenie numer " + i + " w kategorii " + category.name().toLowerCase();
+            adds.add(new Add(UUID.randomUUID().toString(), title, content, category,
+                    new Contact(null, "seed@example.com"), LocalDateTime.now().minusMinutes(i),
+                    UUID.randomUUID().toString(), SearchText.of(title, content), 0L));
+        }
+        mongoTemplate.insertAll(adds);
+        return adds.stream().map(add -> new Seeded(add.id(), add.editCode())).toList();
+    }
+
+    private static Result drive(String mode, String baseUrl, List<Seeded> seeded, boolean conditional)
+            throws Exception {
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        List<Seeded> watched = seeded.subList(0, WATCHED);
+        long warmUpEnd = System.nanoTime() + WARM_UP.toNanos();
+        long end = warmUpEnd + DURATION.toNanos();
+        LongAdder notModified = new LongAdder();
+        LongAdder bodyBytes = new LongAdder();
+        AtomicBoolean measuring = new AtomicBoolean();
+        Map<Long, Long> cpuAtStart = new HashMap<>();
+
+        List<Future<Latencies>> futures = new ArrayList<>(CLIENTS);
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            clients.submit(() -> write(client, baseUrl, watched, end));
+            for (int i = 0; i < CLIENTS; i++) {
+                futures.add(clients.submit(() -> {
+                    Latencies latencies = new Latencies();
+                    Map<URI, String> etags = new HashMap<>();
+                    while (System.nanoTime() < end) {
+                        URI uri = nextUri(baseUrl, watched);
+                        HttpRequest.Builder request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(30));
+                        String etag = etags.get(uri);
+                        if (conditional && etag != null) {
+                            request.header("If-None-Match", etag);
+                        }
+                        long start = System.nanoTime();
+                        int status;
+                        try {
+                            HttpResponse<byte[]> response = client.send(request.build(),
+                                    HttpResponse.BodyHandlers.ofByteArray());
+                            status = response.statusCode();
+                            response.headers().firstValue("ETag").ifPresent(value -> etags.put(uri, value));
+                            if (start >= warmUpEnd) {
+                                bodyBytes.add(response.body().length);
+                            }
+                        } catch (IOException e) {
+                            status = -1;
+                        }
+                        if (start >= warmUpEnd) {
+                            if (measuring.compareAndSet(false, true)) {
+                                cpuAtStart.putAll(requestThreadCpu());
+                            }
+                            latencies.record(System.nanoTime() - start, status == 200 || status == 304);
+                            if (status == 304) {
+                                notModified.increment();
+                            }
+                        }
+                        Thread.sleep(POLL_INTERVAL);
+                    }
+                    return latencies;
+                }));
+            }
+        }
+        Map<Long, Long> cpuAtEnd = requestThreadCpu();
+        long cpuNanos = cpuAtEnd.entrySet().stream()
+                .mapToLong(entry -> entry.getValue() - cpuAtStart.getOrDefault(entry.getKey(), 0L))
+                .sum();
+
+        Latencies all = new Latencies();
+        for (Future<Latencies> future : futures) {
+            all.addAll(future.get());
+        }
+        return new Result(mode, all.count(), notModified.sum(), all.errors(),
+                all.count() / (double) DURATION.toSeconds(), bodyBytes.sum(),
+                all.percentile(0.50), all.percentile(0.99), cpuNanos / 1e6);
+    }
+
+    /**
+     * Edits a random watched announcement {@link #WRITES_PER_SECOND} times a second, so the polled
+     * announcements and listings keep changing under the clients.
+     */
+    private static Void write(HttpClient client, String baseUrl, List<Seeded> watched, long end) throws Exception {
+        long pause = 1_000_000_000L / Math.max(1, WRITES_PER_SECOND);
+        while (System.nanoTime() < end) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            Seeded add = watched.get(random.nextInt(watched.size()));
+            Category category = Category.values()[random.nextInt(Category.values().length)];
+            String body = String.format("{\"title\":\"Oferta zmieniona %d\",\"content\":\"Ogłoszenie po edycji.\","
+                            + "\"category\":\"%s\",\"contact\":{\"email\":\"load@example.com\"}}",
+                    random.nextInt(100_000), category.name());
+            HttpRequest request = HttpRequest.newBuilder(
+                            URI.create(baseUrl + "/api/add/" + add.id() + "?editCode=" + add.editCode()))
+                    .timeout(Duration.ofSeconds(30))
+                    .header("Content-Type", "application/json")
+                    .PUT(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+            try {
+                client.send(request, HttpResponse.BodyHandlers.discarding());
+            } catch (IOException e) {
+                // The pollers' numbers are what this test reports.
+            }
+            Thread.sleep(Duration.ofNanos(pause));
+        }
+        return null;
+    }
+
+    private static URI nextUri(String baseUrl, List<Seeded> watched) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextBoolean()) {
+            return URI.create(baseUrl + "/api/add/" + watched.get(random.nextInt(watched.size())).id());
+        }
+        Category category = Category.values()[random.nextInt(Category.values().length)];
+        return URI.create(baseUrl + "/api/add?category=" + category.name() + "&page=" + (1 + random.nextInt(PAGES)));
+    }
+
+    /**
+     * CPU time of Tomcat's request threads by thread id. The application shares this JVM with the clients, so
+     * process CPU would count the load generator too.
+     */
+    private static Map<Long, Long> requestThreadCpu() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        Map<Long, Long> cpu = new HashMap<>();
+        for (ThreadInfo info : threads.getThreadInfo(threads.getAllThreadIds())) {
+            if (info != null && info.getThreadName().startsWith("http-nio")) {
+                long nanos = threads.getThreadCpuTime(info.getThreadId());
+                if (nanos >= 0) {
+                    cpu.put(info.getThreadId(), nanos);
+                }
+            }
+        }
+        return cpu;
+    }
+
+    private record Result(String mode, long requests, long notModified, long errors, double throughput,
+                          long bodyBytes, double p50, double p99, double serverCpuMs) {
+
+        static final String HEADER = String.format("%-6s %9s %6s %7s %8s %9s %8s %8s %8s %10s %10s",
+                "mode", "requests", "304 %", "errors", "req/s", "body MB", "B/req", "p50 ms", "p99 ms",
+                "cpu ms", "cpu us/req");
+
+        @Override
+        public String toString() {
+            return String.format("%-6s %9d %6.1f %7d %8.0f %9.1f %8.0f %8.1f %8.1f %10.0f %10.1f",
+                    mode, requests, requests == 0 ? 0 : 100.0 * notModified / requests, errors, throughput,
+                    bodyBytes / (1024.0 * 1024.0), requests == 0 ? 0 : bodyBytes / (double) requests, p50, p99,
+                    serverCpuMs, requests == 0 ? 0 : serverCpuMs * 1000 / requests);
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package com.prz.edu.pl.ogloszone;
+
+import com.icegreen.greenmail.configuration.GreenMailConfiguration;
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandSucceededEvent;
+import com.prz.edu.pl.ogloszone.add.Add;
+import com.prz.edu.pl.ogloszone.add.AddIdFilter;
+import com.prz.edu.pl.ogloszone.add.Contact;
+import com.prz.edu.pl.ogloszone.add.SearchText;
+import com.prz.edu.pl.ogloszone.category.Category;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.MongoDBContainer;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs the whole application against a local Mongo and an in-process SMTP server (GreenMail) and drives a
+ * mix of create, list, get, update, delete and keyword search traffic. Reports throughput and p50/p95/p99 per
+ * endpoint, the Mongo commands the run issued and the confirmation emails delivered.
+ * <p>
+ * Mongo is a Testcontainers container unless {@code -Dload.mongo-uri} points to a running instance (the
+ * {@code load_e2e} database is dropped first). Tuning: {@code -Dload.clients}, {@code -Dload.duration},
+ * {@code -Dload.seed} and {@code -Dload.mix}, e.g. {@code list=40,get=25,search=15,create=10,update=7,delete=3}.
+ * Run with {@code -Pload-test}; the report is written to {@code target/load-test/end-to-end.txt}.
+ */
+@Tag("load")
+class EndToEndLoadTest {
+
+    private static final int CLIENTS = Integer.getInteger("load.clients", 200);
+    private static final Duration DURATION = Duration.parse(System.getProperty("load.duration", "PT30S"));
+    private static final Duration WARM_UP = Duration.ofSeconds(5);
+    private static final int SEEDED = Integer.getInteger("load.seed", 20_000);
+    private static final String MIX = System.getProperty("load.mix", "list=40,get=25,search=15,create=10,update=7,delete=3");
+    private static final String[] KEYWORDS = {"rower", "mieszkanie", "praca", "kurs", "kot", "samochód", "laptop"};
+
+    enum Operation { LIST, GET, SEARCH, CREATE, UPDATE, DELETE }
+
+    private record Seeded(String id, String editCode) {
+    }
+
+    @Test
+    void mixedTraffic() throws Exception {
+        String mongoUri = System.getProperty("load.mongo-uri");
+        MongoDBContainer mongo = null;
+        if (mongoUri == null) {
+            assumeTrue(DockerClientFactory.instance().isDockerAvailable(), "Needs Docker or -Dload.mongo-uri");
+            mongo = new MongoDBContainer("mongo:7.0");
+            mongo.start();
+            mongoUri = mongo.getReplicaSetUrl("load_e2e");
+        }
+        GreenMail smtp = new GreenMail(ServerSetupTest.SMTP.dynamicPort())
+                .withConfiguration(GreenMailConfiguration.aConfig().withDisabledAuthentication());
+        smtp.start();
+
+        CommandCounter commands = new CommandCounter();
+        try (ConfigurableApplicationContext app = new SpringApplicationBuilder(OgloszoneApplication.class)
+                .initializers(context -> context.getBeanFactory().registerSingleton("loadTestCommandCounter",
+                        (MongoClientSettingsBuilderCustomizer) settings -> settings.addCommandListener(commands)))
+                .run(
+                        "--server.port=0",
+                        "--spring.data.mongodb.uri=" + mongoUri,
+                        "--spring.data.mongodb.database=load_e2e",
+                        "--spring.mail.host=localhost",
+                        "--spring.mail.port=" + smtp.getSmtp().getPort(),
+                        "--spring.mail.properties.mail.smtp.auth=false",
+                        "--spring.mail.properties.mail.smtp.starttls.enable=false",
+                        "--MAIL=load-test@example.com",
+                        "--MAIL_PASSWORD=unused",
+                        "--ogloszone.email.outbox.poll-interval-ms=1000",
+                        "--logging.level.com.prz.edu.pl.ogloszone=WARN")) {
+            MongoTemplate mongoTemplate = app.getBean(MongoTemplate.class);
+            mongoTemplate.dropCollection(Add.class);
+            List<Seeded> seeded = seed(mongoTemplate);
+            awaitIdFilter(app.getBean(AddIdFilter.class), seeded.stream().map(Seeded::id).toList());
+            int port = app.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+
+            commands.reset();
+            LongAdder notFound = new LongAdder();
+            Map<Operation, Latencies> results = drive("http://localhost:" + port, seeded, notFound);
+            String report = report(results, commands.snapshot(), smtp.getReceivedMessages().length,
+                    notFound.sum());
+            System.out.println(report);
+            Path output = Path.of("target", "load-test", "end-to-end.txt");
+            Files.createDirectories(output.getParent());
+            Files.writeString(output, report);
+
+            assertTrue(results.values().stream().mapToLong(Latencies::count).sum() > 0);
+            // Gets only ask for announcements that are never deleted, so the id filter must let every one through.
+            assertEquals(0, notFound.sum());
+        } finally {
+            smtp.stop();
+            if (mongo != null) {
+                mongo.stop();
+            }
+        }
+    }
+
+    /**
+     * Waits until the change stream has delivered the ids seeded straight into Mongo, like another node's writes,
+     * to the id filter, so no GET of a stored announcement is answered 404 without a query.
+     */
+    private static void awaitIdFilter(AddIdFilter idFilter, List<String> ids) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(60).toNanos();
+        while (!ids.stream().map(UUID::fromString).allMatch(idFilter::mightContain)) {
+            assertTrue(System.nanoTime() < deadline, "Id filter did not learn the seeded ids");
+            Thread.sleep(200);
+        }
+    }
+
+    private static List<Seeded> seed(MongoTemplate mongoTemplate) {
+        List<Add> adds = new ArrayList<>(SEEDED);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < SEEDED; i++) {
+            Category category = Category.values()[i % Category.values().length];
+            String title = KEYWORDS[random.nextInt(KEYWORDS.length)] + " " + category.name().toLowerCase() + " " + i;
+            String content = "Ogłoszenie numer " + i + ". " + "Szczegóły oferty w treści ogłoszenia. ".repeat(
+                    1 + random.nextInt(20));
+            adds.add(new Add(UUID.randomUUID().toString(), title, content, category,
+                    new Contact("+48123456789", "seed@example.com"),
+                    LocalDateTime.now().minusMinutes(random.nextInt(60 * 24 * 29)),
+                    UUID.randomUUID().toString(), SearchText.of(title, content), 0L));
+        }
+        mongoTemplate.insertAll(adds);
+        return adds.stream().map(add -> new Seeded(add.id(), add.editCode())).toList();
+    }
+
+    private static Map<Operation, Latencies> drive(String baseUrl, List<Seeded> seeded, LongAdder notFound)
+            throws Exception {
+        Operation[] weighted = weightedOperations();
+        // Deletes take announcements from their own share so gets and updates keep hitting existing ones.
+        int deletable = seeded.size() / 10;
+        ConcurrentLinkedQueue<Seeded> toDelete = new ConcurrentLinkedQueue<>(seeded.subList(0, deletable));
+        List<Seeded> stable = seeded.subList(deletable, seeded.size());
+
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        long warmUpEnd = System.nanoTime() + WARM_UP.toNanos();
+        long end = warmUpEnd + DURATION.toNanos();
+
+        List<Future<Map<Operation, Latencies>>> futures = new ArrayList<>(CLIENTS);
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < CLIENTS; i++) {
+                futures.add(clients.submit(() -> {
+                    Map<Operation, Latencies> latencies = new EnumMap<>(Operation.class);
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (System.nanoTime() < end) {
+                        Operation operation = weighted[random.nextInt(weighted.length)];
+                        HttpRequest request = request(operation, baseUrl, stable, toDelete, random);
+                        if (request == null) {
+                            continue;
+                        }
+                        long start = System.nanoTime();
+                        boolean ok;
+                        try {
+                            int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                            ok = status >= 200 && status < 300;
+                            if (operation == Operation.GET && status == 404) {
+                                notFound.increment();
+                            }
+                        } catch (IOException e) {
+                            ok = false;
+                        }
+                        if (start >= warmUpEnd) {
+                            latencies.computeIfAbsent(operation, key -> new Latencies())
+                                    .record(System.nanoTime() - start, ok);
+                        }
+                    }
+                    return latencies;
+                }));
+            }
+        }
+
+        Map<Operation, Latencies> all = new EnumMap<>(Operation.class);
+        for (Future<Map<Operation, Latencies>> future : futures) {
+            future.get().forEach((operation, latencies) ->
+                    all.computeIfAbsent(operation, key -> new Latencies()).addAll(latencies));
+        }
+        return all;
+    }
+
+    private static HttpRequest request(Operation operation, String baseUrl, List<Seeded> stable,
+                                       ConcurrentLinkedQueue<Seeded> toDelete, ThreadLocalRandom random) {
+        Category category = Category.values()[random.nextInt(Category.values().length)];
+        return switch (operation) {
+            case LIST -> get(baseUrl + "/api/add?category=" + category.name() + "&page=" + random.nextInt(20));
+            case SEARCH -> get(baseUrl + "/api/add?keyword=" + KEYWORDS[random.nextInt(KEYWORDS.length)]);
+            case GET -> get(baseUrl + "/api/add/" + stable.get(random.nextInt(stable.size())).id());
+            case CREATE -> json(baseUrl + "/api/add", "POST", body(category, random));
+            case UPDATE -> {
+                Seeded add = stable.get(random.nextInt(stable.size()));
+                yield json(baseUrl + "/api/add/" + add.id() + "?editCode=" + add.editCode(), "PUT",
+                        body(category, random));
+            }
+            case DELETE -> {
+                Seeded add = toDelete.poll();
+                yield add == null ? null : HttpRequest.newBuilder(
+                                URI.create(baseUrl + "/api/add/" + add.id() + "?editCode=" + add.editCode()))
+                        .timeout(Duration.ofSeconds(30))
+                        .DELETE()
+                        .build();
+            }
+        };
+    }
+
+    private static HttpRequest get(String uri) {
+        return HttpRequest.newBuilder(URI.create(uri)).timeout(Duration.ofSeconds(30)).build();
+    }
+
+    private static HttpRequest json(String uri, String method, String body) {
+        return HttpRequest.newBuilder(URI.create(uri))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private static String body(Category category, ThreadLocalRandom random) {
+        String keyword = KEYWORDS[random.nextInt(KEYWORDS.length)];
+        return String.format("{\"title\":\"%s na sprzedaż %d\",\"content\":\"Ogłoszenie z testu obciążeniowego, %s.\","
+                        + "\"category\":\"%s\",\"contact\":{\"phone\":\"+48123456789\",\"email\":\"load@example.com\"}}",
+                keyword, random.nextInt(100_000), keyword, category.name());
+    }
+
+    private static Operation[] weightedOperations() {
+        List<Operation> weighted = new ArrayList<>();
+        for (String entry : MIX.split(",")) {
+            String[] parts = entry.trim().split("=");
+            Operation operation = Operation.valueOf(parts[0].trim().toUpperCase());
+            for (int i = 0; i < Integer.parseInt(parts[1].trim()); i++) {
+                weighted.add(operation);
+            }
+        }
+        return weighted.toArray(Operation[]::new);
+    }
+
+    private static String report(Map<Operation, Latencies> results, Map<String, Long> commands, int emails,
+                                 long notFound) {
+        StringBuilder report = new StringBuilder(String.format(
+                "clients=%d duration=%s seeded=%d mix=%s%n%-8s %10s %8s %10s %9s %9s %9s %9s%n",
+                CLIENTS, DURATION, SEEDED, MIX, "endpoint", "requests", "errors", "req/s",
+                "p50 ms", "p95 ms", "p99 ms", "max ms"));
+        long total = 0;
+        for (Map.Entry<Operation, Latencies> entry : results.entrySet()) {
+            Latencies latencies = entry.getValue();
+            total += latencies.count();
+            report.append(String.format("%-8s %10d %8d %10.0f %9.1f %9.1f %9.1f %9.1f%n",
+                    entry.getKey().name().toLowerCase(), latencies.count(), latencies.errors(),
+                    latencies.count() / (double) DURATION.toSeconds(), latencies.percentile(0.50),
+                    latencies.percentile(0.95), latencies.percentile(0.99), latencies.max()));
+        }
+        report.append(String.format("total    %10d %8s %10.0f%n", total, "", total / (double) DURATION.toSeconds()));
+
+        long commandTotal = commands.values().stream().mapToLong(Long::longValue).sum();
+        report.append(String.format("%nmongo commands=%d (%.2f per request, includes warm-up)%n",
+                commandTotal, total == 0 ? 0 : commandTotal / (double) total));
+        commands.forEach((name, count) -> report.append(String.format("  %-16s %10d%n", name, count)));
+        report.append(String.format("%nconfirmation emails delivered=%d%n", emails));
+        report.append(String.format("gets of stored announcements answered 404=%d%n", notFound));
+        return report.toString();
+    }
+
+    /**
+     * Counts the commands the application's Mongo client sends, by command name.
+     */
+    private static final class CommandCounter implements CommandListener {
+
+        private final Map<String, LongAdder> counts = new ConcurrentHashMap<>();
+
+        @Override
+        public void commandSucceeded(CommandSucceededEvent event) {
+            counts.computeIfAbsent(event.getCommandName(), name -> new LongAdder()).increment();
+        }
+
+        @Override
+        public void commandFailed(CommandFailedEvent event) {
+            counts.computeIfAbsent(event.getCommandName(), name -> new LongAdder()).increment();
+        }
+
+        void reset() {
+            counts.clear();
+        }
+
+        Map<String, Long> snapshot() {
+            Map<String, Long> snapshot = new TreeMap<>();
+            counts.forEach((name, count) -> snapshot.put(name, count.sum()));
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.prz.edu.pl.ogloszone;
+
+import com.prz.edu.pl.ogloszone.add.Add;
+import com.prz.edu.pl.ogloszone.add.AddFilter;
+import com.prz.edu.pl.ogloszone.add.AddRepository;
+import com.prz.edu.pl.ogloszone.add.Contact;
+import com.prz.edu.pl.ogloszone.add.SearchText;
+import com.prz.edu.pl.ogloszone.category.Category;
+import org.bson.Document;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.MongoDBContainer;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiConsumer;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Compares keyword listings served from the text index on {@link SearchText} with the case-insensitive title
+ * regex they replaced ({@code findByTitleContainingIgnoreCase} and its category variant), on the same
+ * announcements: a page of {@code 20} plus the total count, with and without a category. Reports p50/p99 per
+ * variant and the documents MongoDB examined to count the matches of one keyword, from {@code explain}. The
+ * regex query is issued through {@link MongoTemplate} as the derived query built it; the text query goes through
+ * the repository.
+ * <p>
+ * Mongo is a Testcontainers container unless {@code -Dload.mongo-uri} points to a running instance (its
+ * {@code load_keyword} database is dropped afterwards). Tuning: {@code -Dload.seed} (announcements, default one
+ * million) and {@code -Dload.reads} (queries per variant). Run with {@code -Pload-test}; the report is written to
+ * {@code target/load-test/keyword-search.txt}.
+ */
+@Tag("load")
+class KeywordSearchLoadTest {
+
+    private static final int SEEDED = Integer.getInteger("load.seed", 1_000_000);
+    private static final int READS = Integer.getInteger("load.reads", 200);
+    private static final int INSERT_BATCH = 10_000;
+    private static final int PAGE_SIZE = 20;
+    private static final int PAGES = 5;
+    private static final String[] KEYWORDS = {"rower", "mieszkanie", "praca", "kurs", "kot", "samochód", "laptop"};
+    private static final String[] FILLER = {"oferta", "sprzedam", "tanio", "okazja", "nowy", "używany", "pilnie",
+            "kontakt", "odbiór", "osobisty", "wysyłka", "gwarancja"};
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Direction.DESC, "dateTime");
+
+    @Test
+    void textIndexVersusTitleRegex() throws Exception {
+        String mongoUri = System.getProperty("load.mongo-uri");
+        MongoDBContainer mongo = null;
+        if (mongoUri == null) {
+            assumeTrue(DockerClientFactory.instance().isDockerAvailable(), "Needs Docker or -Dload.mongo-uri");
+            mongo = new MongoDBContainer("mongo:7.0");
+            mongo.start();
+            mongoUri = mongo.getReplicaSetUrl();
+        }
+        try (ConfigurableApplicationContext app = new SpringApplicationBuilder(OgloszoneApplication.class)
+                .run(
+                        "--server.port=0",
+                        "--spring.data.mongodb.uri=" + mongoUri,
+                        "--spring.data.mongodb.database=load_keyword",
+                        "--ogloszone.change-feed.mode=off",
+                        "--ogloszone.expiry.interval=PT24H",
+                        "--MAIL=load-test@example.com",
+                        "--MAIL_PASSWORD=unused",
+                        "--ogloszone.email.outbox.poll-interval-ms=3600000",
+                        "--logging.level.com.prz.edu.pl.ogloszone=WARN")) {
+            MongoTemplate mongoTemplate = app.getBean(MongoTemplate.class);
+            AddRepository repository = app.getBean(AddRepository.class);
+            try {
+                seed(mongoTemplate);
+
+                List<Result> results = new ArrayList<>();
+                results.add(measure("regex", (random, keyword) -> regexPage(mongoTemplate, null, keyword, random)));
+                results.add(measure("regex+category", (random, keyword) ->
+                        regexPage(mongoTemplate, randomCategory(random), keyword, random)));
+                results.add(measure("text", (random, keyword) -> repository.findPage(
+                        new AddFilter(null, null, SearchText.normalize(keyword)), randomPage(random))));
+                results.add(measure("text+category", (random, keyword) -> repository.findPage(
+                        new AddFilter(randomCategory(random), null, SearchText.normalize(keyword)),
+                        randomPage(random))));
+
+                String keyword = KEYWORDS[0];
+                long regexExamined = examined(mongoTemplate, new Document("title",
+                        new Document("$regex", ".*" + Pattern.quote(keyword) + ".*").append("$options", "i")));
+                long textExamined = examined(mongoTemplate, new Document("$text",
+                        new Document("$search", SearchText.normalize(keyword)).append("$language", "none")));
+
+                StringBuilder report = new StringBuilder(String.format("seeded=%d reads=%d page=%d%n",
+                        SEEDED, READS, PAGE_SIZE));
+                report.append(Result.HEADER).append(System.lineSeparator());
+                results.forEach(result -> report.append(result).append(System.lineSeparator()));
+                report.append(String.format("documents examined to count '%s': regex %d, text %d%n",
+                        keyword, regexExamined, textExamined));
+                System.out.println(report);
+                Path output = Path.of("target", "load-test", "keyword-search.txt");
+                Files.createDirectories(output.getParent());
+                Files.writeString(output, report);
+
+                assertTrue(textExamined < regexExamined);
+            } finally {
+                mongoTemplate.getDb().drop();
+            }
+        } finally {
+            if (mongo != null) {
+                mongo.stop();
+            }
+        }
+    }
+
+    private static void seed(MongoTemplate mongoTemplate) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<Add> batch = new ArrayList<>(INSERT_BATCH);
+        for (int i = 0; i < SEEDED; i++) {
+            batch.add(add(i, random));
+            if (batch.size() == INSERT_BATCH) {
+                mongoTemplate.insertAll(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            mongoTemplate.insertAll(batch);
+        }
+    }
+
+    /**
+     * A page and the total count, as the derived {@code ...TitleContainingIgnoreCase} queries ran them.
+     */
+    private static void regexPage(MongoTemplate mongoTemplate, Category category, String keyword,
+                                  ThreadLocalRandom random) {
+        Criteria criteria = Criteria.where("title").regex(".*" + Pattern.quote(keyword) + ".*", "i");
+        if (category != null) {
+            criteria = criteria.and("category").is(category);
+        }
+        mongoTemplate.find(new Query(criteria).with(randomPage(random)), Add.class);
+        mongoTemplate.count(new Query(criteria), Add.class);
+    }
+
+    private static Result measure(String variant, BiConsumer<ThreadLocalRandom, String> operation) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < READS / 10; i++) {
+            operation.accept(random, KEYWORDS[random.nextInt(KEYWORDS.length)]);
+        }
+        Latencies latencies = new Latencies();
+        for (int i = 0; i < READS; i++) {
+            String keyword = KEYWORDS[random.nextInt(KEYWORDS.length)];
+            long start = System.nanoTime();
+            operation.accept(random, keyword);
+            latencies.record(System.nanoTime() - start, true);
+        }
+        return new Result(variant, latencies);
+    }
+
+    private static long examined(MongoTemplate mongoTemplate, Document filter) {
+        Document explain = mongoTemplate.getDb().runCommand(new Document("explain",
+                new Document("count", mongoTemplate.getCollectionName(Add.class)).append("query", filter))
+                .append("verbosity", "executionStats"));
+        return explain.get("executionStats", Document.class).get("totalDocsExamined", Number.class).longValue();
+    }
+
+    private static PageRequest randomPage(ThreadLocalRandom random) {
+        return PageRequest.of(random.nextInt(PAGES), PAGE_SIZE, NEWEST_FIRST);
+    }
+
+    private static Add add(int i, ThreadLocalRandom random) {
+        Category category = Category.values()[i % Category.values().length];
+        String title = FILLER[random.nextInt(FILLER.length)] + " " + KEYWORDS[random.nextInt(KEYWORDS.length)] + " "
+                + FILLER[random.nextInt(FILLER.length)] + " " + i;
+        String content = "Ogłoszenie numer " + i + ". " + "Szczegóły oferty w treści ogłoszenia. ".repeat(
+                1 + random.nextInt(10));
+        return new Add(UUID.randomUUID().toString(), title, content, category,
+                new Contact("+48123456789", "seed@example.com"),
+                LocalDateTime.now().minusMinutes(random.nextInt(60 * 24 * 29)),
+                UUID.randomUUID().toString(), SearchText.of(title, content), 0L);
+    }
+
+    private static Category randomCategory(ThreadLocalRandom random) {
+        return Category.values()[random.nextInt(Category.values().length)];
+    }
+
+    private record Result(String variant, Latencies latencies) {
+
+        static final String HEADER = String.format("%-15s %10s %10s %10s", "variant", "p50 ms", "p99 ms", "max ms");
+
+        @Override
+        public String toString() {
+            return String.format("%-15s %10.2f %10.2f %10.2f", variant, latencies.percentile(0.50),
+                    latencies.percentile(0.99), latencies.max());
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.prz.edu.pl.ogloszone;
+
+import java.util.Arrays;
+
+/**
+ * Latencies of one load test client, merged after the run. Not thread-safe; every client records its own.
+ */
+final class Latencies {
+
+    private long[] nanos = new long[1024];
+    private int size;
+    private long errors;
+    private boolean sorted;
+
+    void record(long latency, boolean ok) {
+        if (size == nanos.length) {
+            nanos = Arrays.copyOf(nanos, size * 2);
+        }
+        nanos[size++] = latency;
+        sorted = false;
+        if (!ok) {
+            errors++;
+        }
+    }
+
+    void addAll(Latencies other) {
+        if (size + other.size > nanos.length) {
+            nanos = Arrays.copyOf(nanos, Math.max(nanos.length * 2, size + other.size));
+        }
+        System.arraycopy(other.nanos, 0, nanos, size, other.size);
+        size += other.size;
+        errors += other.errors;
+        sorted = false;
+    }
+
+    long count() {
+        return size;
+    }
+
+    long errors() {
+        return errors;
+    }
+
+    /**
+     * Latency in milliseconds below which the given fraction of requests completed.
+     */
+    double percentile(double quantile) {
+        if (size == 0) {
+            return 0;
+        }
+        if (!sorted) {
+            Arrays.sort(nanos, 0, size);
+            sorted = true;
+        }
+        return nanos[(int) Math.min(size - 1, Math.ceil(quantile * size) - 1)] / 1e6;
+    }
+
+    double max() {
+        return percentile(1.0);
+    }
+}
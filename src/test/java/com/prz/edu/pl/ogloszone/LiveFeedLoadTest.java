@@ -0,0 +1,249 @@
+package com.prz.edu.pl.ogloszone;
+
+import com.prz.edu.pl.ogloszone.add.Add;
+import com.prz.edu.pl.ogloszone.category.Category;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.MongoDBContainer;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Opens many idle {@code /api/add/live} streams, a share of them for every category and the rest for one
+ * category each, then creates announcements at a steady rate. Reports the heap and threads the idle streams
+ * cost, and how many changes reached their subscribers and how late, measured from sending the create request.
+ * Client and server share this JVM, so the heap figure covers both ends of every connection.
+ * <p>
+ * Mongo is a Testcontainers container, whose change stream carries the changes, unless {@code -Dload.mongo-uri}
+ * points to a running instance (its {@code load_live} announcements are dropped first). Tuning:
+ * {@code -Dload.subscribers}, {@code -Dload.writes} and {@code -Dload.writes-per-second}. Each stream takes two
+ * file descriptors, so many subscribers need a higher {@code ulimit -n}. Run with {@code -Pload-test}; the report
+ * is written to {@code target/load-test/live-feed.txt}.
+ */
+@Tag("load")
+class LiveFeedLoadTest {
+
+    private static final int SUBSCRIBERS = Integer.getInteger("load.subscribers", 5000);
+    private static final int WRITES = Integer.getInteger("load.writes", 200);
+    private static final int WRITES_PER_SECOND = Integer.getInteger("load.writes-per-second", 20);
+    private static final Duration CONNECT_TIMEOUT = Duration.ofMinutes(2);
+    private static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(30);
+    private static final String TITLE = "Na żywo ";
+    private static final String TITLE_FIELD = "\"title\":\"" + TITLE;
+
+    @Test
+    void idleSubscribersAndFanOut() throws Exception {
+        String mongoUri = System.getProperty("load.mongo-uri");
+        MongoDBContainer mongo = null;
+        if (mongoUri == null) {
+            assumeTrue(DockerClientFactory.instance().isDockerAvailable(), "Needs Docker or -Dload.mongo-uri");
+            mongo = new MongoDBContainer("mongo:7.0");
+            mongo.start();
+            mongoUri = mongo.getReplicaSetUrl("load_live");
+        }
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+        try (ConfigurableApplicationContext app = new SpringApplicationBuilder(OgloszoneApplication.class)
+                .run(
+                        "--server.port=0",
+                        "--spring.data.mongodb.uri=" + mongoUri,
+                        "--spring.data.mongodb.database=load_live",
+                        "--MAIL=load-test@example.com",
+                        "--MAIL_PASSWORD=unused",
+                        "--ogloszone.email.outbox.poll-interval-ms=3600000",
+                        // Room for every stream, plus connections for the writes.
+                        "--ogloszone.live.max-subscribers=" + SUBSCRIBERS,
+                        "--server.tomcat.max-connections=" + (SUBSCRIBERS + 1000),
+                        "--logging.level.com.prz.edu.pl.ogloszone=WARN")) {
+            app.getBean(MongoTemplate.class).dropCollection(Add.class);
+            MeterRegistry meters = app.getBean(MeterRegistry.class);
+            int port = app.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            String baseUrl = "http://localhost:" + port;
+            MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+            int categories = Category.values().length;
+
+            long heapBefore = usedHeap(memory);
+            int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+            AtomicLongArray sentAt = new AtomicLongArray(WRITES);
+            AtomicLongArray received = new AtomicLongArray(WRITES);
+            LongAdder deliveries = new LongAdder();
+            CountDownLatch connected = new CountDownLatch(SUBSCRIBERS);
+            List<Listener> listeners = new ArrayList<>(SUBSCRIBERS);
+            long connectStart = System.nanoTime();
+            for (int i = 0; i < SUBSCRIBERS; i++) {
+                // One in (categories + 1) subscribers follows everything.
+                int slot = i % (categories + 1);
+                String query = slot == categories ? "" : "?category=" + Category.values()[slot].name();
+                Listener listener = new Listener(sentAt, received, deliveries, connected);
+                listeners.add(listener);
+                client.sendAsync(HttpRequest.newBuilder(URI.create(baseUrl + "/api/add/live" + query)).build(),
+                        HttpResponse.BodyHandlers.fromLineSubscriber(listener));
+            }
+            assertTrue(connected.await(CONNECT_TIMEOUT.toSeconds(), TimeUnit.SECONDS), "Streams did not open");
+            double connectSeconds = (System.nanoTime() - connectStart) / 1e9;
+            long heapPerSubscriber = (usedHeap(memory) - heapBefore) / SUBSCRIBERS;
+            int threadsAdded = ManagementFactory.getThreadMXBean().getThreadCount() - threadsBefore;
+            double subscribed = meters.get("ogloszone.add.live.subscribers").gauge().value();
+
+            long expected = 0;
+            long pause = 1_000_000_000L / Math.max(1, WRITES_PER_SECOND);
+            for (int i = 0; i < WRITES; i++) {
+                Category category = Category.values()[i % categories];
+                expected += subscribersOf(category.ordinal(), categories);
+                sentAt.set(i, System.nanoTime());
+                create(client, baseUrl, i, category);
+                Thread.sleep(Duration.ofNanos(pause));
+            }
+            long drainEnd = System.nanoTime() + DRAIN_TIMEOUT.toNanos();
+            while (deliveries.sum() < expected && System.nanoTime() < drainEnd) {
+                Thread.sleep(100);
+            }
+
+            Latencies latencies = new Latencies();
+            listeners.forEach(listener -> latencies.addAll(listener.latencies));
+            long missedWrites = 0;
+            for (int i = 0; i < WRITES; i++) {
+                if (received.get(i) < subscribersOf(i % categories, categories)) {
+                    missedWrites++;
+                }
+            }
+            String report = String.format("subscribers=%d writes=%d writes/s=%d%n"
+                            + "open streams %.0f, opened in %.1f s, %d threads added, ~%d heap bytes per subscriber%n"
+                            + "deliveries %d of %d, writes not delivered to every subscriber %d, "
+                            + "disconnected for falling behind %.0f%n"
+                            + "delivery after create p50 %.1f ms, p99 %.1f ms, max %.1f ms%n",
+                    SUBSCRIBERS, WRITES, WRITES_PER_SECOND,
+                    subscribed, connectSeconds, threadsAdded, heapPerSubscriber,
+                    deliveries.sum(), expected, missedWrites,
+                    meters.get("ogloszone.add.live.disconnected").counter().count(),
+                    latencies.percentile(0.50), latencies.percentile(0.99), latencies.max());
+            System.out.println(report);
+            Path output = Path.of("target", "load-test", "live-feed.txt");
+            Files.createDirectories(output.getParent());
+            Files.writeString(output, report);
+
+            assertEquals(SUBSCRIBERS, subscribed);
+            assertEquals(expected, deliveries.sum());
+        } finally {
+            client.shutdownNow();
+            if (mongo != null) {
+                mongo.stop();
+            }
+        }
+    }
+
+    /**
+     * Subscribers that receive an announcement of the category with the given ordinal: its own share and the
+     * share following everything.
+     */
+    private static long subscribersOf(int ordinal, int categories) {
+        return countOfSlot(ordinal, categories) + countOfSlot(categories, categories);
+    }
+
+    private static long countOfSlot(int slot, int categories) {
+        int slots = categories + 1;
+        return SUBSCRIBERS / slots + (slot < SUBSCRIBERS % slots ? 1 : 0);
+    }
+
+    private static void create(HttpClient client, String baseUrl, int number, Category category)
+            throws InterruptedException {
+        String body = String.format("{\"title\":\"%s%d\",\"content\":\"Ogłoszenie wysłane do subskrybentów.\","
+                + "\"category\":\"%s\",\"contact\":{\"email\":\"load@example.com\"}}", TITLE, number, category.name());
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/add"))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        try {
+            client.send(request, HttpResponse.BodyHandlers.discarding());
+        } catch (IOException e) {
+            // Shows up as missing deliveries.
+        }
+    }
+
+    private static long usedHeap(MemoryMXBean memory) throws InterruptedException {
+        System.gc();
+        Thread.sleep(500);
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * One stream's lines; called by the client one line at a time.
+     */
+    private static final class Listener implements Flow.Subscriber<String> {
+
+        private final AtomicLongArray sentAt;
+        private final AtomicLongArray received;
+        private final LongAdder deliveries;
+        private final CountDownLatch connected;
+        private final Latencies latencies = new Latencies();
+        private String event;
+
+        Listener(AtomicLongArray sentAt, AtomicLongArray received, LongAdder deliveries, CountDownLatch connected) {
+            this.sentAt = sentAt;
+            this.received = received;
+            this.deliveries = deliveries;
+            this.connected = connected;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+            connected.countDown();
+        }
+
+        @Override
+        public void onNext(String line) {
+            if (line.startsWith("event:")) {
+                event = line.substring("event:".length());
+                return;
+            }
+            int title = line.indexOf(TITLE_FIELD);
+            // Only creations are counted, each once per subscriber.
+            if (!line.startsWith("data:") || !"created".equals(event) || title < 0) {
+                return;
+            }
+            int start = title + TITLE_FIELD.length();
+            int number = Integer.parseInt(line, start, line.indexOf('"', start), 10);
+            latencies.record(System.nanoTime() - sentAt.get(number), true);
+            received.incrementAndGet(number);
+            deliveries.increment();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.prz.edu.pl.ogloszone;
+
+import com.prz.edu.pl.ogloszone.add.AddBatchGetRequest;
+import com.prz.edu.pl.ogloszone.add.AddBatchItem;
+import com.prz.edu.pl.ogloszone.add.AddBatchResponse;
+import com.prz.edu.pl.ogloszone.add.AddRepository;
+import com.prz.edu.pl.ogloszone.add.AddRequest;
+import com.prz.edu.pl.ogloszone.add.AddResponse;
+import com.prz.edu.pl.ogloszone.add.AddSummary;
+import com.prz.edu.pl.ogloszone.add.Contact;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The {@code /api/add} contract served by WebFlux and the reactive driver. Needs Docker; skipped otherwise.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "MAIL=test@example.com",
+        "MAIL_PASSWORD=unused",
+        "ogloszone.email.outbox.poll-interval-ms=3600000"})
+@ActiveProfiles("reactive")
+@Testcontainers(disabledWithoutDocker = true)
+class ReactiveProfileTest {
+
+    @Container
+    @ServiceConnection
+    static MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+    @Autowired
+    private WebTestClient client;
+
+    @Autowired
+    private AddRepository repository;
+
+    @Test
+    void crudRoundTrip() {
+        AddResponse created = client.post().uri("/api/add")
+                .bodyValue(request("Rower miejski"))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(AddResponse.class).returnResult().getResponseBody();
+        assertNotNull(created);
+        String editCode = repository.findById(created.id().toString()).orElseThrow().editCode();
+
+        client.get().uri("/api/add/{id}", created.id())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.title").isEqualTo("Rower miejski");
+
+        client.put().uri("/api/add/{id}?editCode={code}&version=0", created.id(), editCode)
+                .bodyValue(request("Rower górski"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.version").isEqualTo(1);
+        client.put().uri("/api/add/{id}?editCode={code}&version=0", created.id(), editCode)
+                .bodyValue(request("Rower szosowy"))
+                .exchange()
+                .expectStatus().isEqualTo(409);
+
+        client.delete().uri("/api/add/{id}?editCode={code}", created.id(), editCode)
+                .exchange()
+                .expectStatus().isNoContent();
+        client.get().uri("/api/add/{id}", created.id())
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void listing_StreamsNdjsonOnDemand() {
+        for (int i = 0; i < 30; i++) {
+            client.post().uri("/api/add").bodyValue(request("Oferta " + i)).exchange().expectStatus().isCreated();
+        }
+
+        Flux<AddSummary> stream = client.get().uri("/api/add?category=SALE")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(AddSummary.class)
+                .getResponseBody();
+
+        StepVerifier.create(stream, 5)
+                .expectNextCount(5)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void batch_CreatesFromNdjsonAndFetchesTogether() {
+        String body = "{\"title\":\"Pierwsze\",\"content\":\"Opis\",\"category\":\"SALE\",\"contact\":{\"email\":\"a@example.com\"}}\n"
+                + "{\"content\":\"Bez tytułu\",\"category\":\"SALE\",\"contact\":{}}\n"
+                + "{\"title\":\"Drugie\",\"content\":\"Opis\",\"category\":\"JOB\",\"contact\":{\"email\":\"b@example.com\"}}\n";
+        AddBatchResponse created = client.post().uri("/api/add/batch")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(AddBatchResponse.class).returnResult().getResponseBody();
+        assertNotNull(created);
+        assertEquals(3, created.received());
+        assertEquals(2, created.created());
+        assertEquals(AddBatchItem.Status.INVALID, created.items().get(1).status());
+
+        UUID unknown = UUID.randomUUID();
+        List<UUID> ids = List.of(UUID.fromString(created.items().get(0).id()),
+                UUID.fromString(created.items().get(2).id()), unknown);
+        client.post().uri("/api/add/batch-get")
+                .bodyValue(new AddBatchGetRequest(ids))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.found.length()").isEqualTo(2)
+                .jsonPath("$.missing[0]").isEqualTo(unknown.toString());
+    }
+
+    private static AddRequest request(String title) {
+        return new AddRequest(title, "Opis ogłoszenia", "SALE", new Contact("+48123456789", "test@example.com"));
+    }
+}
@@ -0,0 +1,197 @@
+package com.prz.edu.pl.ogloszone;
+
+import com.prz.edu.pl.ogloszone.add.Add;
+import com.prz.edu.pl.ogloszone.add.Contact;
+import com.prz.edu.pl.ogloszone.add.SearchText;
+import com.prz.edu.pl.ogloszone.category.Category;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the servlet build with the {@code reactive} profile while {@code -Dload.slow-clients} clients read
+ * full listing pages a few hundred bytes at a time. Reports the heap and live threads held per slow connection
+ * and the latency seen by fast clients meanwhile. Run with {@code -Pload-test}, like {@link ThreadingLoadTest}.
+ */
+@Tag("load")
+@Testcontainers(disabledWithoutDocker = true)
+class ServletVsReactiveLoadTest {
+
+    private static final int SLOW_CLIENTS = Integer.getInteger("load.slow-clients", 500);
+    private static final Duration DURATION = Duration.parse(System.getProperty("load.duration", "PT30S"));
+    private static final int FAST_CLIENTS = 20;
+    private static final int SEEDED = 2000;
+    private static final int SLOW_READ_BYTES = 256;
+    private static final Duration SLOW_READ_PAUSE = Duration.ofMillis(200);
+
+    @Container
+    static MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+    @Test
+    void servletVersusReactiveUnderSlowClients() throws Exception {
+        Result servlet = run(false);
+        Result reactive = run(true);
+
+        String report = String.format("slow clients=%d duration=%s%n%s%n%s%n%s%n",
+                SLOW_CLIENTS, DURATION, Result.HEADER, servlet, reactive);
+        System.out.println(report);
+        Path output = Path.of("target", "load-test", "reactive.txt");
+        Files.createDirectories(output.getParent());
+        Files.writeString(output, report);
+
+        assertTrue(servlet.requests() > 0 && reactive.requests() > 0);
+    }
+
+    private Result run(boolean reactive) throws Exception {
+        try (ConfigurableApplicationContext app = new SpringApplicationBuilder(OgloszoneApplication.class)
+                .profiles(reactive ? new String[]{"reactive"} : new String[0])
+                .run(
+                        "--server.port=0",
+                        "--spring.data.mongodb.uri=" + mongo.getReplicaSetUrl(),
+                        "--spring.data.mongodb.database=slow_" + reactive,
+                        "--MAIL=load-test@example.com",
+                        "--MAIL_PASSWORD=unused",
+                        "--ogloszone.email.outbox.poll-interval-ms=3600000",
+                        "--logging.level.com.prz.edu.pl.ogloszone=WARN")) {
+            seed(app.getBean(MongoTemplate.class));
+            int port = app.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            return drive(reactive ? "reactive" : "servlet", port);
+        }
+    }
+
+    private static void seed(MongoTemplate mongoTemplate) {
+        List<Add> adds = new ArrayList<>(SEEDED);
+        for (int i = 0; i < SEEDED; i++) {
+            String title = "Oferta " + i + " " + "x".repeat(180);
+            String content = "Ogłoszenie numer " + i;
+            adds.add(new Add(UUID.randomUUID().toString(), title, content, Category.SALE,
+                    new Contact(null, "seed@example.com"), LocalDateTime.now().minusMinutes(i),
+                    UUID.randomUUID().toString(), SearchText.of(title, content), 0L));
+        }
+        mongoTemplate.insertAll(adds);
+    }
+
+    private static Result drive(String mode, int port) throws Exception {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long heapBefore = memory.getHeapMemoryUsage().getUsed();
+        int threadsBefore = Thread.activeCount();
+
+        long end = System.nanoTime() + DURATION.toNanos();
+        try (ExecutorService slow = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < SLOW_CLIENTS; i++) {
+                // Pages past the first skip the hot page cache, so every slow client holds a live query.
+                String path = "/api/add?category=SALE&size=100&page=" + (1 + i % (SEEDED / 100 - 1));
+                slow.submit(() -> readSlowly(port, path, end));
+            }
+            // Let the slow clients fill the socket buffers before sampling.
+            Thread.sleep(5000);
+            System.gc();
+            long heapPerSlowClient = (memory.getHeapMemoryUsage().getUsed() - heapBefore) / SLOW_CLIENTS;
+            int threads = Thread.activeCount() - threadsBefore;
+
+            Latencies latencies = measureFastClients(port, end);
+            slow.shutdownNow();
+            return Result.of(mode, latencies, heapPerSlowClient, threads);
+        }
+    }
+
+    private static void readSlowly(int port, String path, long end) {
+        try (Socket socket = new Socket()) {
+            socket.setReceiveBufferSize(4096);
+            socket.connect(new InetSocketAddress("localhost", port));
+            OutputStream out = socket.getOutputStream();
+            out.write(("GET " + path + " HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            InputStream in = socket.getInputStream();
+            byte[] buffer = new byte[SLOW_READ_BYTES];
+            while (System.nanoTime() < end && in.read(buffer) != -1) {
+                Thread.sleep(SLOW_READ_PAUSE);
+            }
+        } catch (IOException | InterruptedException e) {
+            // The client gives up at the end of the run either way.
+        }
+    }
+
+    private static Latencies measureFastClients(int port, long end) throws Exception {
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        URI uri = URI.create("http://localhost:" + port + "/api/add?category=SALE&page=1&size=5");
+        List<Future<Latencies>> futures = new ArrayList<>(FAST_CLIENTS);
+        try (ExecutorService fast = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < FAST_CLIENTS; i++) {
+                futures.add(fast.submit(() -> {
+                    Latencies latencies = new Latencies();
+                    while (System.nanoTime() < end) {
+                        long start = System.nanoTime();
+                        boolean ok;
+                        try {
+                            ok = client.send(HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(30)).build(),
+                                    HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+                        } catch (IOException e) {
+                            ok = false;
+                        }
+                        latencies.record(System.nanoTime() - start, ok);
+                    }
+                    return latencies;
+                }));
+            }
+        }
+        Latencies all = new Latencies();
+        for (Future<Latencies> future : futures) {
+            all.addAll(future.get());
+        }
+        return all;
+    }
+
+    private record Result(String mode, long requests, long errors, double p50, double p99,
+                          long heapPerSlowClientKb, int threads) {
+
+        static final String HEADER = String.format("%-9s %10s %8s %9s %9s %14s %8s",
+                "mode", "requests", "errors", "p50 ms", "p99 ms", "KB per slow", "threads");
+
+        static Result of(String mode, Latencies latencies, long heapPerSlowClient, int threads) {
+            return new Result(mode, latencies.count(), latencies.errors(), latencies.percentile(0.50),
+                    latencies.percentile(0.99), heapPerSlowClient / 1024, threads);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-9s %10d %8d %9.1f %9.1f %14d %8d",
+                    mode, requests, errors, p50, p99, heapPerSlowClientKb, threads);
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.prz.edu.pl.ogloszone;
+
+import com.prz.edu.pl.ogloszone.add.Add;
+import com.prz.edu.pl.ogloszone.add.AddBuckets;
+import com.prz.edu.pl.ogloszone.add.AddCursor;
+import com.prz.edu.pl.ogloszone.add.AddExpiry;
+import com.prz.edu.pl.ogloszone.add.AddFilter;
+import com.prz.edu.pl.ogloszone.add.AddRepository;
+import com.prz.edu.pl.ogloszone.add.AddSummary;
+import com.prz.edu.pl.ogloszone.add.Contact;
+import com.prz.edu.pl.ogloszone.add.SearchText;
+import com.prz.edu.pl.ogloszone.category.Category;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.MongoDBContainer;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Compares the storage layouts of {@link AddBuckets} on the same data: inserting announcements spread over
+ * {@code 40} days, expiring the ten days past {@link Add#LIFETIME} in one run of {@link AddExpiry}, and listing
+ * what is left (offset pages, category pages, keyword search, cursor pages, lookups by id). The repository is
+ * called directly, so the numbers are storage costs without HTTP and caches.
+ * <p>
+ * Mongo is a Testcontainers container unless {@code -Dload.mongo-uri} points to a running instance. Tuning:
+ * {@code -Dload.seed} (announcements inserted per layout) and {@code -Dload.reads} (calls per read operation).
+ * Run with {@code -Pload-test}; the report is written to {@code target/load-test/storage-layout.txt}.
+ */
+@Tag("load")
+class StorageLayoutLoadTest {
+
+    private static final int SEEDED = Integer.getInteger("load.seed", 50_000);
+    private static final int READS = Integer.getInteger("load.reads", 500);
+    private static final int WRITERS = 16;
+    private static final int SPREAD_DAYS = 40;
+    private static final int PAGE_SIZE = 20;
+    private static final String[] KEYWORDS = {"rower", "mieszkanie", "praca", "kurs", "kot", "samochód", "laptop"};
+
+    @Test
+    void singleVersusBucketedCollections() throws Exception {
+        String mongoUri = System.getProperty("load.mongo-uri");
+        MongoDBContainer mongo = null;
+        if (mongoUri == null) {
+            assumeTrue(DockerClientFactory.instance().isDockerAvailable(), "Needs Docker or -Dload.mongo-uri");
+            mongo = new MongoDBContainer("mongo:7.0");
+            mongo.start();
+            mongoUri = mongo.getReplicaSetUrl();
+        }
+        try {
+            List<Result> results = new ArrayList<>();
+            for (AddBuckets.Layout layout : AddBuckets.Layout.values()) {
+                results.add(run(mongoUri, layout));
+            }
+
+            StringBuilder report = new StringBuilder(String.format("seeded=%d over %d days, reads=%d%n",
+                    SEEDED, SPREAD_DAYS, READS));
+            report.append(Result.HEADER).append(System.lineSeparator());
+            results.forEach(result -> report.append(result).append(System.lineSeparator()));
+            System.out.println(report);
+            Path output = Path.of("target", "load-test", "storage-layout.txt");
+            Files.createDirectories(output.getParent());
+            Files.writeString(output, report);
+
+            assertTrue(results.stream().allMatch(result -> result.insert().count() == SEEDED));
+        } finally {
+            if (mongo != null) {
+                mongo.stop();
+            }
+        }
+    }
+
+    private Result run(String mongoUri, AddBuckets.Layout layout) throws Exception {
+        String database = "load_layout_" + layout.name().toLowerCase();
+        try (ConfigurableApplicationContext app = new SpringApplicationBuilder(OgloszoneApplication.class)
+                .run(
+                        "--server.port=0",
+                        "--spring.data.mongodb.uri=" + mongoUri,
+                        "--spring.data.mongodb.database=" + database,
+                        "--ogloszone.storage.layout=" + layout.name().toLowerCase(),
+                        "--ogloszone.change-feed.mode=off",
+                        "--ogloszone.expiry.interval=PT24H",
+                        "--ogloszone.expiry.batch-size=1000",
+                        "--ogloszone.expiry.max-batches=1000000",
+                        "--ogloszone.expiry.batch-pause=PT0S",
+                        "--MAIL=load-test@example.com",
+                        "--MAIL_PASSWORD=unused",
+                        "--ogloszone.email.outbox.poll-interval-ms=3600000",
+                        "--logging.level.com.prz.edu.pl.ogloszone=WARN")) {
+            MongoTemplate mongoTemplate = app.getBean(MongoTemplate.class);
+            AddRepository repository = app.getBean(AddRepository.class);
+            try {
+                List<Add> adds = adds();
+                Latencies insert = insert(repository, adds);
+
+                AddExpiry expiry = app.getBean(AddExpiry.class);
+                long start = System.nanoTime();
+                expiry.expireAnnouncements();
+                double expireMs = (System.nanoTime() - start) / 1_000_000.0;
+                double expired = app.getBean(MeterRegistry.class).get("ogloszone.expiry.deleted").counter().count();
+                long collections = mongoTemplate.getCollectionNames().stream()
+                        .filter(name -> name.startsWith("announcements")).count();
+
+                LocalDateTime retained = LocalDateTime.now().minus(Add.LIFETIME);
+                List<String> ids = adds.stream().filter(add -> add.dateTime().isAfter(retained)).map(Add::id).toList();
+                Latencies page = measure(random -> repository.findPage(new AddFilter(null, null, null),
+                        PageRequest.of(random.nextInt(20), PAGE_SIZE)));
+                Latencies category = measure(random -> repository.findPage(new AddFilter(randomCategory(random), null, null),
+                        PageRequest.of(random.nextInt(20), PAGE_SIZE)));
+                Latencies keyword = measure(random -> repository.findPage(
+                        new AddFilter(null, null, SearchText.normalize(KEYWORDS[random.nextInt(KEYWORDS.length)])),
+                        PageRequest.of(0, PAGE_SIZE)));
+                Latencies cursor = measure(random -> {
+                    AddFilter filter = new AddFilter(randomCategory(random), null, null);
+                    Slice<AddSummary> first = repository.findSlice(filter, null, PAGE_SIZE);
+                    if (first.hasNext()) {
+                        List<AddSummary> content = first.getContent();
+                        repository.findSlice(filter, AddCursor.of(content.get(content.size() - 1)), PAGE_SIZE);
+                    }
+                });
+                Latencies get = measure(random -> repository.findById(ids.get(random.nextInt(ids.size()))));
+
+                return new Result(layout, insert, expireMs, (long) expired, collections, page, category, keyword,
+                        cursor, get);
+            } finally {
+                mongoTemplate.getDb().drop();
+            }
+        }
+    }
+
+    private static List<Add> adds() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<Add> adds = new ArrayList<>(SEEDED);
+        for (int i = 0; i < SEEDED; i++) {
+            adds.add(add(i, random));
+        }
+        return adds;
+    }
+
+    private static Latencies insert(AddRepository repository, List<Add> adds) throws Exception {
+        List<Future<Latencies>> futures = new ArrayList<>(WRITERS);
+        try (ExecutorService writers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int w = 0; w < WRITERS; w++) {
+                int writer = w;
+                futures.add(writers.submit(() -> {
+                    Latencies latencies = new Latencies();
+                    for (int i = writer; i < adds.size(); i += WRITERS) {
+                        long start = System.nanoTime();
+                        repository.save(adds.get(i));
+                        latencies.record(System.nanoTime() - start, true);
+                    }
+                    return latencies;
+                }));
+            }
+        }
+        Latencies all = new Latencies();
+        for (Future<Latencies> future : futures) {
+            all.addAll(future.get());
+        }
+        return all;
+    }
+
+    private static Latencies measure(Consumer<ThreadLocalRandom> operation) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < READS / 10; i++) {
+            operation.accept(random);
+        }
+        Latencies latencies = new Latencies();
+        for (int i = 0; i < READS; i++) {
+            long start = System.nanoTime();
+            operation.accept(random);
+            latencies.record(System.nanoTime() - start, true);
+        }
+        return latencies;
+    }
+
+    private static Add add(int i, ThreadLocalRandom random) {
+        Category category = Category.values()[i % Category.values().length];
+        String title = KEYWORDS[random.nextInt(KEYWORDS.length)] + " " + category.name().toLowerCase() + " " + i;
+        String content = "Ogłoszenie numer " + i + ". " + "Szczegóły oferty w treści ogłoszenia. ".repeat(
+                1 + random.nextInt(20));
+        return new Add(UUID.randomUUID().toString(), title, content, category,
+                new Contact("+48123456789", "seed@example.com"),
+                LocalDateTime.now().minusMinutes(random.nextInt(60 * 24 * SPREAD_DAYS)),
+                UUID.randomUUID().toString(), SearchText.of(title, content), null);
+    }
+
+    private static Category randomCategory(ThreadLocalRandom random) {
+        return Category.values()[random.nextInt(Category.values().length)];
+    }
+
+    private record Result(AddBuckets.Layout layout, Latencies insert, double expireMs, long expired,
+                          long collections, Latencies page, Latencies category, Latencies keyword,
+                          Latencies cursor, Latencies get) {
+
+        static final String HEADER = String.format("%-7s %10s %10s %10s %8s %6s %10s %10s %10s %10s %10s %10s",
+                "layout", "insert p50", "insert p99", "expire ms", "expired", "coll.", "page p50", "page p99",
+                "categ p50", "keywd p50", "cursor p50", "get p50");
+
+        @Override
+        public String toString() {
+            return String.format("%-7s %10.2f %10.2f %10.0f %8d %6d %10.2f %10.2f %10.2f %10.2f %10.2f %10.2f",
+                    layout.name().toLowerCase(), insert.percentile(0.50), insert.percentile(0.99), expireMs, expired,
+                    collections, page.percentile(0.50), page.percentile(0.99), category.percentile(0.50),
+                    keyword.percentile(0.50), cursor.percentile(0.50), get.percentile(0.50));
+        }
+    }
+}
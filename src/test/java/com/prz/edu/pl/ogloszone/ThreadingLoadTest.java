@@ -0,0 +1,182 @@
+package com.prz.edu.pl.ogloszone;
+
+import com.prz.edu.pl.ogloszone.add.Add;
+import com.prz.edu.pl.ogloszone.add.AddIdFilter;
+import com.prz.edu.pl.ogloszone.add.Contact;
+import com.prz.edu.pl.ogloszone.add.SearchText;
+import com.prz.edu.pl.ogloszone.category.Category;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives the same read mix against the application on Tomcat's platform thread pool and on virtual threads
+ * and reports throughput and latency percentiles for both. The application and the load generator share this
+ * JVM, so run it with the container heap ({@code -Pload-test} sets {@code -Xmx512m}). Concurrency and duration
+ * can be changed with {@code -Dload.clients} and {@code -Dload.duration}.
+ */
+@Tag("load")
+@Testcontainers(disabledWithoutDocker = true)
+class ThreadingLoadTest {
+
+    private static final int CLIENTS = Integer.getInteger("load.clients", 1000);
+    private static final Duration DURATION = Duration.parse(System.getProperty("load.duration", "PT30S"));
+    private static final Duration WARM_UP = Duration.ofSeconds(5);
+    private static final int SEEDED = 5000;
+    private static final String[] KEYWORDS = {"rower", "mieszkanie", "praca", "kurs", "kot"};
+
+    @Container
+    static MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+    @Test
+    void platformVersusVirtualThreads() throws Exception {
+        Result platform = run(false);
+        Result virtual = run(true);
+
+        String report = String.format("clients=%d duration=%s%n%s%n%s%n%s%n",
+                CLIENTS, DURATION, Result.HEADER, platform, virtual);
+        System.out.println(report);
+        Path output = Path.of("target", "load-test", "threading.txt");
+        Files.createDirectories(output.getParent());
+        Files.writeString(output, report);
+
+        assertTrue(platform.requests() > 0 && virtual.requests() > 0);
+    }
+
+    private Result run(boolean virtualThreads) throws Exception {
+        try (ConfigurableApplicationContext app = new SpringApplicationBuilder(OgloszoneApplication.class)
+                .run(
+                        "--server.port=0",
+                        "--spring.data.mongodb.uri=" + mongo.getReplicaSetUrl(),
+                        "--spring.data.mongodb.database=load_" + virtualThreads,
+                        "--spring.threads.virtual.enabled=" + virtualThreads,
+                        "--MAIL=load-test@example.com",
+                        "--MAIL_PASSWORD=unused",
+                        "--ogloszone.email.outbox.poll-interval-ms=3600000",
+                        "--logging.level.com.prz.edu.pl.ogloszone=WARN")) {
+            List<String> ids = seed(app.getBean(MongoTemplate.class));
+            awaitIdFilter(app.getBean(AddIdFilter.class), ids);
+            int port = app.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            return drive(virtualThreads ? "virtual" : "platform", "http://localhost:" + port, ids);
+        }
+    }
+
+    /**
+     * Waits until the change stream has delivered the ids seeded straight into Mongo, like another node's writes,
+     * to the id filter, so no GET of a stored announcement is answered 404 without a query.
+     */
+    private static void awaitIdFilter(AddIdFilter idFilter, List<String> ids) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(60).toNanos();
+        while (!ids.stream().map(UUID::fromString).allMatch(idFilter::mightContain)) {
+            assertTrue(System.nanoTime() < deadline, "Id filter did not learn the seeded ids");
+            Thread.sleep(200);
+        }
+    }
+
+    private static List<String> seed(MongoTemplate mongoTemplate) {
+        List<Add> adds = new ArrayList<>(SEEDED);
+        for (int i = 0; i < SEEDED; i++) {
+            Category category = Category.values()[i % Category.values().length];
+            String title = KEYWORDS[i % KEYWORDS.length] + " oferta " + i;
+            String content = "Ogłoszenie numer " + i + " w kategorii " + category.name().toLowerCase();
+            adds.add(new Add(UUID.randomUUID().toString(), title, content, category,
+                    new Contact(null, "seed@example.com"), LocalDateTime.now().minusMinutes(i),
+                    UUID.randomUUID().toString(), SearchText.of(title, content), 0L));
+        }
+        mongoTemplate.insertAll(adds);
+        return adds.stream().map(Add::id).toList();
+    }
+
+    private static Result drive(String mode, String baseUrl, List<String> ids) throws Exception {
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        long warmUpEnd = System.nanoTime() + WARM_UP.toNanos();
+        long end = warmUpEnd + DURATION.toNanos();
+
+        List<Future<Latencies>> futures = new ArrayList<>(CLIENTS);
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < CLIENTS; i++) {
+                futures.add(clients.submit(() -> {
+                    Latencies latencies = new Latencies();
+                    while (System.nanoTime() < end) {
+                        HttpRequest request = HttpRequest.newBuilder(nextUri(baseUrl, ids))
+                                .timeout(Duration.ofSeconds(30))
+                                .build();
+                        long start = System.nanoTime();
+                        boolean ok;
+                        try {
+                            ok = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+                        } catch (IOException e) {
+                            ok = false;
+                        }
+                        if (start >= warmUpEnd) {
+                            latencies.record(System.nanoTime() - start, ok);
+                        }
+                    }
+                    return latencies;
+                }));
+            }
+        }
+
+        Latencies all = new Latencies();
+        for (Future<Latencies> future : futures) {
+            all.addAll(future.get());
+        }
+        long heapUsed = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        return new Result(mode, all.count(), all.errors(), all.count() / (double) DURATION.toSeconds(),
+                all.percentile(0.50), all.percentile(0.99), all.max(), heapUsed / (1024 * 1024));
+    }
+
+    private static URI nextUri(String baseUrl, List<String> ids) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int roll = random.nextInt(100);
+        if (roll < 40) {
+            return URI.create(baseUrl + "/api/add/" + ids.get(random.nextInt(ids.size())));
+        }
+        if (roll < 80) {
+            Category category = Category.values()[random.nextInt(Category.values().length)];
+            return URI.create(baseUrl + "/api/add?category=" + category.name() + "&page=" + (1 + random.nextInt(20)));
+        }
+        return URI.create(baseUrl + "/api/add?keyword=" + KEYWORDS[random.nextInt(KEYWORDS.length)]);
+    }
+
+    private record Result(String mode, long requests, long errors, double throughput,
+                          double p50, double p99, double max, long heapUsedMb) {
+
+        static final String HEADER = String.format("%-9s %10s %8s %10s %9s %9s %9s %8s",
+                "mode", "requests", "errors", "req/s", "p50 ms", "p99 ms", "max ms", "heap MB");
+
+        @Override
+        public String toString() {
+            return String.format("%-9s %10d %8d %10.0f %9.1f %9.1f %9.1f %8d",
+                    mode, requests, errors, throughput, p50, p99, max, heapUsedMb);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.prz.edu.pl.ogloszone.add;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AddBatchImportTest {
+
+    private static final String VALID = "{\"title\":\"Rower\",\"content\":\"Sprzedam rower\",\"category\":\"FOR_SALE\","
+            + "\"contact\":{\"email\":\"jan@example.com\"}}";
+
+    @Mock
+    private AddService service;
+
+    private SimpleMeterRegistry meterRegistry;
+    private AddBatchImport batchImport;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        batchImport = new AddBatchImport(service, new ObjectMapper(),
+                Validation.buildDefaultValidatorFactory().getValidator(), meterRegistry, 2, 5);
+        lenient().when(service.createAdds(anyList())).thenAnswer(invocation -> {
+            List<AddRequest> requests = invocation.getArgument(0);
+            return IntStream.range(0, requests.size())
+                    .mapToObj(i -> AddBatchItem.created(i, UUID.randomUUID().toString()))
+                    .toList();
+        });
+    }
+
+    @Test
+    void importFrom_JsonArray_ReportsInvalidEntriesAndStoresTheRestInChunks() throws IOException {
+        String body = "[" + VALID + ", {\"content\":\"Bez tytułu\",\"category\":\"JOB\",\"contact\":{}}, "
+                + "{\"title\":\"Zły kontakt\",\"content\":\"x\",\"category\":\"JOB\",\"contact\":\"jan\"}, "
+                + VALID + "]";
+
+        AddBatchResponse response = batchImport.importFrom(stream(body));
+
+        assertEquals(4, response.received());
+        assertEquals(2, response.created());
+        assertNull(response.error());
+        assertEquals(List.of(AddBatchItem.Status.CREATED, AddBatchItem.Status.INVALID, AddBatchItem.Status.INVALID,
+                AddBatchItem.Status.CREATED), response.items().stream().map(AddBatchItem::status).toList());
+        assertEquals(List.of(0, 1, 2, 3), response.items().stream().map(AddBatchItem::index).toList());
+        assertEquals(List.of("Title is required"), response.items().get(1).errors());
+        verify(service, times(2)).createAdds(anyList());
+        assertEquals(2, meterRegistry.get("ogloszone.add.batch.items").tag("status", "invalid").counter().count());
+    }
+
+    @Test
+    void importFrom_Ndjson_StopsAfterMaxItems() throws IOException {
+        String body = (VALID + "\n").repeat(7);
+
+        AddBatchResponse response = batchImport.importFrom(stream(body));
+
+        assertEquals(5, response.received());
+        assertEquals(5, response.created());
+        assertEquals("A batch can contain at most 5 entries", response.error());
+        verify(service, times(3)).createAdds(anyList());
+    }
+
+    @Test
+    void importFrom_MalformedJson_KeepsWhatWasReadBefore() throws IOException {
+        String body = VALID + "\n" + VALID + "\n{\"title\": \n";
+
+        AddBatchResponse response = batchImport.importFrom(stream(body));
+
+        assertEquals(2, response.received());
+        assertEquals(2, response.created());
+        assertTrue(response.error().startsWith("Malformed JSON at entry 2"));
+    }
+
+    private static ByteArrayInputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
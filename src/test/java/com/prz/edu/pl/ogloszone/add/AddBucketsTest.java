@@ -0,0 +1,75 @@
+package com.prz.edu.pl.ogloszone.add;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AddBucketsTest {
+
+    // A Saturday.
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 10, 18, 12, 0);
+    private static final Clock CLOCK = Clock.fixed(NOW.toInstant(ZoneOffset.UTC), ZoneId.of("UTC"));
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private IndexOperations indexOperations;
+
+    @Test
+    void single_UsesOneCollection() {
+        AddBuckets buckets = new AddBuckets(mongoTemplate, AddBuckets.Layout.SINGLE, CLOCK);
+
+        assertEquals("announcements", buckets.forWrite(NOW));
+        assertEquals(List.of("announcements"), buckets.forRead(null, null));
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void weekly_ReadsOnlyBucketsOverlappingTheRange() {
+        AddBuckets buckets = new AddBuckets(mongoTemplate, AddBuckets.Layout.WEEKLY, CLOCK);
+
+        assertEquals(List.of("announcements_w2025_10_13", "announcements_w2025_10_06"),
+                buckets.forRead(NOW.minusDays(8), null));
+        assertEquals(List.of("announcements_w2025_10_06", "announcements_w2025_09_29"),
+                buckets.forRead(NOW.minusDays(15), NOW.minusDays(8)));
+        // Without a lower bound: every bucket that can still hold an unexpired announcement.
+        assertEquals(5, buckets.forRead(null, null).size());
+        assertEquals(LocalDateTime.of(2025, 10, 20, 0, 0), buckets.end("announcements_w2025_10_13"));
+    }
+
+    @Test
+    void daily_CreatesIndexesOnceBeforeTheFirstWrite() {
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(new MongoCustomConversions(List.of()).getSimpleTypeHolder());
+        when(mongoTemplate.getConverter())
+                .thenReturn(new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext));
+        when(mongoTemplate.indexOps("announcements_d2025_10_18")).thenReturn(indexOperations);
+        AddBuckets buckets = new AddBuckets(mongoTemplate, AddBuckets.Layout.DAILY, CLOCK);
+
+        assertEquals("announcements_d2025_10_18", buckets.forWrite(NOW));
+        assertEquals("announcements_d2025_10_18", buckets.forWrite(NOW.plusHours(11)));
+
+        // dateTime_id, category_dateTime_id and the text index.
+        verify(indexOperations, times(3)).ensureIndex(any(IndexDefinition.class));
+    }
+}
@@ -0,0 +1,146 @@
+package com.prz.edu.pl.ogloszone.add;
+
+import com.prz.edu.pl.ogloszone.category.Category;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AddCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private AddCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new AddCache(meterRegistry, 100, Duration.ofMinutes(10));
+    }
+
+    @Test
+    void get_ConcurrentMissesLoadOnce() throws Exception {
+        AddResponse add = response(LocalDateTime.now());
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            Future<?> first = executor.submit(() -> cache.get(add.id().toString(), id -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                await(release);
+                return add;
+            }));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            Future<?>[] others = new Future<?>[7];
+            for (int i = 0; i < others.length; i++) {
+                others[i] = executor.submit(() -> cache.get(add.id().toString(), id -> {
+                    loads.incrementAndGet();
+                    return add;
+                }));
+            }
+            release.countDown();
+
+            assertEquals(add, first.get(5, TimeUnit.SECONDS));
+            for (Future<?> other : others) {
+                assertEquals(add, other.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void invalidate_ForcesReload() {
+        AddResponse add = response(LocalDateTime.now());
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(add.id().toString(), id -> {
+            loads.incrementAndGet();
+            return add;
+        });
+        cache.invalidate(add.id().toString());
+        cache.get(add.id().toString(), id -> {
+            loads.incrementAndGet();
+            return add;
+        });
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void onChange_DropsChangedIdAndEverythingOnResync() {
+        AddResponse first = response(LocalDateTime.now());
+        AddResponse second = response(LocalDateTime.now());
+        AtomicInteger loads = new AtomicInteger();
+        Function<String, AddResponse> load = id -> {
+            loads.incrementAndGet();
+            return id.equals(first.id().toString()) ? first : second;
+        };
+        cache.get(first.id().toString(), load);
+        cache.get(second.id().toString(), load);
+
+        cache.onChange(new AddChangeEvent(AddChangeEvent.Type.UPDATED, first.id().toString(), null,
+                AddChangeEvent.Origin.FEED));
+        cache.get(first.id().toString(), load);
+        cache.get(second.id().toString(), load);
+        assertEquals(3, loads.get());
+
+        cache.onChange(AddChangeEvent.resync(AddChangeEvent.Origin.FEED));
+        cache.get(first.id().toString(), load);
+        cache.get(second.id().toString(), load);
+        assertEquals(5, loads.get());
+    }
+
+    @Test
+    void get_ExpiredAnnouncementIsNotKept() {
+        AddResponse expired = response(LocalDateTime.now().minus(Add.LIFETIME).minusMinutes(1));
+        AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 0; i < 2; i++) {
+            cache.get(expired.id().toString(), id -> {
+                loads.incrementAndGet();
+                return expired;
+            });
+        }
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void metrics_RecordHitsAndMisses() {
+        AddResponse add = response(LocalDateTime.now());
+        cache.get(add.id().toString(), id -> add);
+        cache.get(add.id().toString(), id -> add);
+
+        assertEquals(1, meterRegistry.get("cache.gets").tag("cache", "add").tag("result", "hit").functionCounter().count());
+        assertEquals(1, meterRegistry.get("cache.gets").tag("cache", "add").tag("result", "miss").functionCounter().count());
+    }
+
+    private static AddResponse response(LocalDateTime dateTime) {
+        return new AddResponse(UUID.randomUUID(), "Title", "Content", Category.JOB,
+                new Contact(null, "test@example.com"), dateTime, 0L);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
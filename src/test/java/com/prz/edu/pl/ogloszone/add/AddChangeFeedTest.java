@@ -0,0 +1,209 @@
+package com.prz.edu.pl.ogloszone.add;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.prz.edu.pl.ogloszone.category.Category;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the feed against a single-node replica set. Needs Docker; skipped otherwise.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class AddChangeFeedTest {
+
+    @Container
+    static MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+    private static MongoClient client;
+    private static MongoTemplate mongoTemplate;
+
+    private final List<AddChangeEvent> events = new CopyOnWriteArrayList<>();
+    private AddChangeFeed feed;
+    private AddChangeFeed other;
+
+    @BeforeAll
+    static void connect() {
+        client = MongoClients.create(mongo.getReplicaSetUrl());
+        mongoTemplate = new MongoTemplate(client, "feed_test");
+    }
+
+    @AfterAll
+    static void disconnect() {
+        client.close();
+    }
+
+    @AfterEach
+    void tearDown() {
+        feed.stop();
+        if (other != null) {
+            other.stop();
+        }
+        mongoTemplate.getDb().drop();
+    }
+
+    @Test
+    void changeStream_PublishesInsertUpdateAndDelete() throws Exception {
+        feed = start(AddChangeFeed.Mode.AUTO);
+        awaitMode(AddChangeFeed.Mode.CHANGE_STREAM);
+
+        Add add = mongoTemplate.insert(add("Rower"));
+        mongoTemplate.save(withTitle(add, "Rower górski"));
+        mongoTemplate.remove(Query.query(Criteria.where("_id").is(add.id())), Add.class);
+
+        awaitEvent(e -> e.type() == AddChangeEvent.Type.DELETED && add.id().equals(e.id()));
+        assertTrue(events.stream().anyMatch(e -> e.type() == AddChangeEvent.Type.CREATED && add.id().equals(e.id())));
+        assertTrue(events.stream().anyMatch(e -> e.type() == AddChangeEvent.Type.UPDATED
+                && "Rower górski".equals(e.add().title())));
+        assertTrue(events.stream().allMatch(e -> e.origin() == AddChangeEvent.Origin.FEED));
+    }
+
+    @Test
+    void changeStream_ResumesFromStoredTokenAfterRestart() throws Exception {
+        feed = start(AddChangeFeed.Mode.CHANGE_STREAM);
+        awaitMode(AddChangeFeed.Mode.CHANGE_STREAM);
+        Add first = mongoTemplate.insert(add("Pierwsze"));
+        awaitEvent(e -> first.id().equals(e.id()));
+        feed.stop();
+
+        Add missed = mongoTemplate.insert(add("W trakcie restartu"));
+        feed = start(AddChangeFeed.Mode.CHANGE_STREAM);
+
+        awaitEvent(e -> missed.id().equals(e.id()));
+    }
+
+    @Test
+    void changeStream_EachNodeResumesFromItsOwnToken() throws Exception {
+        feed = start(AddChangeFeed.Mode.CHANGE_STREAM);
+        awaitMode(AddChangeFeed.Mode.CHANGE_STREAM);
+        Add first = mongoTemplate.insert(add("Pierwsze"));
+        awaitEvent(e -> first.id().equals(e.id()));
+        feed.stop();
+
+        // Another node keeps running and stores a position past the change this node misses.
+        List<AddChangeEvent> otherEvents = new CopyOnWriteArrayList<>();
+        other = start(AddChangeFeed.Mode.CHANGE_STREAM, "node-b", event -> otherEvents.add((AddChangeEvent) event));
+        Add missed = mongoTemplate.insert(add("W trakcie restartu"));
+        Add after = mongoTemplate.insert(add("Po restarcie"));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (otherEvents.stream().noneMatch(e -> after.id().equals(e.id())) && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        Thread.sleep(1500);
+        feed = start(AddChangeFeed.Mode.CHANGE_STREAM);
+
+        awaitEvent(e -> missed.id().equals(e.id()));
+    }
+
+    @Test
+    void changeStream_KeepsPublishingAfterAListenerFails() throws Exception {
+        feed = start(AddChangeFeed.Mode.CHANGE_STREAM, "node-a", event -> {
+            AddChangeEvent change = (AddChangeEvent) event;
+            if (change.add() != null && "Wadliwe".equals(change.add().title())) {
+                throw new IllegalStateException("listener failed");
+            }
+            events.add(change);
+        });
+        awaitMode(AddChangeFeed.Mode.CHANGE_STREAM);
+
+        mongoTemplate.insert(add("Wadliwe"));
+        Add next = mongoTemplate.insert(add("Kolejne"));
+
+        awaitEvent(e -> next.id().equals(e.id()));
+        assertEquals(AddChangeFeed.Mode.CHANGE_STREAM, feed.activeMode());
+    }
+
+    @Test
+    void polling_PublishesNewAndUpdatedAnnouncements() throws Exception {
+        feed = start(AddChangeFeed.Mode.POLLING);
+        awaitMode(AddChangeFeed.Mode.POLLING);
+
+        Add add = mongoTemplate.insert(add("Mieszkanie"));
+
+        awaitEvent(e -> e.type() == AddChangeEvent.Type.UPDATED && add.id().equals(e.id()));
+    }
+
+    @Test
+    void polling_ReadsEveryRowOfABurstOnceAndKeepsUp() throws Exception {
+        feed = start(AddChangeFeed.Mode.POLLING);
+        awaitMode(AddChangeFeed.Mode.POLLING);
+
+        // Many of these share a dateTime, so pages have to continue on _id.
+        List<Add> burst = new ArrayList<>();
+        for (int i = 0; i < AddChangeFeed.POLL_BATCH_SIZE * 2 + 500; i++) {
+            burst.add(add("Paczka " + i));
+        }
+        mongoTemplate.insertAll(burst);
+        Add later = mongoTemplate.insert(add("Po paczce"));
+
+        awaitEvent(e -> later.id().equals(e.id()));
+        Thread.sleep(600);
+        Map<String, Long> published = events.stream()
+                .collect(Collectors.groupingBy(AddChangeEvent::id, Collectors.counting()));
+        for (Add add : burst) {
+            assertEquals(1L, published.get(add.id()), add.title());
+        }
+        assertEquals(1L, published.get(later.id()));
+    }
+
+    private AddChangeFeed start(AddChangeFeed.Mode mode) {
+        return start(mode, "node-a", event -> events.add((AddChangeEvent) event));
+    }
+
+    private AddChangeFeed start(AddChangeFeed.Mode mode, String nodeId, ApplicationEventPublisher publisher) {
+        AddBuckets buckets = new AddBuckets(mongoTemplate, AddBuckets.Layout.SINGLE);
+        AddChangeFeed started = new AddChangeFeed(mongoTemplate, buckets, publisher, mode, Duration.ofMillis(200),
+                nodeId);
+        started.start();
+        return started;
+    }
+
+    private void awaitMode(AddChangeFeed.Mode mode) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (feed.activeMode() != mode && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals(mode, feed.activeMode());
+    }
+
+    private void awaitEvent(Predicate<AddChangeEvent> matcher) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (events.stream().noneMatch(matcher) && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        assertTrue(events.stream().anyMatch(matcher), () -> "Event not published, got: " + events);
+    }
+
+    private static Add add(String title) {
+        return new Add(UUID.randomUUID().toString(), title, "Opis", Category.SALE,
+                new Contact(null, "test@example.com"), LocalDateTime.now(), UUID.randomUUID().toString(),
+                SearchText.of(title, "Opis"), null);
+    }
+
+    private static Add withTitle(Add add, String title) {
+        return new Add(add.id(), title, add.content(), add.category(), add.contact(), LocalDateTime.now(),
+                add.editCode(), SearchText.of(title, add.content()), add.version());
+    }
+}
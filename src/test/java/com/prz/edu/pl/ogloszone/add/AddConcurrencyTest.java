@@ -0,0 +1,112 @@
+package com.prz.edu.pl.ogloszone.add;
+
+import com.prz.edu.pl.ogloszone.category.Category;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Concurrent read-modify-write cycles through the guarded update never lose an edit. Needs Docker; skipped
+ * otherwise.
+ */
+@DataMongoTest
+@Testcontainers(disabledWithoutDocker = true)
+class AddConcurrencyTest {
+
+    private static final int WRITERS = 8;
+    private static final int EDITS_PER_WRITER = 25;
+
+    @Container
+    @ServiceConnection
+    static MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+    @Autowired
+    private AddRepository repository;
+
+    @Test
+    void updateIfMatches_ConcurrentEditsAreNotLost() throws Exception {
+        Add add = repository.save(add("0"));
+        assertEquals(0L, add.version().longValue());
+
+        AtomicInteger conflicts = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int i = 0; i < WRITERS; i++) {
+                writers.add(executor.submit(() -> {
+                    start.await();
+                    for (int edit = 0; edit < EDITS_PER_WRITER; edit++) {
+                        while (!increment(add.id(), add.editCode())) {
+                            conflicts.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> writer : writers) {
+                writer.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Add result = repository.findById(add.id()).orElseThrow();
+        assertEquals(String.valueOf(WRITERS * EDITS_PER_WRITER), result.content());
+        assertEquals((long) WRITERS * EDITS_PER_WRITER, result.version().longValue());
+        assertTrue(conflicts.get() > 0, "writers should have raced at least once");
+    }
+
+    @Test
+    void guardedWrites_RejectWrongEditCodeAndStaleVersion() {
+        Add add = repository.save(add("0"));
+        Add wrongCode = copy(add, "1", UUID.randomUUID().toString());
+
+        assertNull(repository.updateIfMatches(wrongCode, null));
+        assertNull(repository.deleteIfMatches(add.id(), wrongCode.editCode(), null));
+
+        Add updated = repository.updateIfMatches(copy(add, "1", add.editCode()), 0L);
+        assertEquals(1L, updated.version().longValue());
+        assertEquals("1", updated.content());
+
+        assertNull(repository.updateIfMatches(copy(add, "2", add.editCode()), 0L));
+        assertNull(repository.deleteIfMatches(add.id(), add.editCode(), 0L));
+        assertNotNull(repository.deleteIfMatches(add.id(), add.editCode(), 1L));
+        assertTrue(repository.findById(add.id()).isEmpty());
+    }
+
+    private boolean increment(String id, String editCode) {
+        Add current = repository.findById(id).orElseThrow();
+        String next = String.valueOf(Integer.parseInt(current.content()) + 1);
+        return repository.updateIfMatches(copy(current, next, editCode), current.version()) != null;
+    }
+
+    private static Add add(String content) {
+        return new Add(UUID.randomUUID().toString(), "Licznik", content, Category.OTHER,
+                new Contact(null, "test@example.com"), LocalDateTime.now(), UUID.randomUUID().toString(),
+                SearchText.of("Licznik", content), null);
+    }
+
+    private static Add copy(Add add, String content, String editCode) {
+        return new Add(add.id(), add.title(), content, add.category(), add.contact(), LocalDateTime.now(), editCode,
+                SearchText.of(add.title(), content), add.version());
+    }
+}
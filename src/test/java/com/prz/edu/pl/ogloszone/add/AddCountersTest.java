@@ -0,0 +1,102 @@
+package com.prz.edu.pl.ogloszone.add;
+
+import com.prz.edu.pl.ogloszone.category.Category;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AddCountersTest {
+
+    private static final LocalDateTime TODAY = LocalDateTime.of(2025, 10, 18, 12, 0);
+    private static final LocalDateTime YESTERDAY = TODAY.minusDays(1);
+
+    @Mock
+    private AddRepository repository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private AddCounters counters;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        counters = new AddCounters(repository, meterRegistry, Clock.systemDefaultZone(), Runnable::run);
+    }
+
+    @Test
+    void counts_RebuiltFromStoredAnnouncements() {
+        when(repository.countByCategoryAndDay()).thenReturn(List.of(
+                count(Category.JOB, TODAY, 1), count(Category.JOB, YESTERDAY, 1), count(Category.PETS, TODAY, 1)));
+
+        counters.warmUp();
+        AddCounts counts = counters.counts();
+
+        assertEquals(3, counts.total());
+        assertEquals(2, counts.categories().get(Category.JOB));
+        assertEquals(0, counts.categories().get(Category.SALE));
+        assertEquals(List.of(TODAY.toLocalDate(), YESTERDAY.toLocalDate()), List.copyOf(counts.days().keySet()));
+        assertEquals(2, counts.days().get(TODAY.toLocalDate()));
+        assertNotNull(counts.reconciledAt());
+    }
+
+    @Test
+    void onChange_CountsLocalChangesOnceAndIgnoresTheFeed() {
+        when(repository.countByCategoryAndDay()).thenReturn(List.of());
+        counters.warmUp();
+        Add created = add("1", Category.JOB, YESTERDAY, 0);
+
+        counters.onChange(AddChangeEvent.local(AddChangeEvent.Type.CREATED, created));
+        // The feed delivers the same creation again.
+        counters.onChange(new AddChangeEvent(AddChangeEvent.Type.CREATED, "1", created, AddChangeEvent.Origin.FEED));
+
+        AddCounts counts = counters.counts();
+        assertEquals(1, counts.total());
+        assertEquals(Map.of(YESTERDAY.toLocalDate(), 1L), counts.days());
+        assertEquals(1, counts.categories().get(Category.JOB));
+
+        counters.onChange(new AddChangeEvent(AddChangeEvent.Type.DELETED, "1", null, AddChangeEvent.Origin.FEED));
+        counters.onChange(AddChangeEvent.local(AddChangeEvent.Type.DELETED, created));
+
+        assertEquals(0, counters.counts().total());
+        assertEquals(0, counters.counts().categories().get(Category.JOB));
+    }
+
+    @Test
+    void rebuild_ReplacesTheCountersAndReportsDrift() {
+        when(repository.countByCategoryAndDay()).thenReturn(List.of(count(Category.JOB, TODAY, 1)));
+        counters.warmUp();
+        Add edited = add("1", Category.SALE, TODAY, 1);
+        counters.onChange(AddChangeEvent.local(AddChangeEvent.Type.UPDATED, edited));
+        // The edit moved the announcement to another category, which only the database knows.
+        when(repository.countByCategoryAndDay()).thenReturn(List.of(count(Category.SALE, TODAY, 1)));
+
+        counters.reconcile();
+
+        AddCounts counts = counters.counts();
+        assertEquals(1, counts.total());
+        assertEquals(1, counts.categories().get(Category.SALE));
+        assertEquals(0, counts.categories().get(Category.JOB));
+        assertEquals(1, meterRegistry.get("ogloszone.add.counters.drift").counter().count());
+    }
+
+    private static AddRepositoryCustom.DayCount count(Category category, LocalDateTime dateTime, long count) {
+        return new AddRepositoryCustom.DayCount(category, dateTime.toLocalDate(), count);
+    }
+
+    private static Add add(String id, Category category, LocalDateTime dateTime, long version) {
+        return new Add(id, "Title", "Content", category, null, dateTime, UUID.randomUUID().toString(), null,
+                version);
+    }
+}
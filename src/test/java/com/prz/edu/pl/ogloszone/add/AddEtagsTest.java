@@ -0,0 +1,65 @@
+package com.prz.edu.pl.ogloszone.add;
+
+import com.prz.edu.pl.ogloszone.category.Category;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AddEtagsTest {
+
+    @Mock
+    private AddChangeFeed changeFeed;
+
+    @Test
+    void listing_ChangesWithEveryChangeEvent() {
+        when(changeFeed.activeMode()).thenReturn(AddChangeFeed.Mode.CHANGE_STREAM);
+        AddEtags etags = new AddEtags(changeFeed);
+        String before = etags.listing();
+
+        assertEquals(before, etags.listing());
+        etags.onChange(AddChangeEvent.local(AddChangeEvent.Type.DELETED, add(1L)));
+
+        assertNotEquals(before, etags.listing());
+        assertNotEquals(before, new AddEtags(changeFeed).listing());
+    }
+
+    @Test
+    void listing_NoneWithoutChangeStream() {
+        // Polling misses deletions and expiry on other nodes, so a listing could go stale behind its ETag.
+        when(changeFeed.activeMode()).thenReturn(AddChangeFeed.Mode.POLLING);
+
+        assertNull(new AddEtags(changeFeed).listing());
+        assertFalse(AddEtags.matches("*", null));
+    }
+
+    @Test
+    void matches_AcceptsListsWeakTagsAndWildcard() {
+        String etag = "\"abc-3\"";
+
+        assertTrue(AddEtags.matches(etag, etag));
+        assertTrue(AddEtags.matches("\"other\", W/\"abc-3\"", etag));
+        assertTrue(AddEtags.matches("*", etag));
+        assertFalse(AddEtags.matches("\"abc-4\"", etag));
+        assertFalse(AddEtags.matches(null, etag));
+    }
+
+    @Test
+    void of_ChangesWithTheVersion() {
+        assertEquals(AddEtags.of(new AddResponse(add(1L))), AddEtags.of(new AddResponse(add(1L))));
+        assertNotEquals(AddEtags.of(new AddResponse(add(1L))), AddEtags.of(new AddResponse(add(2L))));
+    }
+
+    private static Add add(Long version) {
+        return new Add("550e8400-e29b-41d4-a716-446655440000", "Title", "Content", Category.JOB,
+                new Contact(null, "jan@example.com"), LocalDateTime.of(2025, 10, 18, 12, 0),
+                UUID.randomUUID().toString(), SearchText.of("Title", "Content"), version);
+    }
+}
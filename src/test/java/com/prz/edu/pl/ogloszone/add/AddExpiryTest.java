@@ -0,0 +1,149 @@
+package com.prz.edu.pl.ogloszone.add;
+
+import com.mongodb.client.result.DeleteResult;
+import com.prz.edu.pl.ogloszone.category.Category;
+import com.prz.edu.pl.ogloszone.util.JobLock;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AddExpiryTest {
+
+    private static final DateTimeFormatter BUCKET_DATE = DateTimeFormatter.ofPattern("yyyy_MM_dd");
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private JobLock lock;
+
+    @Mock
+    private ApplicationEventPublisher publisher;
+
+    private SimpleMeterRegistry meterRegistry;
+    private AddExpiry expiry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        expiry = expiry(AddBuckets.Layout.SINGLE);
+    }
+
+    @Test
+    void expireAnnouncements_DeletesInBatchesAndPublishesEachId() {
+        when(lock.tryAcquire(AddExpiry.JOB, Duration.ofMinutes(5))).thenReturn(true);
+        when(mongoTemplate.find(any(Query.class), eq(Add.class)))
+                .thenReturn(expired(2), expired(1));
+        when(mongoTemplate.remove(any(Query.class), eq(Add.class)))
+                .thenReturn(DeleteResult.acknowledged(2), DeleteResult.acknowledged(1));
+        when(mongoTemplate.findOne(any(Query.class), eq(Add.class))).thenReturn(null);
+
+        expiry.expireAnnouncements();
+
+        verify(mongoTemplate, times(2)).remove(any(Query.class), eq(Add.class));
+        ArgumentCaptor<AddChangeEvent> events = ArgumentCaptor.forClass(AddChangeEvent.class);
+        verify(publisher, times(3)).publishEvent(events.capture());
+        assertTrue(events.getAllValues().stream().allMatch(event -> event.type() == AddChangeEvent.Type.DELETED));
+        assertEquals(3, meterRegistry.get("ogloszone.expiry.deleted").counter().count());
+        verify(lock).release(AddExpiry.JOB);
+    }
+
+    @Test
+    void expireAnnouncements_StopsAfterMaxBatches() {
+        when(lock.tryAcquire(AddExpiry.JOB, Duration.ofMinutes(5))).thenReturn(true);
+        when(mongoTemplate.find(any(Query.class), eq(Add.class))).thenAnswer(invocation -> expired(2));
+        when(mongoTemplate.remove(any(Query.class), eq(Add.class))).thenReturn(DeleteResult.acknowledged(2));
+
+        assertEquals(6, expiry.expireBatches());
+        verify(mongoTemplate, times(3)).remove(any(Query.class), eq(Add.class));
+    }
+
+    @Test
+    void expireBatches_PublishesOnlyAnnouncementsActuallyDeleted() {
+        List<Add> candidates = expired(2);
+        Add edited = candidates.get(0);
+        // The first candidate is edited, and so renewed, between the read and the delete.
+        when(mongoTemplate.find(any(Query.class), eq(Add.class))).thenReturn(candidates, List.of(edited));
+        when(mongoTemplate.remove(any(Query.class), eq(Add.class))).thenReturn(DeleteResult.acknowledged(1));
+
+        assertEquals(1, expiry.expireBatches());
+
+        verify(mongoTemplate, times(1)).remove(any(Query.class), eq(Add.class));
+        verify(publisher).publishEvent(new AddChangeEvent(AddChangeEvent.Type.DELETED, candidates.get(1).id(),
+                candidates.get(1), AddChangeEvent.Origin.LOCAL));
+        verifyNoMoreInteractions(publisher);
+        assertEquals(1, meterRegistry.get("ogloszone.expiry.deleted").counter().count());
+    }
+
+    @Test
+    void expireAnnouncements_SkipsWhenAnotherNodeHoldsLock() {
+        when(lock.tryAcquire(AddExpiry.JOB, Duration.ofMinutes(5))).thenReturn(false);
+        when(mongoTemplate.findOne(any(Query.class), eq(Add.class)))
+                .thenReturn(add(LocalDateTime.now().minus(Add.LIFETIME).minusHours(2)));
+
+        expiry.expireAnnouncements();
+
+        verify(mongoTemplate, never()).remove(any(Query.class), eq(Add.class));
+        verify(lock, never()).release(any());
+        double lag = meterRegistry.get("ogloszone.expiry.lag").timeGauge().value(TimeUnit.HOURS);
+        assertEquals(2, lag, 0.01);
+    }
+
+    @Test
+    void expireAnnouncements_DropsExpiredBucketsWhenBucketed() {
+        expiry = expiry(AddBuckets.Layout.DAILY);
+        LocalDate oldestLive = LocalDate.now().minusDays(Add.LIFETIME.toDays());
+        String expiredBucket = "announcements_d" + BUCKET_DATE.format(oldestLive.minusDays(2));
+        String liveBucket = "announcements_d" + BUCKET_DATE.format(oldestLive);
+        when(lock.tryAcquire(AddExpiry.JOB, Duration.ofMinutes(5))).thenReturn(true);
+        when(mongoTemplate.getCollectionNames()).thenReturn(Set.of(liveBucket, "job_locks", expiredBucket));
+        when(mongoTemplate.estimatedCount(expiredBucket)).thenReturn(7L);
+
+        expiry.expireAnnouncements();
+
+        verify(mongoTemplate).dropCollection(expiredBucket);
+        verify(mongoTemplate, never()).dropCollection(liveBucket);
+        verify(mongoTemplate, never()).remove(any(Query.class), eq(Add.class));
+        verify(publisher).publishEvent(AddChangeEvent.resync(AddChangeEvent.Origin.LOCAL));
+        assertEquals(7, meterRegistry.get("ogloszone.expiry.deleted").counter().count());
+    }
+
+    private AddExpiry expiry(AddBuckets.Layout layout) {
+        return new AddExpiry(mongoTemplate, new AddBuckets(mongoTemplate, layout), lock, publisher, meterRegistry,
+                2, 3, Duration.ZERO, Duration.ofMinutes(5));
+    }
+
+    private static List<Add> expired(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> add(LocalDateTime.now().minus(Add.LIFETIME).minusMinutes(i + 1)))
+                .toList();
+    }
+
+    private static Add add(LocalDateTime dateTime) {
+        return new Add(UUID.randomUUID().toString(), null, null, Category.JOB, null, dateTime, null, null,
+                null);
+    }
+}
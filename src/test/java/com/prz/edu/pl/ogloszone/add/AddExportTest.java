@@ -0,0 +1,117 @@
+package com.prz.edu.pl.ogloszone.add;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.prz.edu.pl.ogloszone.category.Category;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AddExportTest {
+
+    private static final String ID = "550e8400-e29b-41d4-a716-446655440000";
+    private static final Add ADD = new Add(ID, "Rower, prawie nowy", "Sprzedam \"szybki\" rower\nOdbiór osobisty",
+            Category.SALE, new Contact(null, "jan@example.com"), LocalDateTime.of(2025, 10, 18, 12, 0),
+            UUID.randomUUID().toString(), SearchText.of("Rower", "Sprzedam"), 2L);
+
+    @Mock
+    private AddRepository repository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private AddExport export;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        export = new AddExport(repository, objectMapper, new ListingMetrics(meterRegistry), 100);
+    }
+
+    @Test
+    void write_Ndjson_WritesOneResponsePerLineWithoutTheEditCode() throws IOException {
+        AddFilter filter = export.filter("SALE", null, null);
+        when(repository.streamAll(filter, 100)).thenReturn(Stream.of(ADD, ADD));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(2, export.write(filter, AddExport.Format.NDJSON, out));
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("{\"id\":\"" + ID + "\",\"title\":\"Rower, prawie nowy\""));
+        assertTrue(lines[0].contains("\"dateTime\":\"2025-10-18T12:00:00\""));
+        assertFalse(lines[0].contains("editCode"));
+        assertEquals(1, meterRegistry.get(ListingMetrics.NAME).tag("pagination", "export").timer().count());
+    }
+
+    @Test
+    void write_Csv_QuotesFieldsWithSeparatorsAndClosesTheCursor() throws IOException {
+        AtomicBoolean closed = new AtomicBoolean();
+        when(repository.streamAll(any(AddFilter.class), eq(100)))
+                .thenReturn(Stream.of(ADD).onClose(() -> closed.set(true)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        export.write(export.filter(null, null, null), AddExport.Format.CSV, out);
+
+        assertEquals(AddExport.CSV_HEADER + "\r\n"
+                        + ID + ",\"Rower, prawie nowy\",\"Sprzedam \"\"szybki\"\" rower\nOdbiór osobisty\","
+                        + "SALE,,jan@example.com,2025-10-18T12:00:00,2\r\n",
+                out.toString(StandardCharsets.UTF_8));
+        assertTrue(closed.get());
+    }
+
+    @Test
+    void write_ClientGone_ClosesTheCursorAndRethrows() {
+        AtomicBoolean closed = new AtomicBoolean();
+        when(repository.streamAll(any(AddFilter.class), eq(100)))
+                .thenReturn(Stream.generate(() -> ADD).onClose(() -> closed.set(true)));
+        OutputStream gone = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        assertThrows(IOException.class,
+                () -> export.write(export.filter(null, null, null), AddExport.Format.NDJSON, gone));
+        assertTrue(closed.get());
+    }
+
+    @Test
+    void format_Unknown_IsRejected() {
+        assertEquals(AddExport.Format.CSV, AddExport.Format.of("csv"));
+        assertThrows(IllegalArgumentException.class, () -> AddExport.Format.of("xml"));
+    }
+
+    @Test
+    void acceptsGzip_HonoursTokensAndQualityValues() {
+        assertTrue(AddExport.acceptsGzip("gzip"));
+        assertTrue(AddExport.acceptsGzip("deflate, GZIP;q=0.5"));
+        assertTrue(AddExport.acceptsGzip("br, *"));
+        assertFalse(AddExport.acceptsGzip(null));
+        assertFalse(AddExport.acceptsGzip("identity"));
+        assertFalse(AddExport.acceptsGzip("gzip;q=0"));
+        assertFalse(AddExport.acceptsGzip("gzip; q=0.000, *"));
+        assertFalse(AddExport.acceptsGzip("*;q=0"));
+        assertFalse(AddExport.acceptsGzip("x-gzipped"));
+    }
+}
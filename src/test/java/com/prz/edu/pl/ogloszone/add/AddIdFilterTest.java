@@ -0,0 +1,110 @@
+package com.prz.edu.pl.ogloszone.add;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AddIdFilterTest {
+
+    @Mock
+    private AddRepository repository;
+
+    @Mock
+    private AddChangeFeed changeFeed;
+
+    private SimpleMeterRegistry meterRegistry;
+    private AddIdFilter filter;
+    private List<UUID> stored;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new AddIdFilter(repository, changeFeed, meterRegistry, true, 0.01, Runnable::run);
+        stored = IntStream.range(0, 5_000).mapToObj(i -> UUID.randomUUID()).toList();
+        lenient().when(changeFeed.activeMode()).thenReturn(AddChangeFeed.Mode.CHANGE_STREAM);
+        lenient().when(repository.estimatedCount()).thenReturn((long) stored.size());
+        lenient().when(repository.streamIds(anyInt())).thenAnswer(invocation -> stored.stream().map(UUID::toString));
+    }
+
+    @Test
+    void mightContain_BeforeTheFirstBuildEveryIdMayExist() {
+        AddIdFilter notBuilt = new AddIdFilter(repository, changeFeed, meterRegistry, true, 0.01, Runnable::run);
+
+        assertTrue(notBuilt.mightContain(UUID.randomUUID()));
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void mightContain_StoredIdsAlwaysPassUnknownOnesMostlyRejected() {
+        filter.warmUp();
+
+        assertTrue(stored.stream().allMatch(filter::mightContain));
+        long rejected = IntStream.range(0, 10_000).mapToObj(i -> UUID.randomUUID())
+                .filter(id -> !filter.mightContain(id))
+                .count();
+        assertTrue(rejected > 9_800, "rejected " + rejected);
+        assertEquals(rejected, meterRegistry.get("ogloszone.add.id-filter.rejected").counter().count());
+    }
+
+    @Test
+    void mightContain_WithoutChangeStreamEveryIdMayExist() {
+        filter.warmUp();
+        // Polling does not deliver ids created on other nodes, so the filter cannot rule any id out.
+        when(changeFeed.activeMode()).thenReturn(AddChangeFeed.Mode.POLLING);
+
+        assertTrue(IntStream.range(0, 1_000).mapToObj(i -> UUID.randomUUID()).allMatch(filter::mightContain));
+        assertEquals(0, meterRegistry.get("ogloszone.add.id-filter.rejected").counter().count());
+    }
+
+    @Test
+    void onChange_CreatedIdsPassAndResyncRebuilds() {
+        filter.warmUp();
+        Add created = new Add(UUID.randomUUID().toString(), "t", "c", null, null, null, null, null, 0L);
+
+        filter.onChange(AddChangeEvent.local(AddChangeEvent.Type.CREATED, created));
+        assertTrue(filter.mightContain(UUID.fromString(created.id())));
+
+        filter.onChange(AddChangeEvent.resync(AddChangeEvent.Origin.FEED));
+        verify(repository, times(2)).streamIds(anyInt());
+    }
+
+    @Test
+    void onChange_IdCreatedWhileARebuildRunsIsKept() {
+        filter.warmUp();
+        UUID duringRead = UUID.randomUUID();
+        UUID afterRead = UUID.randomUUID();
+        // Neither id is in what the rebuild reads: one is created after the read has passed its position, the
+        // other once every id has been read but before the rebuilt filter replaces the current one.
+        when(repository.streamIds(anyInt())).thenAnswer(invocation -> IntStream.range(0, stored.size())
+                .mapToObj(i -> {
+                    if (i == stored.size() / 2) {
+                        filter.onChange(created(duringRead));
+                    }
+                    return stored.get(i).toString();
+                })
+                .onClose(() -> filter.onChange(created(afterRead))));
+
+        filter.scheduleRebuild();
+
+        assertTrue(filter.mightContain(duringRead));
+        assertTrue(filter.mightContain(afterRead));
+        verify(repository, times(2)).streamIds(anyInt());
+    }
+
+    private static AddChangeEvent created(UUID id) {
+        return AddChangeEvent.local(AddChangeEvent.Type.CREATED,
+                new Add(id.toString(), "t", "c", null, null, null, null, null, 0L));
+    }
+}
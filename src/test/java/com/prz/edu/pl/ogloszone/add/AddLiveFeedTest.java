@@ -0,0 +1,288 @@
+package com.prz.edu.pl.ogloszone.add;
+
+import com.prz.edu.pl.ogloszone.category.Category;
+import com.prz.edu.pl.ogloszone.exception.LiveFeedFullException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AddLiveFeedTest {
+
+    private static final int BUFFER_SIZE = 4;
+    private static final int MAX_SUBSCRIBERS = 3;
+    private static final int MAX_STALLED_THREADS = 8;
+
+    @Mock
+    private AddChangeFeed changeFeed;
+
+    private SimpleMeterRegistry meterRegistry;
+    private List<Runnable> pendingDeliveries;
+    private AddLiveFeed liveFeed;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        pendingDeliveries = new ArrayList<>();
+        liveFeed = new AddLiveFeed(changeFeed, Jackson2ObjectMapperBuilder.json().build(), meterRegistry,
+                BUFFER_SIZE, MAX_SUBSCRIBERS, Duration.ofMinutes(30), Duration.ofSeconds(10), MAX_STALLED_THREADS,
+                Runnable::run, pendingDeliveries::add, Clock.systemUTC());
+    }
+
+    @Test
+    void onChange_PushesLocalWritesToSubscribersOfTheirCategory() {
+        when(changeFeed.activeMode()).thenReturn(AddChangeFeed.Mode.POLLING);
+        RecordingSubscriber jobs = new RecordingSubscriber();
+        RecordingSubscriber pets = new RecordingSubscriber();
+        RecordingSubscriber everything = new RecordingSubscriber();
+        liveFeed.subscribe("job", jobs);
+        liveFeed.subscribe("PETS", pets);
+        liveFeed.subscribe(null, everything);
+        Add add = add(Category.JOB);
+
+        liveFeed.onChange(AddChangeEvent.local(AddChangeEvent.Type.CREATED, add));
+        // Polling repeats local writes as updates.
+        liveFeed.onChange(new AddChangeEvent(AddChangeEvent.Type.UPDATED, add.id(), add, AddChangeEvent.Origin.FEED));
+        deliver();
+
+        assertEquals(1, jobs.events.size());
+        assertEquals("created", jobs.events.get(0).name());
+        assertTrue(jobs.events.get(0).data().contains("\"id\":\"" + add.id() + "\""));
+        assertFalse(jobs.events.get(0).data().contains(add.editCode()));
+        assertEquals(jobs.events, everything.events);
+        assertTrue(pets.events.isEmpty());
+    }
+
+    @Test
+    void onChange_WithChangeStreamSendsFeedDeletionsToEveryone() {
+        when(changeFeed.activeMode()).thenReturn(AddChangeFeed.Mode.CHANGE_STREAM);
+        RecordingSubscriber jobs = new RecordingSubscriber();
+        RecordingSubscriber pets = new RecordingSubscriber();
+        liveFeed.subscribe("JOB", jobs);
+        liveFeed.subscribe("PETS", pets);
+        Add add = add(Category.JOB);
+
+        liveFeed.onChange(AddChangeEvent.local(AddChangeEvent.Type.DELETED, add));
+        liveFeed.onChange(new AddChangeEvent(AddChangeEvent.Type.DELETED, add.id(), null, AddChangeEvent.Origin.FEED));
+        deliver();
+
+        List<AddLiveFeed.Event> expected = List.of(new AddLiveFeed.Event("deleted", "{\"id\":\"" + add.id() + "\"}"));
+        assertEquals(expected, jobs.events);
+        assertEquals(expected, pets.events);
+    }
+
+    @Test
+    void onChange_DisconnectsOnlyTheSubscriberThatFellBehind() {
+        when(changeFeed.activeMode()).thenReturn(AddChangeFeed.Mode.OFF);
+        liveFeed = new AddLiveFeed(changeFeed, Jackson2ObjectMapperBuilder.json().build(), meterRegistry,
+                BUFFER_SIZE, MAX_SUBSCRIBERS, Duration.ofMinutes(30), Duration.ofSeconds(10), MAX_STALLED_THREADS,
+                Runnable::run, Runnable::run, Clock.systemUTC());
+        RecordingSubscriber fast = new RecordingSubscriber();
+        RecordingSubscriber slow = new RecordingSubscriber() {
+            @Override
+            public void send(List<AddLiveFeed.Event> sent) {
+                super.send(sent);
+                if (events.size() == 1) {
+                    // More changes arrive while the first one is still being written to this client.
+                    for (int i = 0; i < BUFFER_SIZE + 1; i++) {
+                        liveFeed.onChange(AddChangeEvent.local(AddChangeEvent.Type.CREATED, add(Category.SALE)));
+                    }
+                }
+            }
+        };
+        liveFeed.subscribe(null, fast);
+        liveFeed.subscribe("SALE", slow);
+
+        liveFeed.onChange(AddChangeEvent.local(AddChangeEvent.Type.CREATED, add(Category.SALE)));
+
+        assertEquals(BUFFER_SIZE + 2, fast.events.size());
+        assertEquals(1, slow.events.size());
+        assertTrue(slow.closed);
+        assertFalse(fast.closed);
+        assertEquals(1, liveFeed.subscribers());
+        assertEquals(1, meterRegistry.get("ogloszone.add.live.disconnected").counter().count());
+    }
+
+    @Test
+    void disconnectStalled_KeepsDeliveringWithMoreStalledSubscribersThanThreads() throws Exception {
+        when(changeFeed.activeMode()).thenReturn(AddChangeFeed.Mode.OFF);
+        int deliveryThreads = 2;
+        int stalledCount = deliveryThreads + 1;
+        ThreadPoolExecutor delivery = (ThreadPoolExecutor) Executors.newFixedThreadPool(deliveryThreads);
+        liveFeed = new AddLiveFeed(changeFeed, Jackson2ObjectMapperBuilder.json().build(), meterRegistry,
+                BUFFER_SIZE, 100, Duration.ofMinutes(30), Duration.ofMillis(100), MAX_STALLED_THREADS,
+                Runnable::run, delivery, Clock.systemUTC());
+        CountDownLatch unblock = new CountDownLatch(1);
+        CountDownLatch writing = new CountDownLatch(stalledCount);
+        CountDownLatch closed = new CountDownLatch(stalledCount);
+        try {
+            for (int i = 0; i < stalledCount; i++) {
+                liveFeed.subscribe("SALE", stalled(writing, unblock, closed));
+            }
+            CountDownLatch received = new CountDownLatch(1);
+            liveFeed.subscribe("JOB", new RecordingSubscriber() {
+                @Override
+                public void send(List<AddLiveFeed.Event> sent) {
+                    received.countDown();
+                }
+            });
+
+            liveFeed.onChange(AddChangeEvent.local(AddChangeEvent.Type.CREATED, add(Category.SALE)));
+            await(() -> writing.getCount() == 1);
+            // Every delivery thread is stuck; the rest of the stalled writes and this one wait in the queue.
+            liveFeed.onChange(AddChangeEvent.local(AddChangeEvent.Type.CREATED, add(Category.JOB)));
+            Thread.sleep(200);
+            liveFeed.disconnectStalled();
+
+            assertTrue(received.await(5, TimeUnit.SECONDS));
+            await(() -> writing.getCount() == 0);
+            Thread.sleep(200);
+            liveFeed.disconnectStalled();
+            assertEquals(1, liveFeed.subscribers());
+            assertEquals(stalledCount, meterRegistry.get("ogloszone.add.live.disconnected").counter().count());
+
+            unblock.countDown();
+            assertTrue(closed.await(5, TimeUnit.SECONDS));
+            assertEquals(deliveryThreads, delivery.getCorePoolSize());
+            assertEquals(deliveryThreads, delivery.getMaximumPoolSize());
+        } finally {
+            unblock.countDown();
+            delivery.shutdownNow();
+        }
+    }
+
+    @Test
+    void disconnectStalled_AddsNoMoreThanMaxStalledThreads() throws Exception {
+        when(changeFeed.activeMode()).thenReturn(AddChangeFeed.Mode.OFF);
+        ThreadPoolExecutor delivery = (ThreadPoolExecutor) Executors.newFixedThreadPool(1);
+        liveFeed = new AddLiveFeed(changeFeed, Jackson2ObjectMapperBuilder.json().build(), meterRegistry,
+                BUFFER_SIZE, 100, Duration.ofMinutes(30), Duration.ofMillis(100), 1, Runnable::run, delivery,
+                Clock.systemUTC());
+        CountDownLatch unblock = new CountDownLatch(1);
+        CountDownLatch writing = new CountDownLatch(3);
+        CountDownLatch closed = new CountDownLatch(2);
+        try {
+            for (int i = 0; i < 3; i++) {
+                liveFeed.subscribe("SALE", stalled(writing, unblock, closed));
+            }
+
+            liveFeed.onChange(AddChangeEvent.local(AddChangeEvent.Type.CREATED, add(Category.SALE)));
+            for (int i = 0; i < 5; i++) {
+                Thread.sleep(150);
+                liveFeed.disconnectStalled();
+            }
+
+            // One thread replaced the first stuck one and got stuck as well; the third write never started.
+            assertEquals(1, writing.getCount());
+            assertEquals(2, delivery.getMaximumPoolSize());
+            assertEquals(2, meterRegistry.get("ogloszone.add.live.disconnected").counter().count());
+
+            unblock.countDown();
+            // The two disconnected subscribers are closed once their writes return.
+            assertTrue(closed.await(5, TimeUnit.SECONDS));
+            await(() -> delivery.getMaximumPoolSize() == 1);
+            assertEquals(1, delivery.getCorePoolSize());
+        } finally {
+            unblock.countDown();
+            delivery.shutdownNow();
+        }
+    }
+
+    @Test
+    void subscribe_RefusedPastMaxSubscribersUntilOneCancels() {
+        List<AddLiveFeed.Subscription> subscriptions = new ArrayList<>();
+        for (int i = 0; i < MAX_SUBSCRIBERS; i++) {
+            subscriptions.add(liveFeed.subscribe(i % 2 == 0 ? null : "JOB", new RecordingSubscriber()));
+        }
+
+        assertThrows(LiveFeedFullException.class, () -> liveFeed.subscribe(null, new RecordingSubscriber()));
+        assertThrows(LiveFeedFullException.class, liveFeed::checkCapacity);
+        subscriptions.get(0).cancel();
+        // Cancelling twice frees one place only.
+        subscriptions.get(0).cancel();
+
+        liveFeed.checkCapacity();
+        liveFeed.subscribe("PETS", new RecordingSubscriber());
+        assertEquals(MAX_SUBSCRIBERS, liveFeed.subscribers());
+        assertThrows(LiveFeedFullException.class, () -> liveFeed.subscribe("PETS", new RecordingSubscriber()));
+        assertEquals(3, meterRegistry.get("ogloszone.add.live.rejected").counter().count());
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    /**
+     * A client that stopped reading: the write blocks until the connection gives up.
+     */
+    private static AddLiveFeed.Subscriber stalled(CountDownLatch writing, CountDownLatch unblock,
+                                                  CountDownLatch closed) {
+        return new AddLiveFeed.Subscriber() {
+            @Override
+            public void send(List<AddLiveFeed.Event> events) throws IOException {
+                writing.countDown();
+                try {
+                    unblock.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+
+            @Override
+            public void close() {
+                closed.countDown();
+            }
+        };
+    }
+
+    private void deliver() {
+        while (!pendingDeliveries.isEmpty()) {
+            pendingDeliveries.remove(0).run();
+        }
+    }
+
+    private static Add add(Category category) {
+        return new Add(UUID.randomUUID().toString(), "Title", "Content", category, null, LocalDateTime.now(),
+                UUID.randomUUID().toString(), null, 0L);
+    }
+
+    private static class RecordingSubscriber implements AddLiveFeed.Subscriber {
+
+        final List<AddLiveFeed.Event> events = new ArrayList<>();
+        boolean closed;
+
+        @Override
+        public void send(List<AddLiveFeed.Event> sent) {
+            events.addAll(sent);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.prz.edu.pl.ogloszone.add;
+
+import com.prz.edu.pl.ogloszone.category.Category;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.data.mapping.context.MappingContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.BasicQuery;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Checks with {@code explain} that every filter combination of the listing queries is answered from an
+ * index. Needs Docker; skipped otherwise.
+ */
+@DataMongoTest
+@Testcontainers(disabledWithoutDocker = true)
+class AddQueryPlanTest {
+
+    @Container
+    @ServiceConnection
+    static MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private AddRepository repository;
+
+    private QueryMapper queryMapper;
+    private MongoPersistentEntity<?> entity;
+
+    @BeforeEach
+    void setUp() {
+        queryMapper = new QueryMapper(mongoTemplate.getConverter());
+        MappingContext<? extends MongoPersistentEntity<?>, ?> mappingContext = mongoTemplate.getConverter().getMappingContext();
+        entity = mappingContext.getRequiredPersistentEntity(Add.class);
+
+        if (repository.count() == 0) {
+            List<Add> adds = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                Category category = Category.values()[i % Category.values().length];
+                adds.add(new Add(UUID.randomUUID().toString(), "Oferta " + i, "Opis ogłoszenia numer " + i, category,
+                        new Contact(null, "test@example.com"), LocalDateTime.now().minusMinutes(i),
+                        UUID.randomUUID().toString(), SearchText.of("Oferta " + i, "Opis ogłoszenia numer " + i), null));
+            }
+            repository.saveAll(adds);
+        }
+    }
+
+    static Stream<AddFilter> filterCombinations() {
+        LocalDateTime dateAfter = LocalDateTime.now().minusHours(1);
+        List<AddFilter> filters = new ArrayList<>();
+        for (Category category : new Category[]{null, Category.JOB}) {
+            for (LocalDateTime date : new LocalDateTime[]{null, dateAfter}) {
+                for (String keyword : new String[]{null, "oferta"}) {
+                    filters.add(new AddFilter(category, date, keyword));
+                }
+            }
+        }
+        return filters.stream();
+    }
+
+    @ParameterizedTest
+    @MethodSource("filterCombinations")
+    void pageQuery_UsesIndex(AddFilter filter) {
+        assertNoCollectionScan(explainFind(AddQueries.pageQuery(filter)), filter);
+    }
+
+    @ParameterizedTest
+    @MethodSource("filterCombinations")
+    void sliceQuery_UsesIndex(AddFilter filter) {
+        AddCursor cursor = new AddCursor(LocalDateTime.now().minusMinutes(30), UUID.randomUUID().toString());
+        assertNoCollectionScan(explainFind(AddQueries.sliceQuery(filter, null)), filter);
+        assertNoCollectionScan(explainFind(AddQueries.sliceQuery(filter, cursor)), filter);
+    }
+
+    @ParameterizedTest
+    @MethodSource("filterCombinations")
+    void countQuery_UsesIndex(AddFilter filter) {
+        if (filter.isEmpty()) {
+            return;
+        }
+        Document count = new Document("count", "announcements")
+                .append("query", queryMapper.getMappedObject(AddQueries.countQuery(filter).getQueryObject(), entity));
+        assertNoCollectionScan(explain(count), filter);
+    }
+
+    private Document explainFind(BasicQuery query) {
+        Document find = new Document("find", "announcements")
+                .append("filter", queryMapper.getMappedObject(query.getQueryObject(), entity))
+                .append("sort", queryMapper.getMappedSort(query.getSortObject(), entity))
+                .append("projection", queryMapper.getMappedFields(query.getFieldsObject(), entity))
+                .append("limit", 10);
+        return explain(find);
+    }
+
+    private Document explain(Document command) {
+        return mongoTemplate.executeCommand(new Document("explain", command).append("verbosity", "queryPlanner"));
+    }
+
+    private static void assertNoCollectionScan(Document explain, AddFilter filter) {
+        String winningPlan = explain.get("queryPlanner", Document.class).get("winningPlan", Document.class).toJson();
+        assertFalse(winningPlan.contains("COLLSCAN"), () -> "Collection scan for " + filter + ": " + winningPlan);
+    }
+}
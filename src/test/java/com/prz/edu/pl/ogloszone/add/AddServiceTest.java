@@ -3,25 +3,42 @@ package com.prz.edu.pl.ogloszone.add;
 import com.prz.edu.pl.ogloszone.category.Category;
 import com.prz.edu.pl.ogloszone.email.EmailService;
 import com.prz.edu.pl.ogloszone.exception.AddNotFoundException;
+import com.prz.edu.pl.ogloszone.exception.AddVersionConflictException;
 import com.prz.edu.pl.ogloszone.exception.InvalidCategoryException;
 import com.prz.edu.pl.ogloszone.util.PagedResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -33,10 +50,34 @@ class AddServiceTest {
     @Mock
     private EmailService emailService;
 
+    @Mock
+    private HotPageCache hotPages;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Captor
+    private ArgumentCaptor<List<Add>> queuedAdds;
+
+    @Captor
+    private ArgumentCaptor<List<String>> loadedIds;
+
+    @Spy
+    private AddCache cache = new AddCache(new SimpleMeterRegistry(), 100, Duration.ofMinutes(10));
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private ListingMetrics listingMetrics = new ListingMetrics(meterRegistry);
+
+    @Spy
+    private AddIdFilter idFilter = new AddIdFilter(null, null, new SimpleMeterRegistry(), false, 0.01, Runnable::run);
+
     @InjectMocks
     private AddService addService;
 
     private Add add;
+    private AddSummary summary;
     private AddRequest addRequest;
     private UUID addId;
     private UUID editCode;
@@ -45,7 +86,9 @@ class AddServiceTest {
     void setUp() {
         addId = UUID.randomUUID();
         editCode = UUID.randomUUID();
-        add = new Add(addId.toString(), "Test Title", "Test Content", Category.JOB, new Contact("test@example.com", "123456789"), LocalDateTime.now(), editCode.toString());
+        add = new Add(addId.toString(), "Test Title", "Test Content", Category.JOB, new Contact("test@example.com", "123456789"), LocalDateTime.now(), editCode.toString(),
+                SearchText.of("Test Title", "Test Content"), 0L);
+        summary = new AddSummary(addId.toString(), "Test Title", Category.JOB, add.dateTime(), "Test Content");
         addRequest = new AddRequest("Test Title", "Test Content", Category.JOB.name(), new Contact("test@example.com", "123456789"));
     }
 
@@ -58,7 +101,31 @@ class AddServiceTest {
         assertNotNull(response);
         assertEquals(addId.toString(), response.id().toString());
         verify(repository, times(1)).save(any(Add.class));
-        verify(emailService, times(1)).sendConfirmationEmail(add);
+        verify(emailService, times(1)).queueConfirmationEmail(add);
+        verify(eventPublisher, times(1)).publishEvent(AddChangeEvent.local(AddChangeEvent.Type.CREATED, add));
+    }
+
+    @Test
+    void createAdds_QueuesEmailsOnlyForStoredAnnouncements() {
+        AddRequest badCategory = new AddRequest("Test Title", "Test Content", "CARS", addRequest.contact());
+        when(repository.insertUnordered(anyList())).thenAnswer(invocation -> {
+            List<Add> adds = invocation.getArgument(0);
+            List<Add> stored = adds.stream().map(add -> new Add(add.id(), add.title(), add.content(), add.category(),
+                    add.contact(), add.dateTime(), add.editCode(), add.search(), 0L)).toList();
+            return new AddRepositoryCustom.BulkInsert(stored, Map.of(1, "E11000 duplicate key"));
+        });
+
+        List<AddBatchItem> results = addService.createAdds(List.of(addRequest, badCategory, addRequest, addRequest));
+
+        assertEquals(List.of(AddBatchItem.Status.CREATED, AddBatchItem.Status.INVALID, AddBatchItem.Status.FAILED,
+                AddBatchItem.Status.CREATED), results.stream().map(AddBatchItem::status).toList());
+        assertEquals(List.of("E11000 duplicate key"), results.get(2).errors());
+        verify(emailService).queueConfirmationEmails(queuedAdds.capture());
+        assertEquals(List.of(results.get(0).id(), results.get(3).id()),
+                queuedAdds.getValue().stream().map(Add::id).toList());
+        assertTrue(queuedAdds.getValue().stream().allMatch(add -> Long.valueOf(0L).equals(add.version())));
+        verify(eventPublisher, times(2)).publishEvent(argThat((AddChangeEvent event) ->
+                event.add() != null && Long.valueOf(0L).equals(event.add().version())));
     }
 
     @Test
@@ -81,60 +148,193 @@ class AddServiceTest {
     }
 
     @Test
-    void updateAdd_SuccessfulUpdate() {
+    void getAddById_RejectedByIdFilterSkipsTheDatabase() {
+        when(idFilter.mightContain(addId)).thenReturn(false);
+
+        AddNotFoundException e = assertThrows(AddNotFoundException.class, () -> addService.getAddById(addId));
+
+        assertEquals(0, e.getStackTrace().length);
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void getAddById_RepeatedReadServedFromCache() {
         when(repository.findById(addId.toString())).thenReturn(Optional.of(add));
-        when(repository.save(any(Add.class))).thenReturn(add);
 
-        AddResponse response = addService.updateAdd(addId, editCode, addRequest);
+        addService.getAddById(addId);
+        AddResponse response = addService.getAddById(addId);
+
+        assertEquals(addId, response.id());
+        verify(repository, times(1)).findById(addId.toString());
+    }
+
+    @Test
+    void getAddsByIds_LoadsUncachedIdsInOneQueryAndListsMissingOnes() {
+        Add other = new Add(UUID.randomUUID().toString(), "Other", "Other content", Category.SALE,
+                add.contact(), LocalDateTime.now(), UUID.randomUUID().toString(), null, 0L);
+        UUID missing = UUID.randomUUID();
+        when(repository.findById(addId.toString())).thenReturn(Optional.of(add));
+        when(repository.findAllByIds(anyList())).thenReturn(List.of(other));
+        addService.getAddById(addId);
+
+        AddBatchGetResponse response = addService.getAddsByIds(
+                List.of(UUID.fromString(other.id()), missing, addId, UUID.fromString(other.id())));
+
+        assertEquals(List.of(UUID.fromString(other.id()), addId),
+                response.found().stream().map(AddResponse::id).toList());
+        assertEquals(List.of(missing), response.missing());
+        verify(repository).findAllByIds(loadedIds.capture());
+        assertEquals(Set.of(other.id(), missing.toString()), Set.copyOf(loadedIds.getValue()));
+    }
+
+    @Test
+    void getAddsByIds_TooManyIds() {
+        List<UUID> ids = Collections.nCopies(AddService.MAX_BATCH_GET_IDS + 1, addId);
+
+        assertThrows(IllegalArgumentException.class, () -> addService.getAddsByIds(ids));
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void getAddById_NotFoundIsNotCached() {
+        when(repository.findById(addId.toString())).thenReturn(Optional.empty(), Optional.of(add));
+
+        assertThrows(AddNotFoundException.class, () -> addService.getAddById(addId));
+        AddResponse response = addService.getAddById(addId);
+
+        assertEquals(addId, response.id());
+        verify(repository, times(2)).findById(addId.toString());
+    }
+
+    @Test
+    void updateAdd_SuccessfulUpdate() {
+        when(repository.updateIfMatches(any(Add.class), isNull())).thenReturn(add);
+
+        AddResponse response = addService.updateAdd(addId, editCode, null, addRequest);
 
         assertNotNull(response);
         assertEquals(addId.toString(), response.id().toString());
-        verify(repository, times(1)).save(any(Add.class));
-        verify(emailService, times(1)).sendConfirmationEmail(any(Add.class));
+        verify(repository, never()).findById(any());
+        verify(emailService, times(1)).queueConfirmationEmail(any(Add.class));
+        ArgumentCaptor<AddChangeEvent> event = ArgumentCaptor.forClass(AddChangeEvent.class);
+        verify(eventPublisher, times(1)).publishEvent(event.capture());
+        assertEquals(AddChangeEvent.Type.UPDATED, event.getValue().type());
+        assertEquals(addId.toString(), event.getValue().id());
+    }
+
+    @Test
+    void updateAdd_FiltersOnEditCodeAndVersion() {
+        when(repository.updateIfMatches(any(Add.class), eq(0L))).thenReturn(add);
+
+        addService.updateAdd(addId, editCode, 0L, addRequest);
+
+        ArgumentCaptor<Add> changes = ArgumentCaptor.forClass(Add.class);
+        verify(repository).updateIfMatches(changes.capture(), eq(0L));
+        assertEquals(addId.toString(), changes.getValue().id());
+        assertEquals(editCode.toString(), changes.getValue().editCode());
     }
 
     @Test
     void updateAdd_AddNotFound() {
         when(repository.findById(addId.toString())).thenReturn(Optional.empty());
 
-        assertThrows(AddNotFoundException.class, () -> addService.updateAdd(addId, editCode, addRequest));
+        assertThrows(AddNotFoundException.class, () -> addService.updateAdd(addId, editCode, null, addRequest));
         verify(repository, times(1)).findById(addId.toString());
+        verifyNoInteractions(eventPublisher, emailService);
     }
 
     @Test
-    void deleteAdd_SuccessfulDeletion() {
+    void updateAdd_InvalidEditCode() {
+        when(repository.findById(addId.toString())).thenReturn(Optional.of(add));
+
+        assertThrows(SecurityException.class,
+                () -> addService.updateAdd(addId, UUID.randomUUID(), null, addRequest));
+        verifyNoInteractions(eventPublisher, emailService);
+    }
+
+    @Test
+    void updateAdd_StaleVersion() {
         when(repository.findById(addId.toString())).thenReturn(Optional.of(add));
 
-        addService.deleteAdd(addId, editCode);
+        assertThrows(AddVersionConflictException.class, () -> addService.updateAdd(addId, editCode, 7L, addRequest));
+        verifyNoInteractions(eventPublisher, emailService);
+    }
+
+    @Test
+    void deleteAdd_SuccessfulDeletion() {
+        when(repository.deleteIfMatches(addId.toString(), editCode.toString(), null)).thenReturn(add);
+
+        addService.deleteAdd(addId, editCode, null);
 
-        verify(repository, times(1)).deleteById(addId.toString());
+        verify(repository, never()).findById(any());
+        verify(eventPublisher, times(1)).publishEvent(AddChangeEvent.local(AddChangeEvent.Type.DELETED, add));
     }
 
     @Test
     void deleteAdd_AddNotFound() {
         when(repository.findById(addId.toString())).thenReturn(Optional.empty());
 
-        assertThrows(AddNotFoundException.class, () -> addService.deleteAdd(addId, editCode));
+        assertThrows(AddNotFoundException.class, () -> addService.deleteAdd(addId, editCode, null));
         verify(repository, times(1)).findById(addId.toString());
     }
 
     @Test
-    void cleanOldAnnouncements_SuccessfulCleanup() {
-        addService.cleanOldAnnouncements();
+    void deleteAdd_StaleVersion() {
+        when(repository.findById(addId.toString())).thenReturn(Optional.of(add));
 
-        verify(repository, times(1)).deleteByDateTimeBefore(any(LocalDateTime.class));
+        assertThrows(AddVersionConflictException.class, () -> addService.deleteAdd(addId, editCode, 7L));
+        verifyNoInteractions(eventPublisher);
     }
 
     @Test
     void getAllAnnouncements_SuccessfulRetrieval() {
-        Page<Add> page = new PageImpl<>(Collections.singletonList(add));
-        when(repository.findAll(any(Pageable.class))).thenReturn(page);
+        Page<AddSummary> page = new PageImpl<>(Collections.singletonList(summary));
+        when(repository.findPage(eq(new AddFilter(null, null, "")), any(Pageable.class))).thenReturn(page);
 
-        PagedResponse<AddResponse> response = addService.getAllAnnouncements(null, null, null, 0, 10);
+        PagedResponse<AddSummary> response = addService.getAllAnnouncements(null, null, null, 0, 10);
 
         assertNotNull(response);
         assertEquals(1, response.content().size());
-        verify(repository, times(1)).findAll(any(Pageable.class));
+        verify(repository, times(1)).findPage(any(AddFilter.class), any(Pageable.class));
+    }
+
+    @Test
+    void getAllAnnouncements_CombinesFilters() {
+        LocalDateTime dateAfter = LocalDateTime.of(2025, 10, 18, 14, 33);
+        Page<AddSummary> page = new PageImpl<>(Collections.singletonList(summary));
+        when(repository.findPage(any(AddFilter.class), any(Pageable.class))).thenReturn(page);
+
+        PagedResponse<AddSummary> response = addService.getAllAnnouncements("job", dateAfter.toString(), "Łódź, praca", 2, 10);
+
+        assertEquals(1, response.content().size());
+        verify(repository, times(1)).findPage(new AddFilter(Category.JOB, dateAfter, "lodz praca"), PageRequest.of(2, 10));
+        assertEquals(1, meterRegistry.get(ListingMetrics.NAME)
+                .tags("filter", "category+date+keyword", "pagination", "page", "source", "mongo")
+                .timer().count());
+    }
+
+    @Test
+    void getAllAnnouncements_InvalidCategory() {
+        assertThrows(InvalidCategoryException.class, () -> addService.getAllAnnouncements("INVALID", null, null, 0, 10));
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void getAllAnnouncements_KeywordWithoutSearchableWords() {
+        assertThrows(IllegalArgumentException.class, () -> addService.getAllAnnouncements(null, null, "i", 0, 10));
+        assertThrows(IllegalArgumentException.class, () -> addService.getAllAnnouncements(null, null, "do, na!", 0, 10));
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void validateListing_RejectsWhatTheQueryWould() {
+        assertThrows(InvalidCategoryException.class,
+                () -> AddService.validateListing("NOPE", null, null, 0, 10, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> AddService.validateListing(null, "yesterday", null, 0, 10, null));
+        assertThrows(IllegalArgumentException.class, () -> AddService.validateListing(null, null, null, 0, 0, ""));
+        assertThrows(IllegalArgumentException.class, () -> AddService.validateListing(null, null, null, -1, 10, null));
+        assertDoesNotThrow(() -> AddService.validateListing("JOB", null, "rower", 0, 10, null));
     }
 
     @Test
@@ -158,44 +358,56 @@ class AddServiceTest {
     }
 
     @Test
-    void validateCategory_ValidCategory() {
-        Category result = addService.validateCategory(Category.JOB.name());
+    void getAnnouncementsAfter_FirstPageReturnsNextCursor() {
+        Slice<AddSummary> slice = new SliceImpl<>(Collections.singletonList(summary), PageRequest.of(0, 1), true);
+        when(repository.findSlice(any(AddFilter.class), isNull(), eq(1))).thenReturn(slice);
 
-        assertEquals(Category.JOB, result);
+        PagedResponse<AddSummary> response = addService.getAnnouncementsAfter("job", null, null, "", 1);
+
+        assertEquals(1, response.content().size());
+        assertFalse(response.last());
+        assertNull(response.totalElements());
+        assertEquals(AddCursor.of(summary), AddCursor.decode(response.nextCursor()));
+        verify(repository, never()).count();
     }
 
     @Test
-    void validateCategory_InvalidCategory() {
-        assertThrows(InvalidCategoryException.class, () -> addService.validateCategory("INVALID_CATEGORY"));
+    void getAnnouncementsAfter_LastPageHasNoCursor() {
+        AddCursor cursor = new AddCursor(LocalDateTime.of(2025, 10, 18, 12, 0), UUID.randomUUID().toString());
+        Slice<AddSummary> slice = new SliceImpl<>(Collections.singletonList(summary), PageRequest.of(0, 10), false);
+        when(repository.findSlice(new AddFilter(Category.JOB, null, "test"), cursor, 10)).thenReturn(slice);
+
+        PagedResponse<AddSummary> response = addService.getAnnouncementsAfter("JOB", null, "Test", cursor.encode(), 10);
+
+        assertTrue(response.last());
+        assertNull(response.nextCursor());
     }
 
     @Test
-    void validateCategory_NullCategory() {
-        assertThrows(IllegalArgumentException.class, () -> addService.validateCategory(null));
+    void getAnnouncementsAfter_InvalidCursor() {
+        assertThrows(IllegalArgumentException.class,
+                () -> addService.getAnnouncementsAfter(null, null, null, "not-a-cursor", 10));
     }
 
     @Test
-    void getExistingAdd_SuccessfulRetrieval() {
-        when(repository.findById(addId.toString())).thenReturn(Optional.of(add));
-
-        Add result = addService.getExistingAdd(addId, editCode);
-
-        assertNotNull(result);
-        assertEquals(addId.toString(), result.id());
+    void getAnnouncementsAfter_ExcessiveSize() {
+        assertThrows(IllegalArgumentException.class, () -> addService.getAnnouncementsAfter(null, null, null, "", 101));
     }
 
     @Test
-    void getExistingAdd_AddNotFound() {
-        when(repository.findById(addId.toString())).thenReturn(Optional.empty());
+    void validateCategory_ValidCategory() {
+        Category result = AddService.validateCategory(Category.JOB.name());
 
-        assertThrows(AddNotFoundException.class, () -> addService.getExistingAdd(addId, editCode));
+        assertEquals(Category.JOB, result);
     }
 
     @Test
-    void getExistingAdd_InvalidEditCode() {
-        when(repository.findById(addId.toString())).thenReturn(Optional.of(add));
-        UUID wrongEditCode = UUID.randomUUID();
+    void validateCategory_InvalidCategory() {
+        assertThrows(InvalidCategoryException.class, () -> AddService.validateCategory("INVALID_CATEGORY"));
+    }
 
-        assertThrows(SecurityException.class, () -> addService.getExistingAdd(addId, wrongEditCode));
+    @Test
+    void validateCategory_NullCategory() {
+        assertThrows(IllegalArgumentException.class, () -> AddService.validateCategory(null));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,159 @@
+package com.prz.edu.pl.ogloszone.add;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.prz.edu.pl.ogloszone.category.Category;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HotPageCacheTest {
+
+    @Mock
+    private AddRepository repository;
+
+    private HotPageCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new HotPageCache(repository, new ObjectMapper().findAndRegisterModules(), new SimpleMeterRegistry(),
+                Duration.ofMinutes(1), Runnable::run);
+        lenient().when(repository.findPage(any(), any()))
+                .thenAnswer(invocation -> new PageImpl<>(List.of(), invocation.getArgument(1), 0));
+    }
+
+    @Test
+    void get_ServesRepeatedRequestsFromMemory() throws Exception {
+        AddSummary summary = new AddSummary("1", "Title", Category.JOB, LocalDateTime.now(), "Content");
+        doReturn(new PageImpl<>(List.of(summary), PageRequest.of(0, 10), 1)).when(repository).findPage(any(), any());
+
+        byte[] first = cache.get(Category.JOB);
+        byte[] second = cache.get(Category.JOB);
+
+        assertSame(first, second);
+        assertTrue(new String(first).contains("\"title\":\"Title\""));
+        assertTrue(new String(first).contains("\"totalElements\":1"));
+        verify(repository, times(1)).findPage(any(), any());
+    }
+
+    @Test
+    void onChange_RefreshesOnlyAffectedPages() {
+        cache.get(null);
+        cache.get(Category.JOB);
+        cache.get(Category.PETS);
+        clearInvocations(repository);
+
+        cache.onChange(AddChangeEvent.local(AddChangeEvent.Type.CREATED, add(Category.JOB)));
+
+        verify(repository).findPage(argThat(filter -> filter.category() == null), any());
+        verify(repository).findPage(argThat(filter -> filter.category() == Category.JOB), any());
+        verify(repository, never()).findPage(argThat(filter -> filter.category() == Category.PETS), any());
+    }
+
+    @Test
+    void onChange_RefreshesPageTheAnnouncementMovedOutOf() {
+        Add add = add(Category.PETS);
+        AddSummary summary = new AddSummary(add.id(), add.title(), Category.PETS, add.dateTime(), add.content());
+        doReturn(new PageImpl<>(List.of(summary), PageRequest.of(0, 10), 1)).when(repository)
+                .findPage(argThat(filter -> filter.category() == Category.PETS), any());
+        cache.get(Category.PETS);
+        clearInvocations(repository);
+
+        Add moved = new Add(add.id(), add.title(), add.content(), Category.JOB, add.contact(), add.dateTime(),
+                add.editCode(), add.search(), add.version());
+        cache.onChange(AddChangeEvent.local(AddChangeEvent.Type.UPDATED, moved));
+
+        verify(repository).findPage(argThat(filter -> filter.category() == Category.PETS), any());
+    }
+
+    @Test
+    void onChange_ResyncRefreshesEveryPage() {
+        cache.warmUp();
+        clearInvocations(repository);
+
+        cache.onChange(AddChangeEvent.resync(AddChangeEvent.Origin.FEED));
+
+        verify(repository, times(Category.values().length + 1)).findPage(any(), any());
+    }
+
+    @Test
+    void onChange_RendersAgainWhenAChangeLandsDuringASlowRender() throws Exception {
+        AddSummary before = new AddSummary("1", "Przed", Category.JOB, LocalDateTime.now(), "Content");
+        AddSummary after = new AddSummary("2", "Po", Category.JOB, LocalDateTime.now(), "Content");
+        ExecutorService refreshExecutor = Executors.newSingleThreadExecutor();
+        cache = new HotPageCache(repository, new ObjectMapper().findAndRegisterModules(), new SimpleMeterRegistry(),
+                Duration.ofMinutes(1), refreshExecutor);
+        CountDownLatch rendering = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger renders = new AtomicInteger();
+        doAnswer(invocation -> {
+            switch (renders.getAndIncrement()) {
+                case 0 -> {
+                    return new PageImpl<>(List.of(before), PageRequest.of(0, 10), 1);
+                }
+                case 1 -> {
+                    // Read before the second change was stored, returned after it arrived.
+                    rendering.countDown();
+                    release.await();
+                    return new PageImpl<>(List.of(before), PageRequest.of(0, 10), 1);
+                }
+                default -> {
+                    return new PageImpl<>(List.of(after), PageRequest.of(0, 10), 1);
+                }
+            }
+        }).when(repository).findPage(argThat(filter -> filter.category() == Category.JOB), any());
+        try {
+            cache.get(Category.JOB);
+
+            cache.onChange(AddChangeEvent.local(AddChangeEvent.Type.CREATED, add(Category.JOB)));
+            assertTrue(rendering.await(5, TimeUnit.SECONDS));
+            cache.onChange(AddChangeEvent.local(AddChangeEvent.Type.CREATED, add(Category.JOB)));
+            release.countDown();
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!new String(cache.get(Category.JOB)).contains("\"title\":\"Po\"") && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(new String(cache.get(Category.JOB)).contains("\"title\":\"Po\""));
+        } finally {
+            release.countDown();
+            refreshExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    void covers_OnlyDefaultFirstPage() {
+        assertTrue(HotPageCache.covers(null, null, 0, 10, null));
+        assertTrue(HotPageCache.covers("", " ", 0, 10, null));
+        assertFalse(HotPageCache.covers(null, null, 1, 10, null));
+        assertFalse(HotPageCache.covers(null, null, 0, 20, null));
+        assertFalse(HotPageCache.covers("2025-01-01", null, 0, 10, null));
+        assertFalse(HotPageCache.covers(null, "rower", 0, 10, null));
+        assertFalse(HotPageCache.covers(null, null, 0, 10, "abc"));
+    }
+
+    private static Add add(Category category) {
+        return new Add(UUID.randomUUID().toString(), "Title", "Content", category,
+                new Contact("test@example.com", "123456789"), LocalDateTime.now(), UUID.randomUUID().toString(), null, null);
+    }
+}
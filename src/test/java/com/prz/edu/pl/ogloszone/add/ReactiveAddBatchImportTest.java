@@ -0,0 +1,111 @@
+package com.prz.edu.pl.ogloszone.add;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * Bodies go through the same {@link Jackson2JsonDecoder} WebFlux uses for a {@code Flux<JsonNode>} request body.
+ */
+@ExtendWith(MockitoExtension.class)
+class ReactiveAddBatchImportTest {
+
+    private static final String VALID = "{\"title\":\"Rower\",\"content\":\"Sprzedam rower\",\"category\":\"FOR_SALE\","
+            + "\"contact\":{\"email\":\"jan@example.com\"}}";
+
+    @Mock
+    private ReactiveAddService service;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ReactiveAddBatchImport batchImport;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        batchImport = new ReactiveAddBatchImport(service, new ObjectMapper(),
+                Validation.buildDefaultValidatorFactory().getValidator(), meterRegistry, 2, 5);
+        lenient().when(service.createAdds(anyList())).thenAnswer(invocation -> {
+            List<AddRequest> requests = invocation.getArgument(0);
+            return Mono.just(IntStream.range(0, requests.size())
+                    .mapToObj(i -> AddBatchItem.created(i, UUID.randomUUID().toString()))
+                    .toList());
+        });
+    }
+
+    @Test
+    void importFrom_JsonArray_ReportsInvalidEntriesAndStoresTheRestInChunks() {
+        String body = "[" + VALID + ", {\"content\":\"Bez tytułu\",\"category\":\"JOB\",\"contact\":{}}, "
+                + "{\"title\":\"Zły kontakt\",\"content\":\"x\",\"category\":\"JOB\",\"contact\":\"jan\"}, "
+                + VALID + "]";
+
+        AddBatchResponse response = batchImport.importFrom(decode(body, MediaType.APPLICATION_JSON)).block();
+
+        assertNotNull(response);
+        assertEquals(4, response.received());
+        assertEquals(2, response.created());
+        assertNull(response.error());
+        assertEquals(List.of(AddBatchItem.Status.CREATED, AddBatchItem.Status.INVALID, AddBatchItem.Status.INVALID,
+                AddBatchItem.Status.CREATED), response.items().stream().map(AddBatchItem::status).toList());
+        assertEquals(List.of(0, 1, 2, 3), response.items().stream().map(AddBatchItem::index).toList());
+        assertEquals(List.of("Title is required"), response.items().get(1).errors());
+        verify(service, times(2)).createAdds(anyList());
+        assertEquals(2, meterRegistry.get("ogloszone.add.batch.items").tag("status", "invalid").counter().count());
+    }
+
+    @Test
+    void importFrom_Ndjson_StopsAfterMaxItems() {
+        String body = (VALID + "\n").repeat(7);
+
+        AddBatchResponse response = batchImport.importFrom(decode(body, MediaType.APPLICATION_NDJSON)).block();
+
+        assertNotNull(response);
+        assertEquals(5, response.received());
+        assertEquals(5, response.created());
+        assertEquals("A batch can contain at most 5 entries", response.error());
+        verify(service, times(3)).createAdds(anyList());
+    }
+
+    @Test
+    void importFrom_MalformedJson_KeepsWhatWasReadBefore() {
+        String body = VALID + "\n" + VALID + "\n{\"title\": ]\n";
+
+        AddBatchResponse response = batchImport.importFrom(decode(body, MediaType.APPLICATION_NDJSON)).block();
+
+        assertNotNull(response);
+        assertEquals(2, response.received());
+        assertEquals(2, response.created());
+        assertTrue(response.error().startsWith("Malformed JSON at entry 2"), response.error());
+    }
+
+    /**
+     * Each line arrives in its own buffer, as it would over the wire from a client streaming NDJSON.
+     */
+    private static Flux<JsonNode> decode(String body, MediaType contentType) {
+        return new Jackson2JsonDecoder().decode(
+                Flux.fromArray(body.split("(?<=\n)")).map(line ->
+                        DefaultDataBufferFactory.sharedInstance.wrap(line.getBytes(StandardCharsets.UTF_8))),
+                ResolvableType.forClass(JsonNode.class), contentType, Map.of()).cast(JsonNode.class);
+    }
+}
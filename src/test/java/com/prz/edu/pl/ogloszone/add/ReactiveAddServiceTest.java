@@ -0,0 +1,188 @@
+package com.prz.edu.pl.ogloszone.add;
+
+import com.prz.edu.pl.ogloszone.category.Category;
+import com.prz.edu.pl.ogloszone.email.EmailService;
+import com.prz.edu.pl.ogloszone.email.PendingEmail;
+import com.prz.edu.pl.ogloszone.email.ReactivePendingEmailRepository;
+import com.prz.edu.pl.ogloszone.exception.AddNotFoundException;
+import com.prz.edu.pl.ogloszone.exception.AddVersionConflictException;
+import com.prz.edu.pl.ogloszone.exception.InvalidCategoryException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveAddServiceTest {
+
+    @Mock
+    private ReactiveAddRepository repository;
+
+    @Mock
+    private ReactivePendingEmailRepository outbox;
+
+    @Mock
+    private HotPageCache hotPages;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Captor
+    private ArgumentCaptor<List<PendingEmail>> queuedEmails;
+
+    private ReactiveAddService addService;
+    private Add add;
+    private AddRequest addRequest;
+    private UUID addId;
+    private UUID editCode;
+
+    @BeforeEach
+    void setUp() {
+        addService = new ReactiveAddService(repository, outbox, new EmailService(null),
+                new AddCache(new SimpleMeterRegistry(), 100, Duration.ofMinutes(10)), hotPages,
+                new ListingMetrics(new SimpleMeterRegistry()), eventPublisher,
+                new AddIdFilter(null, null, new SimpleMeterRegistry(), false, 0.01, Runnable::run));
+        addId = UUID.randomUUID();
+        editCode = UUID.randomUUID();
+        add = new Add(addId.toString(), "Test Title", "Test Content", Category.JOB, new Contact("test@example.com", "123456789"), LocalDateTime.now(), editCode.toString(),
+                SearchText.of("Test Title", "Test Content"), 0L);
+        addRequest = new AddRequest("Test Title", "Test Content", Category.JOB.name(), new Contact("test@example.com", "123456789"));
+    }
+
+    @Test
+    void createAdd_QueuesEmailWithoutBlocking() {
+        when(repository.save(any(Add.class))).thenReturn(Mono.just(add));
+        when(outbox.save(any(PendingEmail.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        StepVerifier.create(addService.createAdd(addRequest))
+                .assertNext(response -> assertEquals(addId, response.id()))
+                .verifyComplete();
+
+        ArgumentCaptor<PendingEmail> email = ArgumentCaptor.forClass(PendingEmail.class);
+        verify(outbox).save(email.capture());
+        assertEquals(addId.toString(), email.getValue().addId());
+        verify(eventPublisher).publishEvent(AddChangeEvent.local(AddChangeEvent.Type.CREATED, add));
+    }
+
+    @Test
+    void createAdds_QueuesEmailsOnlyForStoredAnnouncements() {
+        AddRequest badCategory = new AddRequest("Test Title", "Test Content", "CARS", addRequest.contact());
+        when(repository.insertUnordered(anyList())).thenAnswer(invocation -> {
+            List<Add> adds = invocation.getArgument(0);
+            List<Add> stored = adds.stream().map(add -> new Add(add.id(), add.title(), add.content(), add.category(),
+                    add.contact(), add.dateTime(), add.editCode(), add.search(), 0L)).toList();
+            return Mono.just(new AddRepositoryCustom.BulkInsert(stored, Map.of(1, "E11000 duplicate key")));
+        });
+        when(outbox.insert(anyIterable())).thenAnswer(invocation -> Flux.fromIterable(invocation.getArgument(0)));
+
+        StepVerifier.create(addService.createAdds(List.of(addRequest, badCategory, addRequest, addRequest)))
+                .assertNext(results -> assertEquals(List.of(AddBatchItem.Status.CREATED, AddBatchItem.Status.INVALID,
+                        AddBatchItem.Status.FAILED, AddBatchItem.Status.CREATED),
+                        results.stream().map(AddBatchItem::status).toList()))
+                .verifyComplete();
+
+        verify(outbox).insert(queuedEmails.capture());
+        assertEquals(2, queuedEmails.getValue().size());
+        verify(eventPublisher, times(2)).publishEvent(argThat((AddChangeEvent event) ->
+                event.add() != null && Long.valueOf(0L).equals(event.add().version())));
+    }
+
+    @Test
+    void getAddsByIds_LoadsMissingWithOneQueryAndListsUnknownIds() {
+        UUID unknown = UUID.randomUUID();
+        when(repository.findAllById(argThat((List<String> ids) -> Set.copyOf(ids)
+                .equals(Set.of(addId.toString(), unknown.toString()))))).thenReturn(Flux.just(add));
+
+        StepVerifier.create(addService.getAddsByIds(List.of(addId, unknown, addId)))
+                .assertNext(response -> {
+                    assertEquals(List.of(addId), response.found().stream().map(AddResponse::id).toList());
+                    assertEquals(List.of(unknown), response.missing());
+                })
+                .verifyComplete();
+        StepVerifier.create(addService.getAddsByIds(List.of(addId))).expectNextCount(1).verifyComplete();
+
+        verify(repository, times(1)).findAllById(anyIterable());
+    }
+
+    @Test
+    void getAddById_RepeatedReadServedFromCache() {
+        when(repository.findById(addId.toString())).thenReturn(Mono.just(add));
+
+        StepVerifier.create(addService.getAddById(addId)).expectNextCount(1).verifyComplete();
+        StepVerifier.create(addService.getAddById(addId)).expectNextCount(1).verifyComplete();
+
+        verify(repository, times(1)).findById(addId.toString());
+    }
+
+    @Test
+    void getAddById_AddNotFound() {
+        when(repository.findById(addId.toString())).thenReturn(Mono.empty());
+
+        StepVerifier.create(addService.getAddById(addId)).verifyError(AddNotFoundException.class);
+        StepVerifier.create(addService.getAddById(addId)).verifyError(AddNotFoundException.class);
+
+        verify(repository, times(2)).findById(addId.toString());
+    }
+
+    @Test
+    void updateAdd_StaleVersion() {
+        when(repository.updateIfMatches(any(Add.class), eq(7L))).thenReturn(Mono.empty());
+        when(repository.findById(addId.toString())).thenReturn(Mono.just(add));
+
+        StepVerifier.create(addService.updateAdd(addId, editCode, 7L, addRequest))
+                .verifyError(AddVersionConflictException.class);
+        verifyNoInteractions(outbox, eventPublisher);
+    }
+
+    @Test
+    void deleteAdd_InvalidEditCode() {
+        UUID wrongEditCode = UUID.randomUUID();
+        when(repository.deleteIfMatches(addId.toString(), wrongEditCode.toString(), null)).thenReturn(Mono.empty());
+        when(repository.findById(addId.toString())).thenReturn(Mono.just(add));
+
+        StepVerifier.create(addService.deleteAdd(addId, wrongEditCode, null)).verifyError(SecurityException.class);
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void streamAnnouncements_PassesFilterAndCursor() {
+        AddSummary summary = new AddSummary(addId.toString(), "Test Title", Category.JOB, add.dateTime(), "Test Content");
+        AddCursor cursor = AddCursor.of(summary);
+        when(repository.streamAll(eq(new AddFilter(Category.JOB, null, "")), eq(cursor))).thenReturn(Flux.just(summary));
+
+        StepVerifier.create(addService.streamAnnouncements("job", null, null, cursor.encode()))
+                .expectNext(summary)
+                .verifyComplete();
+    }
+
+    @Test
+    void streamAnnouncements_InvalidCategory() {
+        StepVerifier.create(addService.streamAnnouncements("unknown", null, null, null))
+                .verifyError(InvalidCategoryException.class);
+        verify(repository, never()).streamAll(any(), isNull());
+    }
+}
@@ -0,0 +1,37 @@
+package com.prz.edu.pl.ogloszone.add;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchTextTest {
+
+    @Test
+    void normalize_FoldsPolishDiacritics() {
+        assertEquals("zazolc gesla jazn lodz", SearchText.normalize("Zażółć gęślą jaźń, ŁÓDŹ!"));
+    }
+
+    @Test
+    void normalize_DropsStopWordsAndSingleLetters() {
+        assertEquals("mieszkanie centrum krakowa", SearchText.normalize("Mieszkanie w centrum Krakowa, jest i się"));
+    }
+
+    @Test
+    void normalize_KeepsNumbers() {
+        assertEquals("pokoje 2024", SearchText.normalize("3 pokoje (2024)"));
+    }
+
+    @Test
+    void normalize_NullAndBlank() {
+        assertEquals("", SearchText.normalize(null));
+        assertEquals("", SearchText.normalize("  ,.  "));
+    }
+
+    @Test
+    void of_NormalizesTitleAndContent() {
+        SearchText search = SearchText.of("Sprzedam rower", "Rower górski, stan bardzo dobry");
+
+        assertEquals("sprzedam rower", search.title());
+        assertEquals("rower gorski stan bardzo dobry", search.content());
+    }
+}
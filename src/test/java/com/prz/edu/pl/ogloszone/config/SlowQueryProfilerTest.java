@@ -0,0 +1,104 @@
+package com.prz.edu.pl.ogloszone.config;
+
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.ClusterId;
+import com.mongodb.connection.ConnectionDescription;
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlowQueryProfilerTest {
+
+    private static final ConnectionDescription CONNECTION =
+            new ConnectionDescription(new ServerId(new ClusterId(), new ServerAddress()));
+    private static final String EXPLAIN = """
+            { "queryPlanner": { "winningPlan": { "stage": "LIMIT", "inputStage": { "stage": "FETCH",
+                "inputStage": { "stage": "IXSCAN", "indexName": "category_1_dateTime_-1_id_-1" } } } },
+              "executionStats": { "nReturned": 10, "totalKeysExamined": 10, "totalDocsExamined": 10 } }""";
+
+    private final List<BsonDocument> explained = new ArrayList<>();
+    private SlowQueryProfiler profiler;
+    private int requestId;
+
+    @BeforeEach
+    void setUp() {
+        profiler = new SlowQueryProfiler(Duration.ofMillis(100), 2, Duration.ofMinutes(10),
+                (database, command) -> {
+                    explained.add(command);
+                    return Document.parse(EXPLAIN);
+                },
+                Runnable::run, Clock.fixed(Instant.parse("2025-10-18T12:00:00Z"), ZoneOffset.UTC));
+    }
+
+    @Test
+    void slowQuery_IsGroupedByShapeAndExplainedOnce() {
+        execute(find("JOB", 10), 150);
+        execute(find("SALE", 20), 300);
+        execute(find("JOB", 30), 50);
+
+        List<SlowQueryProfiler.SlowQuery> worst = profiler.worstOffenders();
+        assertEquals(1, worst.size());
+        SlowQueryProfiler.SlowQuery query = worst.get(0);
+        assertEquals("find announcements {\"filter\": {\"category\": \"?\"}, \"sort\": {\"dateTime\": -1}, \"skip\": \"?\"}",
+                query.shape());
+        assertEquals(2, query.count());
+        assertEquals(300, query.maxMs());
+        assertEquals("LIMIT > FETCH > IXSCAN", query.plan().stages());
+        assertEquals("category_1_dateTime_-1_id_-1", query.plan().index());
+        assertEquals(10L, query.plan().docsExamined());
+
+        assertEquals(1, explained.size());
+        assertEquals("executionStats", explained.get(0).getString("verbosity").getValue());
+        assertFalse(explained.get(0).getDocument("explain").containsKey("lsid"));
+    }
+
+    @Test
+    void worstOffenders_KeepsSlowestShapes() {
+        execute(BsonDocument.parse("{ count: 'announcements', query: { category: 'JOB' } }"), 200);
+        execute(BsonDocument.parse("{ count: 'announcements', query: { keyword: 'kot' } }"), 400);
+        execute(BsonDocument.parse("{ find: 'announcements', filter: { _id: 'a' } }"), 300);
+        execute(BsonDocument.parse("{ find: 'announcements', filter: { editCode: 'b' } }"), 120);
+
+        List<SlowQueryProfiler.SlowQuery> worst = profiler.worstOffenders();
+        assertEquals(List.of(400L, 300L), worst.stream().map(SlowQueryProfiler.SlowQuery::maxMs).toList());
+        assertEquals("count announcements {\"query\": {\"keyword\": \"?\"}}", worst.get(0).shape());
+    }
+
+    @Test
+    void shape_UsesFilterOfUpdateStatements() {
+        BsonDocument update = BsonDocument.parse("{ update: 'announcements', ordered: true, "
+                + "updates: [ { q: { _id: 'a', editCode: 'b', version: 3 }, u: { $set: { title: 't' } } } ] }");
+
+        assertEquals("update announcements {\"q\": {\"_id\": \"?\", \"editCode\": \"?\", \"version\": \"?\"}}",
+                SlowQueryProfiler.shape("update", update));
+    }
+
+    private static BsonDocument find(String category, int skip) {
+        return BsonDocument.parse("{ find: 'announcements', filter: { category: '" + category + "' }, "
+                + "sort: { dateTime: -1 }, skip: " + skip + ", limit: 10, $db: 'announcement_db', "
+                + "lsid: { id: 'session' } }");
+    }
+
+    private void execute(BsonDocument command, long millis) {
+        String commandName = command.getFirstKey();
+        int id = ++requestId;
+        profiler.commandStarted(new CommandStartedEvent(null, id, id, CONNECTION, "announcement_db", commandName,
+                command));
+        profiler.commandSucceeded(new CommandSucceededEvent(null, id, id, CONNECTION, "announcement_db",
+                commandName, new BsonDocument(), TimeUnit.MILLISECONDS.toNanos(millis)));
+    }
+}
@@ -0,0 +1,63 @@
+package com.prz.edu.pl.ogloszone.config;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VirtualThreadPinningMonitorTest {
+
+    private final Object lock = new Object();
+    private SimpleMeterRegistry meterRegistry;
+    private VirtualThreadPinningMonitor monitor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        monitor = new VirtualThreadPinningMonitor(meterRegistry, Duration.ofMillis(10));
+        monitor.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        monitor.stop();
+    }
+
+    @Test
+    void onPinned_RecordsSiteOfBlockingInsideSynchronized() throws Exception {
+        Thread.ofVirtual().start(this::sleepWhileHoldingLock).join();
+
+        Timer timer = awaitTimer();
+        assertNotNull(timer, "pinned virtual thread should be reported");
+        assertEquals(getClass().getName() + ".sleepWhileHoldingLock", timer.getId().getTag("site"));
+        assertTrue(timer.totalTime(TimeUnit.MILLISECONDS) >= 10);
+    }
+
+    private void sleepWhileHoldingLock() {
+        synchronized (lock) {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private Timer awaitTimer() throws InterruptedException {
+        // JFR streams events in chunks, roughly once a second.
+        for (int i = 0; i < 100; i++) {
+            Timer timer = meterRegistry.find("ogloszone.virtual-threads.pinned").timer();
+            if (timer != null) {
+                return timer;
+            }
+            Thread.sleep(100);
+        }
+        return null;
+    }
+}
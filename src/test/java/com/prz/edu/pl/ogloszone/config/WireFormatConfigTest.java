@@ -0,0 +1,58 @@
+package com.prz.edu.pl.ogloszone.config;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.prz.edu.pl.ogloszone.add.AddResponse;
+import com.prz.edu.pl.ogloszone.add.Contact;
+import com.prz.edu.pl.ogloszone.category.Category;
+import com.prz.edu.pl.ogloszone.util.PagedResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WireFormatConfigTest {
+
+    private static final TypeReference<PagedResponse<AddResponse>> PAGE = new TypeReference<>() {
+    };
+
+    @Test
+    void binaryMappers_RoundTripAPageInFewerBytesThanJson() throws Exception {
+        PagedResponse<AddResponse> page = page();
+        byte[] json = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build()
+                .writeValueAsBytes(page);
+
+        for (ObjectMapper mapper : List.of(
+                WireFormatConfig.binaryMapper(Jackson2ObjectMapperBuilder.json(), new SmileFactory()),
+                WireFormatConfig.binaryMapper(Jackson2ObjectMapperBuilder.json(), new CBORFactory()))) {
+            byte[] binary = mapper.writeValueAsBytes(page);
+
+            assertEquals(page, mapper.readValue(binary, PAGE));
+            assertTrue(binary.length < json.length * 3 / 4, binary.length + " vs " + json.length + " bytes");
+            // UUIDs are written as raw bytes, not as their text form.
+            assertFalse(new String(binary, StandardCharsets.ISO_8859_1).contains(page.content().get(0).id().toString()));
+        }
+    }
+
+    private static PagedResponse<AddResponse> page() {
+        List<AddResponse> content = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.of(2025, 10, 18, 12, 0, 30, 125_000_000);
+        for (int i = 0; i < 20; i++) {
+            content.add(new AddResponse(UUID.randomUUID(), "Ogłoszenie numer " + i, "Treść ogłoszenia " + i,
+                    Category.values()[i % Category.values().length], new Contact("+48123456789", "jan@example.com"),
+                    now.minusMinutes(i), (long) i));
+        }
+        return new PagedResponse<>(content, 0, 20, 100L, 5, false, null);
+    }
+}
@@ -0,0 +1,125 @@
+package com.prz.edu.pl.ogloszone.email;
+
+import com.icegreen.greenmail.configuration.GreenMailConfiguration;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EmailDispatcherTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP)
+            .withConfiguration(GreenMailConfiguration.aConfig().withDisabledAuthentication());
+
+    @Mock
+    private PendingEmailRepository outbox;
+
+    private SimpleMeterRegistry meterRegistry;
+    private EmailDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        dispatcher = dispatcherFor(ServerSetupTest.SMTP.getPort());
+    }
+
+    @Test
+    void dispatchPendingEmails_SendsBatchAndDrainsOutbox() throws Exception {
+        PendingEmail first = claimed(PendingEmail.of("add-1", "first@example.com", "Subject 1", "<p>1</p>"));
+        PendingEmail second = claimed(PendingEmail.of("add-2", "second@example.com", "Subject 2", "<p>2</p>"));
+        when(outbox.claimNext(any(Duration.class)))
+                .thenReturn(Optional.of(first))
+                .thenReturn(Optional.of(second))
+                .thenReturn(Optional.empty());
+        when(outbox.countByStatus(EmailStatus.PENDING)).thenReturn(0L);
+
+        dispatcher.dispatchPendingEmails();
+
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertEquals(2, received.length);
+        assertEquals("Subject 1", received[0].getSubject());
+        assertEquals("second@example.com", received[1].getAllRecipients()[0].toString());
+        verify(outbox, times(1)).deleteAllById(List.of(first.id(), second.id()));
+        verify(outbox, never()).save(any(PendingEmail.class));
+        assertEquals(1, meterRegistry.get("ogloszone.email.send").timer().count());
+        assertEquals(2, meterRegistry.get("ogloszone.email.delivery.delay").timer().count());
+        assertEquals(2, meterRegistry.get("ogloszone.email.sends").tag("result", "sent").counter().count());
+    }
+
+    @Test
+    void dispatchPendingEmails_SchedulesRetryWhenServerUnavailable() {
+        EmailDispatcher unreachable = dispatcherFor(ServerSetupTest.SMTP.getPort() + 1);
+        PendingEmail email = claimed(PendingEmail.of("add-1", "first@example.com", "Subject", "<p>1</p>"));
+        when(outbox.claimNext(any(Duration.class))).thenReturn(Optional.of(email)).thenReturn(Optional.empty());
+
+        unreachable.dispatchPendingEmails();
+
+        ArgumentCaptor<PendingEmail> saved = ArgumentCaptor.forClass(PendingEmail.class);
+        verify(outbox).save(saved.capture());
+        assertEquals(EmailStatus.PENDING, saved.getValue().status());
+        assertTrue(saved.getValue().nextAttemptAt().isAfter(LocalDateTime.now()));
+        assertNotNull(saved.getValue().lastError());
+        assertNull(saved.getValue().expiresAt());
+        verify(outbox).deleteAllById(List.of());
+        assertEquals(1, meterRegistry.get("ogloszone.email.sends").tag("result", "retried").counter().count());
+    }
+
+    @Test
+    void dispatchPendingEmails_DeadLettersAfterLastAttempt() {
+        EmailDispatcher unreachable = dispatcherFor(ServerSetupTest.SMTP.getPort() + 1);
+        PendingEmail email = PendingEmail.of("add-1", "first@example.com", "Subject", "<p>1</p>");
+        PendingEmail lastAttempt = new PendingEmail(email.id(), email.addId(), email.recipient(), email.subject(),
+                email.content(), EmailStatus.PENDING, 3, email.nextAttemptAt(), email.createdAt(), null, null);
+        when(outbox.claimNext(any(Duration.class)))
+                .thenReturn(Optional.of(lastAttempt))
+                .thenReturn(Optional.empty());
+
+        unreachable.dispatchPendingEmails();
+
+        ArgumentCaptor<PendingEmail> saved = ArgumentCaptor.forClass(PendingEmail.class);
+        verify(outbox).save(saved.capture());
+        assertEquals(EmailStatus.DEAD, saved.getValue().status());
+        assertTrue(saved.getValue().expiresAt().isAfter(LocalDateTime.now().plusDays(6)));
+        assertEquals(1, meterRegistry.get("ogloszone.email.sends").tag("result", "dead").counter().count());
+    }
+
+    @Test
+    void backoff_GrowsExponentiallyUpToLimit() {
+        assertEquals(Duration.ofSeconds(30), dispatcher.backoff(1));
+        assertEquals(Duration.ofSeconds(120), dispatcher.backoff(3));
+        assertEquals(Duration.ofHours(1), dispatcher.backoff(30));
+    }
+
+    private EmailDispatcher dispatcherFor(int port) {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(port);
+        mailSender.getJavaMailProperties().put("mail.smtp.connectiontimeout", "1000");
+        return new EmailDispatcher(outbox, mailSender, meterRegistry, 10, 3,
+                Duration.ofMinutes(2), Duration.ofSeconds(30), Duration.ofHours(1), Duration.ofDays(7));
+    }
+
+    private static PendingEmail claimed(PendingEmail email) {
+        return new PendingEmail(email.id(), email.addId(), email.recipient(), email.subject(), email.content(),
+                email.status(), email.attempts() + 1, email.nextAttemptAt(), email.createdAt(), null, null);
+    }
+}